@@ -2,6 +2,7 @@ package com.example.demo.config;
 
 import com.example.demo.repositories.UserRepository;
 import com.example.demo.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -41,6 +42,9 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Streamed responses (e.g. the orders export) finish on an async dispatch
+                        // of a request that was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
@@ -78,7 +82,8 @@ public class SecurityConfig {
                                 "/api/auth/debug/authorities", // Allow debug endpoint for troubleshooting
                                 "/api/orders/*/feedback", // Allow access to order feedback
                                 "/api/landing-pages/public/**", // Allow public access to published landing pages
-                                "/api/enhanced-visitor-counter-settings" // Allow public access to visitor settings
+                                "/api/enhanced-visitor-counter-settings", // Allow public access to visitor settings
+                                "/api/storefront/bootstrap" // Combined first-paint payload
                         )
                         .permitAll()
                         .requestMatchers("/", "/index.html", "/images/**", "/vite.svg").permitAll()
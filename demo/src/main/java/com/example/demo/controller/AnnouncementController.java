@@ -2,10 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.AnnouncementDTO;
 import com.example.demo.service.AnnouncementService;
+import com.example.demo.service.StorefrontConfigCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/announcement")
@@ -14,9 +16,11 @@ public class AnnouncementController {
 
     private final AnnouncementService announcementService;
 
+    private final StorefrontConfigCache storefrontConfigCache;
+
     @GetMapping
-    public ResponseEntity<AnnouncementDTO> getAnnouncement() {
-        return ResponseEntity.ok(announcementService.getAnnouncement());
+    public ResponseEntity<byte[]> getAnnouncement(WebRequest request) {
+        return storefrontConfigCache.toResponse(announcementService.getAnnouncementSnapshot(), request);
     }
 
     @PutMapping
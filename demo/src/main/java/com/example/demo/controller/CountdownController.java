@@ -2,10 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.CountdownDTO;
 import com.example.demo.service.CountdownService;
+import com.example.demo.service.StorefrontConfigCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/countdown")
@@ -14,10 +16,12 @@ public class CountdownController {
     @Autowired
     private CountdownService countdownService;
 
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
+
     @GetMapping
-    public ResponseEntity<CountdownDTO> getCountdown() {
-        CountdownDTO countdown = countdownService.getCountdown();
-        return ResponseEntity.ok(countdown);
+    public ResponseEntity<byte[]> getCountdown(WebRequest request) {
+        return storefrontConfigCache.toResponse(countdownService.getCountdownSnapshot(), request);
     }
 
     @PostMapping
@@ -4,11 +4,13 @@ package com.example.demo.controller;
 import com.example.demo.dto.CouponDTO;
 import com.example.demo.service.CouponService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -67,36 +69,29 @@ public class CouponController {
     @GetMapping("/usage-statistics")
     @PreAuthorize("hasAuthority('COUPON:VIEW') or hasAuthority('COUPON:ANALYTICS') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
     public ResponseEntity<List<Map<String, Object>>> getCouponUsageStatistics() {
-        System.out.println("🔍 CouponController: GET /usage-statistics endpoint called");
-        try {
-            List<Map<String, Object>> result = couponService.getCouponUsageStatistics();
-            System.out.println("✅ CouponController: Returning general usage statistics: " + result);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.out.println("❌ CouponController: Error in general usage statistics: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(List.of());
-        }
+        return ResponseEntity.ok(couponService.getCouponUsageStatistics());
     }
 
-    // --- NEW ENDPOINT START ---
     @GetMapping("/{id}/usage-statistics")
     @PreAuthorize("hasAuthority('COUPON:VIEW') or hasAuthority('COUPON:ANALYTICS') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
     public ResponseEntity<List<Map<String, Object>>> getCouponUsageStatisticsById(@PathVariable Long id) {
-        System.out.println("🔍 CouponController: GET /" + id + "/usage-statistics endpoint called");
-        try {
-            List<Map<String, Object>> result = couponService.getCouponUsageStatisticsById(id);
-            System.out.println("✅ CouponController: Returning usage statistics for coupon " + id + ": " + result);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            System.out
-                    .println("❌ CouponController: Error in usage statistics for coupon " + id + ": " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(500).body(List.of());
+        return ResponseEntity.ok(couponService.getCouponUsageStatisticsById(id));
+    }
+
+    /**
+     * Rebuilds the daily usage rollup for a date range from the orders table.
+     */
+    @PostMapping("/usage-statistics/reconcile")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Void> reconcileUsageStatistics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
         }
+        couponService.reconcileUsageStatistics(from, to);
+        return ResponseEntity.noContent().build();
     }
-    // --- NEW ENDPOINT END ---
-    // --- NEW ENDPOINT END ---
 
     @GetMapping("/my-active-rewards")
     @PreAuthorize("isAuthenticated()")
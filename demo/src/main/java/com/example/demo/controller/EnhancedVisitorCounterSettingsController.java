@@ -2,10 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.model.EnhancedVisitorCounterSettings;
 import com.example.demo.service.EnhancedVisitorCounterSettingsService;
+import com.example.demo.service.StorefrontConfigCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/enhanced-visitor-counter-settings")
@@ -14,10 +16,12 @@ public class EnhancedVisitorCounterSettingsController {
     @Autowired
     private EnhancedVisitorCounterSettingsService service;
 
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
+
     @GetMapping
-    public ResponseEntity<EnhancedVisitorCounterSettings> getSettings() {
-        EnhancedVisitorCounterSettings settings = service.getSettings();
-        return ResponseEntity.ok(settings);
+    public ResponseEntity<byte[]> getSettings(WebRequest request) {
+        return storefrontConfigCache.toResponse(service.getSettingsSnapshot(), request);
     }
 
     @PostMapping
@@ -3,12 +3,14 @@ package com.example.demo.controller;
 import com.example.demo.dto.HeroDTO;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.service.HeroService;
+import com.example.demo.service.StorefrontConfigCache;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -21,9 +23,11 @@ public class HeroController {
 
     private final HeroService heroService;
 
+    private final StorefrontConfigCache storefrontConfigCache;
+
     @GetMapping
-    public ResponseEntity<HeroDTO> getHero() {
-        return ResponseEntity.ok(heroService.getHero());
+    public ResponseEntity<byte[]> getHero(WebRequest request) {
+        return storefrontConfigCache.toResponse(heroService.getHeroSnapshot(), request);
     }
 
     @PutMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
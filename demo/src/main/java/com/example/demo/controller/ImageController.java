@@ -1,75 +1,89 @@
 package com.example.demo.controller;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import com.example.demo.service.ContentAddressedStore;
+import com.example.demo.service.ImagePathResolver;
+import com.example.demo.service.ImageVariantService;
+import com.example.demo.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/images")
+@RequiredArgsConstructor
 public class ImageController {
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    private final ThumbnailService thumbnailService;
+    private final ImageVariantService imageVariantService;
+    private final ImagePathResolver imagePathResolver;
 
-    /**
-     * Serve images with type and filename.
-     * Supports new structure: /api/images/{type}/{filename}
-     * Also supports legacy structure: /api/images/{filename} (for backward
-     * compatibility)
-     */
     /**
      * Serve images with type and filename.
      * Supports new structure: /api/images/{type}/{filename}
      * Also supports resizing: ?w=300&h=300
      */
     @GetMapping("/{type}/{filename:.+}")
-    public ResponseEntity<Resource> getImageByType(
+    public void getImageByType(
             @PathVariable String type,
             @PathVariable("filename") String filename,
             @RequestParam(required = false) Integer w,
-            @RequestParam(required = false) Integer h) {
-        try {
-            // Security: Prevent directory traversal
-            if (filename.contains("..") || type.contains("..")) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            Path filePath = Paths.get(uploadDir, "images", type, filename);
-            File file = filePath.toFile();
+            @RequestParam(required = false) Integer h,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        // Security: Prevent directory traversal
+        if (filename.contains("..") || type.contains("..")) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
 
-            if (!file.exists() || !file.isFile()) {
-                return ResponseEntity.notFound().build();
-            }
+        ImagePathResolver.ImageFile file = imagePathResolver.resolve(type, filename);
+        if (file == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-            // If resizing is requested
-            if (w != null || h != null) {
-                return serveResizedImage(file, filename, w, h);
-            }
+        // If resizing is requested
+        if (w != null || h != null) {
+            serveResizedImage(file, filename, w, h, getResizedCacheControlHeader(type), request, response);
+            return;
+        }
 
-            Resource resource = new FileSystemResource(file);
-            String contentType = getContentType(filename);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+        // Smart caching based on type
+        ImageResponseWriter.write(request, response, file, getContentType(filename), getCacheControlHeader(type));
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CACHE_CONTROL, getCacheControlHeader(type)) // Smart caching based on type
-                    .body(resource);
+    /**
+     * Thumbnail generation counters and queue/resize timings.
+     */
+    @GetMapping("/thumbnail-stats")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<ThumbnailService.Stats> getThumbnailStats() {
+        return ResponseEntity.ok(thumbnailService.getStats());
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
-        }
+    /**
+     * Generates the missing preset variants of every stored image in the
+     * background; 409 if a backfill is already running.
+     */
+    @PostMapping("/variants/backfill")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Void> backfillVariants() {
+        return imageVariantService.backfillAsync()
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
     }
 
     /**
@@ -77,182 +91,75 @@ public class ImageController {
      * Supports old structure: /api/images/{filename}
      */
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable("filename") String filename,
+    public void getImage(@PathVariable("filename") String filename,
             @RequestParam(required = false) Integer w,
-            @RequestParam(required = false) Integer h) {
-        try {
-            // Security: Prevent directory traversal
-            if (filename.contains("..")) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            // Try new structure first (images/general/)
-            Path filePath = Paths.get(uploadDir, "images", "general", filename);
-            File file = filePath.toFile();
-
-            // If not found, try old structure (directly in uploads/)
-            if (!file.exists()) {
-                filePath = Paths.get(uploadDir, filename);
-                file = filePath.toFile();
-            }
-
-            // If still not found, try images/ directory
-            if (!file.exists()) {
-                filePath = Paths.get(uploadDir, "images", filename);
-                file = filePath.toFile();
-            }
-
-            if (!file.exists() || !file.isFile()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // If resizing is requested
-            if (w != null || h != null) {
-                return serveResizedImage(file, filename, w, h);
-            }
-
-            Resource resource = new FileSystemResource(file);
-            String contentType = getContentType(filename);
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .header(HttpHeaders.CACHE_CONTROL, getCacheControlHeader("general")) // Smart caching for legacy
-                                                                                         // endpoint
-                    .body(resource);
-
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            @RequestParam(required = false) Integer h,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        // Security: Prevent directory traversal
+        if (filename.contains("..")) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
         }
-    }
-
-    private ResponseEntity<Resource> serveResizedImage(File originalFile, String originalFilename, Integer width,
-            Integer height) {
-        try {
-            // Determine dimensions
-            int targetWidth = width != null ? width : 0;
-            int targetHeight = height != null ? height : 0;
-
-            if (targetWidth == 0 && targetHeight == 0) {
-                // No valid dimensions, return original
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(getContentType(originalFilename)))
-                        .body(new FileSystemResource(originalFile));
-            }
-
-            // Create cache directory if not exists - ensure absolute path
-            Path cacheDir = Paths.get(uploadDir, "images", "cache").toAbsolutePath();
-            if (!cacheDir.toFile().exists()) {
-                cacheDir.toFile().mkdirs();
-            }
-
-            // Generate unique cache filename: original_wX_hY.webp
-            String cacheFilename = originalFilename + "_w" + targetWidth + "_h" + targetHeight + ".webp";
-            File cacheFile = cacheDir.resolve(cacheFilename).toFile();
-
-            // Check if cached file exists and is not empty
-            if (!cacheFile.exists() || cacheFile.length() == 0) {
-                // Synchronize on the filename to prevent multiple threads from resizing the
-                // same image
-                synchronized (cacheFilename.intern()) {
-                    // Double-check inside synchronization
-                    if (!cacheFile.exists() || cacheFile.length() == 0) {
-                        File tempFile = new File(cacheFile.getAbsolutePath() + ".tmp");
-
-                        // Ensure no stale temp file exists
-                        if (tempFile.exists()) {
-                            tempFile.delete();
-                        }
-
-                        try {
-                            System.out.println("🔨 Generating thumbnail: " + cacheFilename);
-
-                            var builder = net.coobird.thumbnailator.Thumbnails.of(originalFile);
-
-                            if (targetWidth > 0 && targetHeight > 0) {
-                                builder.size(targetWidth, targetHeight);
-                            } else if (targetWidth > 0) {
-                                builder.width(targetWidth);
-                            } else {
-                                builder.height(targetHeight);
-                            }
 
-                            // Try WebP first
-                            try {
-                                builder.outputFormat("webp")
-                                        .outputQuality(0.7)
-                                        .toFile(tempFile);
-                            } catch (Exception webpError) {
-                                System.err.println(
-                                        "⚠️ WebP generation failed, falling back to JPEG: " + webpError.getMessage());
-                                // Re-initialize builder as it might be in a bad state?
-                                // Actually Thumbnails.of returns a new Builder, safe to reuse logic if we
-                                // assume builder is reusable or just create new one.
-                                // Safer to recreate builder to avoid side effects
-                                var jpgBuilder = net.coobird.thumbnailator.Thumbnails.of(originalFile);
-                                if (targetWidth > 0 && targetHeight > 0) {
-                                    jpgBuilder.size(targetWidth, targetHeight);
-                                } else if (targetWidth > 0) {
-                                    jpgBuilder.width(targetWidth);
-                                } else {
-                                    jpgBuilder.height(targetHeight);
-                                }
-                                jpgBuilder.outputFormat("jpg")
-                                        .outputQuality(0.7)
-                                        .toFile(tempFile);
-                            }
-
-                            if (!tempFile.exists() || tempFile.length() == 0) {
-                                throw new java.io.IOException(
-                                        "CRITICAL: Temp file was not created by Thumbnailator (WebP and JPEG failed): "
-                                                + tempFile.getAbsolutePath());
-                            }
+        // images/general/, then directly in uploads/, then images/
+        ImagePathResolver.ImageFile file = imagePathResolver.resolveLegacy(filename);
+        if (file == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-                            System.out.println("DEBUG: Temp file created successfully. Size: " + tempFile.length());
+        // If resizing is requested
+        if (w != null || h != null) {
+            serveResizedImage(file, filename, w, h, getResizedCacheControlHeader("general"), request, response);
+            return;
+        }
 
-                            // Move temp file to final destination
-                            java.nio.file.Files.copy(
-                                    tempFile.toPath().toAbsolutePath(),
-                                    cacheFile.toPath().toAbsolutePath(),
-                                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+        // Smart caching for legacy endpoint
+        ImageResponseWriter.write(request, response, file, getContentType(filename), getCacheControlHeader("general"));
+    }
 
-                            try {
-                                java.nio.file.Files.deleteIfExists(tempFile.toPath());
-                            } catch (Exception ignored) {
-                            }
+    private void serveResizedImage(ImagePathResolver.ImageFile original, String originalFilename, Integer width,
+            Integer height, String cacheControl, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        int targetWidth = width != null ? width : 0;
+        int targetHeight = height != null ? height : 0;
 
-                            System.out.println("✅ Generated thumbnail successfully: " + cacheFilename);
-                        } catch (Exception resizeError) {
-                            System.err.println("💥 Failed to generate thumbnail: " + cacheFilename + " - "
-                                    + resizeError.getMessage());
-                            resizeError.printStackTrace();
+        if (targetHeight == 0 && imageVariantService.isOriginalWideEnough(originalFilename, targetWidth)) {
+            // Known to be no wider than requested: nothing to resize
+            ImageResponseWriter.write(request, response, original, getContentType(originalFilename), cacheControl);
+            return;
+        }
 
-                            if (tempFile.exists())
-                                tempFile.delete();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean webp = accept == null || accept.contains("image/webp");
+        ThumbnailService.Thumbnail thumbnail = targetWidth > 0 || targetHeight > 0
+                ? thumbnailService.getThumbnail(original.getPath().toFile(), originalFilename, targetWidth,
+                        targetHeight, webp)
+                : null;
+        ImagePathResolver.ImageFile thumbnailFile = thumbnail == null
+                ? null
+                : ImagePathResolver.stat(thumbnail.getFile().toPath());
+        if (thumbnailFile == null) {
+            // No valid dimensions, or the thumbnail isn't ready (or was just evicted): serve the original
+            ImageResponseWriter.write(request, response, original, getContentType(originalFilename),
+                    "public, max-age=3600");
+            return;
+        }
 
-                            // FALLBACK: Serve original image
-                            System.out.println("🔄 Falling back to original image for: " + originalFilename);
-                            return ResponseEntity.ok()
-                                    .header(HttpHeaders.CONTENT_TYPE, getContentType(originalFilename))
-                                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=3600")
-                                    .body(new FileSystemResource(originalFile));
-                        }
-                    }
-                }
-            }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        ImageResponseWriter.write(request, response, thumbnailFile, thumbnail.getContentType(), cacheControl);
+    }
 
-            // Serve cached file
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_TYPE, "image/webp")
-                    .header(HttpHeaders.CACHE_CONTROL, "public, max-age=2592000")
-                    .body(new FileSystemResource(cacheFile));
-        } catch (Exception e) {
-            System.err.println("❌ Error in serveResizedImage: " + e.getMessage());
-            // Fallback to original image as last resort
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_TYPE, getContentType(originalFilename))
-                    .body(new FileSystemResource(originalFile));
-        }
+    /**
+     * Resized images are cached for 30 days, or like their original when it
+     * is content-addressed and the URL can never point at other bytes.
+     */
+    private String getResizedCacheControlHeader(String type) {
+        return ContentAddressedStore.TYPE.equals(type)
+                ? getCacheControlHeader(type)
+                : "public, max-age=2592000";
     }
 
     private String getContentType(String filename) {
@@ -285,6 +192,9 @@ public class ImageController {
         }
 
         switch (type) {
+            case ContentAddressedStore.TYPE:
+                // Content-addressed: the URL changes whenever the image does
+                return "public, max-age=31536000, immutable";
             case "hero":
                 // Hero images change infrequently but need quick updates when they do
                 return "public, max-age=300"; // 5 minutes
@@ -6,6 +6,7 @@ import com.example.demo.dto.LandingPageResponseDTO;
 import com.example.demo.model.LandingPage;
 import com.example.demo.model.LandingPageView;
 import com.example.demo.model.User;
+import com.example.demo.service.LandingPageResponseCache;
 import com.example.demo.service.LandingPageService;
 import com.example.demo.service.UserService;
 import jakarta.validation.Valid;
@@ -15,17 +16,24 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * REST Controller for Landing Page management
@@ -36,6 +44,8 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class LandingPageController {
 
+    private static final String VISITOR_COOKIE = "lp_vid";
+
     @Autowired
     private LandingPageService landingPageService;
 
@@ -80,9 +90,36 @@ public class LandingPageController {
      * This is the endpoint used by customers to view landing pages
      */
     @GetMapping("/public/{slug}")
-    public ResponseEntity<LandingPageResponseDTO> getPublishedLandingPage(@PathVariable String slug) {
-        LandingPageResponseDTO response = landingPageService.getPublishedLandingPageBySlug(slug);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<byte[]> getPublishedLandingPage(
+            @PathVariable String slug,
+            @CookieValue(name = VISITOR_COOKIE, required = false) String visitorId,
+            WebRequest request) {
+        LandingPageResponseCache.CachedPage page = landingPageService.getPublishedLandingPageBySlug(slug);
+
+        // Anonymous visitor id used for unique visitor counts; issued on the first visit
+        String visitorCookie = null;
+        if (visitorId == null || visitorId.isBlank() || visitorId.length() > 64) {
+            visitorId = UUID.randomUUID().toString();
+            visitorCookie = ResponseCookie.from(VISITOR_COOKIE, visitorId)
+                    .path("/")
+                    .maxAge(Duration.ofDays(365))
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString();
+        }
+        // Every hit counts as a view, including cache hits and 304s
+        landingPageService.trackView(page.getLandingPageId(), visitorId);
+
+        // no-cache: browsers revalidate each visit (cheap with the ETag), so views keep being counted
+        boolean notModified = request.checkNotModified(page.getEtag());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .cacheControl(CacheControl.noCache())
+                .eTag(page.getEtag());
+        if (visitorCookie != null) {
+            builder.header(HttpHeaders.SET_COOKIE, visitorCookie);
+        }
+        return notModified ? builder.build() : builder.contentType(MediaType.APPLICATION_JSON).body(page.getJson());
     }
 
     /**
@@ -211,6 +248,8 @@ public class LandingPageController {
 
         Map<String, Object> analytics = new HashMap<>();
         analytics.put("totalViews", totalViews);
+        // Distinct visitors over the whole range (not the sum of daily uniques)
+        analytics.put("uniqueVisitors", landingPageService.getUniqueVisitors(id, startDate, endDate));
         analytics.put("viewData", viewData);
         analytics.put("startDate", startDate);
         analytics.put("endDate", endDate);
@@ -2,10 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.model.NotificationSetting;
 import com.example.demo.service.NotificationSettingService;
+import com.example.demo.service.StorefrontConfigCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,18 +21,17 @@ public class NotificationSettingController {
     @Autowired
     private NotificationSettingService notificationSettingService;
 
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
+
     /**
      * Get notification settings
      * Public endpoint so frontend can fetch settings
      */
     @GetMapping
-    public ResponseEntity<NotificationSetting> getSettings() {
+    public ResponseEntity<byte[]> getSettings(WebRequest request) {
         try {
-            logger.info("Fetching notification settings");
-            NotificationSetting settings = notificationSettingService.getSettings();
-            logger.debug("Successfully retrieved notification settings: enabled={}, maxNotifications={}", 
-                        settings.getEnabled(), settings.getMaxNotifications());
-            return ResponseEntity.ok(settings);
+            return storefrontConfigCache.toResponse(notificationSettingService.getSettingsSnapshot(), request);
         } catch (Exception e) {
             logger.error("Error fetching notification settings", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -3,21 +3,28 @@ package com.example.demo.controller;
 import com.example.demo.dto.GuestOrderRequestDTO;
 import com.example.demo.dto.OrderDTO;
 import com.example.demo.dto.OrderFeedbackDTO;
+import com.example.demo.dto.OrderSearchResultDTO;
 import com.example.demo.model.Order;
 import com.example.demo.model.OrderFeedback;
 import com.example.demo.model.User;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderCsvExportService;
 import com.example.demo.service.OrderFeedbackService;
+import com.example.demo.service.OrderSearchService;
 import com.example.demo.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -26,6 +33,8 @@ public class OrderController {
     private final OrderService orderService;
     private final UserService userService;
     private final OrderFeedbackService orderFeedbackService;
+    private final OrderSearchService orderSearchService;
+    private final OrderCsvExportService orderCsvExportService;
 
     @PostMapping
     @PreAuthorize("isAuthenticated()")
@@ -62,6 +71,23 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Paginated order search for the admin orders screen. Pass the returned
+     * {@code nextCursor} as {@code cursor} to get the next page.
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('ORDER:VIEW') or hasAuthority('ORDER:EDIT') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER') or hasAuthority('ROLE_EDITOR')")
+    public ResponseEntity<OrderSearchResultDTO> searchOrders(
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderSearchService.search(status, city, phone, from, to, cursor, size));
+    }
+
     @GetMapping("/{orderId}")
     @PreAuthorize("hasAuthority('ORDER:VIEW') or hasAuthority('ORDER:EDIT') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER') or isAuthenticated()")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long orderId,
@@ -126,12 +152,30 @@ public class OrderController {
 
     @GetMapping("/export")
     @PreAuthorize("hasAuthority('ORDER:VIEW') or hasAuthority('ORDER:EXPORT') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
-    public ResponseEntity<String> exportOrders() {
-        String csv = orderService.exportOrdersToCsv();
-        return ResponseEntity.ok()
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Rows are written to the response as they are read, gzipped when the client accepts it
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192)) {
+                    orderCsvExportService.writeCsv(status, from, to, gzipOut);
+                }
+            } else {
+                orderCsvExportService.writeCsv(status, from, to, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.csv\"")
-                .contentType(org.springframework.http.MediaType.TEXT_PLAIN)
-                .body(csv);
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(org.springframework.http.MediaType.TEXT_PLAIN);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     // ===== ORDER FEEDBACK ENDPOINTS =====
@@ -2,6 +2,8 @@ package com.example.demo.controller;
 
 import com.example.demo.dto.FrequentlyBoughtTogetherDTO;
 import com.example.demo.dto.ProductDTO;
+import com.example.demo.dto.ProductFacetsDTO;
+import com.example.demo.dto.ProductListDTO;
 import com.example.demo.dto.ProductVariantDto;
 import com.example.demo.service.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -65,8 +67,9 @@ public class ProductController {
     }
 
     @GetMapping("/suggestions")
-    public ResponseEntity<List<String>> getProductSuggestions(@RequestParam String query) {
-        return ResponseEntity.ok(productService.getProductSuggestions(query));
+    public ResponseEntity<List<String>> getProductSuggestions(@RequestParam String query,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.getProductSuggestions(query, limit));
     }
 
     @PostMapping("/description-image")
@@ -82,13 +85,13 @@ public class ProductController {
 
 
     @GetMapping("/bestsellers")
-    public ResponseEntity<List<ProductDTO>> getBestsellers() {
-        return ResponseEntity.ok(productService.getBestsellers());
+    public ResponseEntity<List<ProductListDTO>> getBestsellers(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.getBestsellers(limit));
     }
 
     @GetMapping("/new-arrivals")
-    public ResponseEntity<List<ProductDTO>> getNewArrivals() {
-        return ResponseEntity.ok(productService.getNewArrivals());
+    public ResponseEntity<List<ProductListDTO>> getNewArrivals(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.getNewArrivals(limit));
     }
 
     /**
@@ -96,7 +99,7 @@ public class ProductController {
      * It accepts various request parameters to filter the results dynamically.
      */
     @GetMapping
-    public ResponseEntity<Page<ProductDTO>> getAllProducts(
+    public ResponseEntity<Page<ProductListDTO>> getAllProducts(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) BigDecimal minPrice,
@@ -106,10 +109,29 @@ public class ProductController {
             @RequestParam(required = false) Boolean newArrival,
             @RequestParam(required = false) String type,
             Pageable pageable) {
-        Page<ProductDTO> products = productService.getAllProducts(search, categoryId, minPrice, maxPrice, brand, bestseller, newArrival, type, pageable);
+        Page<ProductListDTO> products = productService.getAllProducts(search, categoryId, minPrice, maxPrice, brand, bestseller, newArrival, type, pageable);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Facet counts (categories, brands, types, flags, price histogram) for the
+     * same filters as the product listing, computed in memory.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsDTO> getProductFacets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Boolean bestseller,
+            @RequestParam(required = false) Boolean newArrival,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) Integer buckets) {
+        return ResponseEntity.ok(productService.getProductFacets(search, categoryId, minPrice, maxPrice, brand,
+                bestseller, newArrival, type, buckets));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
         return ResponseEntity.ok(productService.getProductById(id));
@@ -0,0 +1,65 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.SalesRollupDTO;
+import com.example.demo.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales dashboards, read from the daily rollups only.
+ */
+@RestController
+@RequestMapping("/api/analytics/sales")
+@RequiredArgsConstructor
+public class SalesAnalyticsController {
+
+    private final SalesRollupService salesRollupService;
+
+    /**
+     * Day by day totals of one dimension value (e.g. dimension=CITY&key=Rabat),
+     * or of all sales with the default dimension TOTAL
+     */
+    @GetMapping("/daily")
+    @PreAuthorize("hasAuthority('ORDER:VIEW') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
+    public ResponseEntity<List<SalesRollupDTO>> getDailySales(
+            @RequestParam(defaultValue = "TOTAL") SalesRollupService.Dimension dimension,
+            @RequestParam(required = false) String key,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(salesRollupService.getDaily(dimension, key, from, to));
+    }
+
+    /**
+     * Top values of a dimension over the range (products, categories, cities...)
+     */
+    @GetMapping("/breakdown")
+    @PreAuthorize("hasAuthority('ORDER:VIEW') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
+    public ResponseEntity<List<SalesRollupDTO>> getBreakdown(
+            @RequestParam SalesRollupService.Dimension dimension,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(salesRollupService.getBreakdown(dimension, from, to, Math.min(limit, 500)));
+    }
+
+    /**
+     * Rebuilds the rollups of a date range from the orders table (backfill)
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Void> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        salesRollupService.rebuild(from, to);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,15 +1,12 @@
 package com.example.demo.controller;
 
-import com.example.demo.model.Setting;
-import com.example.demo.repositories.SettingRepository;
+import com.example.demo.service.SettingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * REST controller for managing application settings.
@@ -19,7 +16,7 @@ import java.util.stream.Collectors;
 public class SettingsController {
 
     @Autowired
-    private SettingRepository settingRepository;
+    private SettingService settingService;
 
     @Autowired
     private com.example.demo.service.LocalFileService localFileService;
@@ -31,10 +28,7 @@ public class SettingsController {
      */
     @GetMapping
     public ResponseEntity<Map<String, String>> getSettings() {
-        List<Setting> settings = settingRepository.findAll();
-        Map<String, String> settingsMap = settings.stream()
-                .collect(Collectors.toMap(Setting::getSettingKey, Setting::getValue));
-        return ResponseEntity.ok(settingsMap);
+        return ResponseEntity.ok(settingService.getAllSettings());
     }
 
     /**
@@ -49,11 +43,7 @@ public class SettingsController {
             String logoUrl = localFileService.saveImage(file, "system");
             
             // Save to database
-            Setting setting = settingRepository.findBySettingKey("site_logo_url")
-                    .orElse(new Setting());
-            setting.setSettingKey("site_logo_url");
-            setting.setValue(logoUrl);
-            settingRepository.save(setting);
+            settingService.updateSetting("site_logo_url", logoUrl);
             
             return ResponseEntity.ok(Map.of("url", logoUrl));
         } catch (java.io.IOException e) {
@@ -69,13 +59,8 @@ public class SettingsController {
     @PostMapping
     @PreAuthorize("hasAuthority('SETTINGS:EDIT') or hasAuthority('SETTINGS:UPDATE') or hasAuthority('ROLE_ADMIN') or hasAuthority('ROLE_MANAGER')")
     public ResponseEntity<?> saveSettings(@RequestBody Map<String, String> settings) {
-        settings.forEach((key, value) -> {
-            Setting setting = settingRepository.findBySettingKey(key)
-                    .orElse(new Setting()); // Create new setting if it doesn't exist
-            setting.setSettingKey(key);
-            setting.setValue(value);
-            settingRepository.save(setting);
-        });
+        // Creates missing settings and refreshes the settings cache
+        settingService.updateSettings(settings);
         return ResponseEntity.ok().body(Map.of("message", "Settings saved successfully"));
     }
 }
@@ -0,0 +1,89 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.StorefrontBootstrapService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/storefront")
+@RequiredArgsConstructor
+public class StorefrontController {
+
+    private final StorefrontBootstrapService storefrontBootstrapService;
+
+    @Value("${storefront.cache.max-age-seconds:30}")
+    private long maxAgeSeconds;
+
+    /**
+     * Hero, announcement, countdown, settings and categories in one response,
+     * served from pre-built bytes (gzipped when the client accepts it).
+     *
+     * The gzipped body has its own strong ETag ({@code "<hash>-gz"}), as two
+     * codings of a resource are different representations. Either ETag
+     * revalidates, since both stand for the same payload version.
+     */
+    @GetMapping("/bootstrap")
+    public ResponseEntity<byte[]> getBootstrap(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        StorefrontBootstrapService.Payload payload = storefrontBootstrapService.getPayload();
+        boolean gzip = AcceptEncoding.acceptsGzip(acceptEncoding);
+        String gzipEtag = gzipEtag(payload.getEtag());
+        String etag = gzip ? gzipEtag : payload.getEtag();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (matches(ifNoneMatch, payload.getEtag()) || matches(ifNoneMatch, gzipEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return response.body(payload.getJson());
+    }
+
+    static String gzipEtag(String etag) {
+        return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag + "-gz";
+    }
+
+    /**
+     * Whether an If-None-Match header lists this ETag (weak comparison, as for GET).
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
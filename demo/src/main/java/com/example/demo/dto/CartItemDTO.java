@@ -16,5 +16,6 @@ public class CartItemDTO {
     private String imageUrl;
     @JsonProperty("variantName")
     private String variantName;
+    private Long productVariantId;
     private Long categoryId;
 }
\ No newline at end of file
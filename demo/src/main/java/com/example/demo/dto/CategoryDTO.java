@@ -20,4 +20,6 @@ public class CategoryDTO {
     private String description;
 
     private String imageUrl; // Add imageUrl field
+
+    private String imageSrcset; // Preset widths of imageUrl (read-only)
 }
\ No newline at end of file
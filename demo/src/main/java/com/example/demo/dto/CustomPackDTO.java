@@ -14,6 +14,7 @@ public class CustomPackDTO {
     private int minItems;
     private int maxItems;
     private String imageUrl;
+    private String imageSrcset;
     private CustomPack.PricingType pricingType;
     private BigDecimal fixedPrice;
     private BigDecimal discountRate;
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the admin order search. {@code nextCursor} is passed back to
+ * get the following page; it is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class OrderSearchResultDTO {
+    private List<OrderSummaryDTO> orders;
+    private String nextCursor;
+}
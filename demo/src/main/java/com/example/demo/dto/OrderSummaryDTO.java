@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Order;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order row of the admin order search: the order's own columns plus its
+ * items, without the user, coupon or product entities.
+ */
+@Data
+public class OrderSummaryDTO {
+    private Long id;
+    private String clientFullName;
+    private String city;
+    private String address;
+    private String phoneNumber;
+    private Order.OrderStatus status;
+    private LocalDateTime createdAt;
+    private BigDecimal discountAmount;
+    private BigDecimal shippingCost;
+    private int itemCount;
+    private BigDecimal total;
+    private List<OrderItemDTO> orderItems;
+}
@@ -10,6 +10,7 @@ public class PackResponseDTO {
     private String description;
     private double price;
     private String imageUrl;
+    private String imageSrcset;
     private List<PackItemResponseDTO> items;
     private List<CommentDTO> comments;
     private List<ProductDTO> recommendedProducts;
@@ -9,4 +9,5 @@ public class PackSummaryDTO {
     private String description;
     private double price;
     private String imageUrl;
+    private String imageSrcset;
 }
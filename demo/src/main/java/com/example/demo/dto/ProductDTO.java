@@ -30,6 +30,8 @@ public class ProductDTO {
     private Integer quantity;
 
     private List<String> images;
+    // srcset of each image, same order (read-only)
+    private List<String> imageSrcsets;
     private List<CommentDTO> comments;
     private String brand;
     private boolean bestseller;
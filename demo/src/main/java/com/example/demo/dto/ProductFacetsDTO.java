@@ -0,0 +1,45 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Facet counts for a catalog filter combination. Each facet is counted with
+ * every filter applied except its own, so the UI can show how many products
+ * each alternative value would give.
+ */
+@Data
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    private long total;
+    private List<FacetCount> categories;
+    private List<FacetCount> brands;
+    private List<FacetCount> types;
+    private long bestsellers;
+    private long newArrivals;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private List<PriceBucket> priceHistogram;
+
+    @Data
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private String label;
+        private long count;
+    }
+
+    /**
+     * Products priced in {@code [from, to)}.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+    }
+}
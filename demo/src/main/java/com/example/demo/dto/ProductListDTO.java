@@ -1,25 +1,54 @@
 package com.example.demo.dto;
 
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Positive;
-import jakarta.validation.constraints.PositiveOrZero;
-import lombok.AllArgsConstructor;
+import com.example.demo.model.Product;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Product card of the catalog listings. Built by a JPQL constructor query
+ * that reads only these columns (no description or variants); the first
+ * image, stock flag and rating are filled in afterwards with one batched
+ * query each.
+ */
 @Data
-@AllArgsConstructor
+@NoArgsConstructor
 public class ProductListDTO {
     private Long id;
-    @NotBlank(message = "Name is required")
     private String name;
-    @NotBlank(message = "Description is required")
-    private String description;
-    @Positive(message = "Price must be positive")
     private BigDecimal price;
-    @PositiveOrZero(message = "Qunatity must be positive or zero")
     private Integer quantity;
-    private String image;
-    private String brand; // Added brand
-}
\ No newline at end of file
+    private String brand;
+    private Long categoryId;
+    private String categoryName;
+    private Product.ProductType type;
+    private boolean bestseller;
+    private boolean newArrival;
+    private Boolean hasVariants;
+    // Only the first image, as a list so cards read it like ProductDTO.images
+    private List<String> images = new ArrayList<>();
+    private List<String> imageSrcsets = new ArrayList<>();
+    private boolean inStock;
+    private Double averageRating;
+    private long reviewCount;
+
+    public ProductListDTO(Long id, String name, BigDecimal price, Integer quantity, String brand, Long categoryId,
+                          String categoryName, Product.ProductType type, boolean bestseller, boolean newArrival,
+                          boolean hasVariants) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
+        this.brand = brand;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.type = type;
+        this.bestseller = bestseller;
+        this.newArrival = newArrival;
+        this.hasVariants = hasVariants;
+        this.inStock = quantity != null && quantity > 0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales totals of one dimension value, either for one day or summed over a
+ * date range ({@code day} is null then).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollupDTO {
+    private LocalDate day;
+    private String dimension;
+    private String key;
+    private long orders;
+    private long units;
+    private BigDecimal revenue;
+    private BigDecimal discount;
+    private BigDecimal shipping;
+}
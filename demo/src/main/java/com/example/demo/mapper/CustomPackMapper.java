@@ -3,6 +3,7 @@ package com.example.demo.mapper;
 import com.example.demo.dto.CustomPackDTO;
 import com.example.demo.model.CustomPack;
 import com.example.demo.model.Product;
+import com.example.demo.service.ResponsiveImages;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
@@ -10,10 +11,11 @@ import org.mapstruct.Named;
 import java.util.List;
 import java.util.stream.Collectors;
 
-@Mapper(componentModel = "spring", uses = {ProductMapper.class})
+@Mapper(componentModel = "spring", uses = {ProductMapper.class}, imports = ResponsiveImages.class)
 public interface CustomPackMapper {
     
     @Mapping(target = "allowedProductIds", source = "allowedProducts", qualifiedByName = "productsToIds")
+    @Mapping(target = "imageSrcset", expression = "java(ResponsiveImages.srcset(customPack.getImageUrl()))")
     CustomPackDTO toDTO(CustomPack customPack);
     
     @Mapping(target = "allowedProducts", ignore = true) // Will be handled in service
@@ -2,11 +2,14 @@ package com.example.demo.mapper;
 
 import com.example.demo.dto.PackResponseDTO;
 import com.example.demo.model.Pack;
+import com.example.demo.service.ResponsiveImages;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
-@Mapper(componentModel = "spring", uses = {PackItemMapper.class, CommentMapper.class, ProductMapper.class, PackSummaryMapper.class, CustomPackMapper.class})
+@Mapper(componentModel = "spring", uses = {PackItemMapper.class, CommentMapper.class, ProductMapper.class, PackSummaryMapper.class, CustomPackMapper.class},
+        imports = ResponsiveImages.class)
 public interface PackMapper {
     @Mapping(target = "comments", source = "comments")
+    @Mapping(target = "imageSrcset", expression = "java(ResponsiveImages.srcset(pack.getImageUrl()))")
     PackResponseDTO toResponseDTO(Pack pack);
 }
\ No newline at end of file
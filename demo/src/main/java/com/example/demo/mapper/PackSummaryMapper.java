@@ -2,9 +2,12 @@ package com.example.demo.mapper;
 
 import com.example.demo.dto.PackSummaryDTO;
 import com.example.demo.model.Pack;
+import com.example.demo.service.ResponsiveImages;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = ResponsiveImages.class)
 public interface PackSummaryMapper {
+    @Mapping(target = "imageSrcset", expression = "java(ResponsiveImages.srcset(pack.getImageUrl()))")
     PackSummaryDTO toSummaryDTO(Pack pack);
 }
@@ -9,6 +9,7 @@ import com.example.demo.model.Product;
 import com.example.demo.model.ProductVariant;
 import com.example.demo.model.VariantOption;
 import com.example.demo.model.VariantType;
+import com.example.demo.service.ResponsiveImages;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
@@ -19,12 +20,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", imports = ResponsiveImages.class)
 public interface ProductMapper {
 
     @Mapping(source = "category.name", target = "categoryName")
     @Mapping(source = "category.id", target = "categoryId")
     @Mapping(source = "packable", target = "isPackable")
+    @Mapping(target = "imageSrcsets", expression = "java(ResponsiveImages.srcsets(product.getImages()))")
     ProductDTO toDTO(Product product);
 
     @Mapping(target = "id", ignore = true)
@@ -36,4 +36,7 @@ public class CartItem {
 
     @Column(name = "variant_name", columnDefinition = "MEDIUMTEXT")
     private String variantName;
+
+    @Column(name = "product_variant_id")
+    private Long productVariantId;
 }
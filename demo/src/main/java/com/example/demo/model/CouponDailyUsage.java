@@ -11,6 +11,9 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(name = "uk_coupon_daily_usage_coupon_date", columnNames = {"coupon_id", "date"})
+})
 public class CouponDailyUsage {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -42,6 +43,13 @@ public class LandingPageView {
     @Builder.Default
     private Integer uniqueVisitors = 1;
 
+    /**
+     * HyperLogLog registers of the day's visitors; uniqueVisitors is its estimate
+     */
+    @JsonIgnore
+    @Column(name = "visitor_sketch", columnDefinition = "BLOB")
+    private byte[] visitorSketch;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
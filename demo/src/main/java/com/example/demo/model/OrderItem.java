@@ -32,6 +32,9 @@ public class OrderItem {
     @Column(name = "variant_name", columnDefinition = "MEDIUMTEXT")
     private String variantName;
 
+    @Column(name = "product_variant_id")
+    private Long productVariantId;
+
     private Integer quantity;
     private BigDecimal price;
 }
\ No newline at end of file
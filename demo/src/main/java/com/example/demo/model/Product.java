@@ -35,6 +35,7 @@ public class Product {
     @ElementCollection
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "images")
+    @OrderColumn(name = "image_order")
     private List<String> images = new ArrayList<>();
 
     private String brand;
@@ -2,11 +2,18 @@ package com.example.demo.repositories;
 
 import com.example.demo.model.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByProductId(Long productId);
     List<Comment> findByPackId(Long packId);
     List<Comment> findByUserId(Long userId);
+
+    // [productId, average score, comment count] of several products
+    @Query("SELECT c.product.id, AVG(c.score), COUNT(c) FROM Comment c WHERE c.product.id IN :productIds GROUP BY c.product.id")
+    List<Object[]> summarizeScoresByProductIds(@Param("productIds") Collection<Long> productIds);
 }
\ No newline at end of file
@@ -4,6 +4,9 @@ import com.example.demo.model.Countdown;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface CountdownRepository extends JpaRepository<Countdown, Long> {
+    Optional<Countdown> findFirstByOrderByIdAsc();
 }
\ No newline at end of file
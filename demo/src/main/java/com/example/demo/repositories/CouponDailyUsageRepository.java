@@ -3,14 +3,23 @@ package com.example.demo.repositories;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponDailyUsage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public interface CouponDailyUsageRepository extends JpaRepository<CouponDailyUsage, Long> {
     Optional<CouponDailyUsage> findByCouponAndDate(Coupon coupon, LocalDate date);
     List<CouponDailyUsage> findByCoupon(Coupon coupon);
+
+    @Query("SELECT u.date as date, SUM(u.usageCount) as count FROM CouponDailyUsage u GROUP BY u.date ORDER BY u.date")
+    List<Map<String, Object>> sumUsageByDay();
+
+    @Query("SELECT u.date as date, u.usageCount as count FROM CouponDailyUsage u WHERE u.coupon.id = :couponId ORDER BY u.date")
+    List<Map<String, Object>> findUsageByDayForCoupon(@Param("couponId") Long couponId);
 }
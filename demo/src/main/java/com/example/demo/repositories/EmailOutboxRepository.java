@@ -0,0 +1,53 @@
+package com.example.demo.repositories;
+
+import com.example.demo.model.EmailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for EmailOutboxMessage entity
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    /**
+     * Ids of messages that are due: pending ones whose backoff has elapsed, and
+     * messages stuck in SENDING whose lease expired (e.g. the node died mid-send)
+     */
+    @Query("SELECT m.id FROM EmailOutboxMessage m " +
+            "WHERE m.status IN (com.example.demo.model.EmailOutboxMessage.Status.PENDING, " +
+            "com.example.demo.model.EmailOutboxMessage.Status.SENDING) " +
+            "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt ASC")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims a due message for sending. Returns 0 when another worker or node got it first.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m " +
+            "SET m.status = com.example.demo.model.EmailOutboxMessage.Status.SENDING, " +
+            "m.attempts = m.attempts + 1, m.nextAttemptAt = :leaseUntil " +
+            "WHERE m.id = :id AND m.nextAttemptAt <= :now " +
+            "AND m.status IN (com.example.demo.model.EmailOutboxMessage.Status.PENDING, " +
+            "com.example.demo.model.EmailOutboxMessage.Status.SENDING)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Deletes messages that were sent before the cutoff. Returns the number of rows removed.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m " +
+            "WHERE m.status = com.example.demo.model.EmailOutboxMessage.Status.SENT " +
+            "AND m.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
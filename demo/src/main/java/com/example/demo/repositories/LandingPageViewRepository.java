@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +34,13 @@ public interface LandingPageViewRepository extends JpaRepository<LandingPageView
     @Query("SELECT COALESCE(SUM(v.viewCount), 0) FROM LandingPageView v WHERE v.landingPage.id = :landingPageId")
     Long getTotalViewsByLandingPageId(@Param("landingPageId") Long landingPageId);
 
+    /**
+     * Get total views of several landing pages in one query, as
+     * {@code [landingPageId, totalViews]} rows. Pages without views have no row.
+     */
+    @Query("SELECT v.landingPage.id, SUM(v.viewCount) FROM LandingPageView v WHERE v.landingPage.id IN :landingPageIds GROUP BY v.landingPage.id")
+    List<Object[]> getTotalViewsByLandingPageIds(@Param("landingPageIds") Collection<Long> landingPageIds);
+
     /**
      * Get total unique visitors for a landing page
      */
@@ -49,6 +57,16 @@ public interface LandingPageViewRepository extends JpaRepository<LandingPageView
             @Param("endDate") LocalDate endDate
     );
 
+    /**
+     * Get the stored visitor sketches of a landing page within a date range
+     */
+    @Query("SELECT v.visitorSketch FROM LandingPageView v WHERE v.landingPage.id = :landingPageId AND v.viewDate BETWEEN :startDate AND :endDate AND v.visitorSketch IS NOT NULL")
+    List<byte[]> findVisitorSketches(
+            @Param("landingPageId") Long landingPageId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
     /**
      * Delete all views for a landing page
      */
@@ -4,13 +4,14 @@ package com.example.demo.repositories;
 import com.example.demo.model.Order;
 import com.example.demo.model.User;
 import com.example.demo.model.Coupon;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param; // Import Param
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -22,6 +23,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Optional<Order> findByIdAndDeletedFalse(Long orderId);
 
+    // Locks the order row until the transaction ends (SELECT ... FOR UPDATE), so concurrent
+    // status changes, deletes and restores see each other's result
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") Long orderId);
+
     // Fetch order with items (fixes lazy loading issue)
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id = :orderId AND o.deleted = false")
     Optional<Order> findByIdWithItems(@Param("orderId") Long orderId);
@@ -37,25 +44,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // This will allow finding orders based on their 'deleted' status.
     List<Order> findByDeleted(boolean deleted);
 
-    @Query("SELECT FUNCTION('DATE', o.createdAt) as date, COUNT(o) as count FROM Order o WHERE o.coupon IS NOT NULL GROUP BY FUNCTION('DATE', o.createdAt)")
-    List<Map<String, Object>> countByCouponUsageByDay();
-
     // --- NEW METHOD START ---
-    @Query("SELECT FUNCTION('DATE', o.createdAt) as date, COUNT(o) as count FROM Order o WHERE o.coupon.id = :couponId GROUP BY FUNCTION('DATE', o.createdAt)")
-    List<Map<String, Object>> countByCouponUsageByDayForCoupon(@Param("couponId") Long couponId);
-
     long countByUser_Id(Long userId);
 
     long countByUser_IdAndStatus(Long userId, com.example.demo.model.Order.OrderStatus status); // Add this
     // --- NEW METHOD END ---
 
-    // Custom query for export with eager loading of relationships
-    @Query("SELECT DISTINCT o FROM Order o " +
-            "LEFT JOIN FETCH o.user " +
-            "LEFT JOIN FETCH o.coupon " +
-            "LEFT JOIN FETCH o.items i " +
-            "LEFT JOIN FETCH i.product " +
-            "WHERE o.deleted = false " +
-            "ORDER BY o.createdAt DESC")
-    List<Order> findAllForExportWithRelations();
 }
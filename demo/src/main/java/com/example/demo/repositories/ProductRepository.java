@@ -1,5 +1,6 @@
 package com.example.demo.repositories;
 
+import com.example.demo.dto.ProductListDTO;
 import com.example.demo.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -7,11 +8,16 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
+    // Columns of a product card (ProductListDTO), without description or collections
+    String CARD_SELECT = "SELECT new com.example.demo.dto.ProductListDTO(p.id, p.name, p.price, p.quantity, " +
+            "p.brand, c.id, c.name, p.type, p.bestseller, p.newArrival, p.hasVariants) FROM Product p JOIN p.category c ";
+
     // Regular queries (exclude deleted products)
     Page<Product> findByCategoryIdAndDeletedFalse(Long categoryId, Pageable pageable);
 
@@ -46,4 +52,25 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     Page<Product> findByDeletedStatus(@Param("deleted") boolean deleted, Pageable pageable);
 
     long countByCategory_Id(Long categoryId);
-}
\ No newline at end of file
+
+    // Loads every product of a checkout in one round trip (category + images fetched)
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Product> findAllByIdWithCategoryAndImages(@Param("ids") Collection<Long> ids);
+
+    @Query(CARD_SELECT + "WHERE p.id IN :ids")
+    List<ProductListDTO> findCardsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(CARD_SELECT + "WHERE p.bestseller = true AND p.deleted = false")
+    List<ProductListDTO> findBestsellerCards(Pageable pageable);
+
+    @Query(CARD_SELECT + "WHERE p.newArrival = true AND p.deleted = false")
+    List<ProductListDTO> findNewArrivalCards(Pageable pageable);
+
+    // [productId, first imageUrl] of several products, at most one row per product
+    @Query("SELECT p.id, i FROM Product p JOIN p.images i WHERE p.id IN :ids AND INDEX(i) = 0")
+    List<Object[]> findFirstImagesByProductIds(@Param("ids") Collection<Long> ids);
+
+    // [productId, total variant stock] of the products that have variants
+    @Query("SELECT v.product.id, SUM(v.stock) FROM ProductVariant v WHERE v.product.id IN :ids GROUP BY v.product.id")
+    List<Object[]> sumVariantStockByProductIds(@Param("ids") Collection<Long> ids);
+}
@@ -11,6 +11,14 @@ import org.springframework.stereotype.Service;
 public class AnnouncementService {
 
     private final AnnouncementRepository announcementRepository;
+    private final StorefrontConfigCache storefrontConfigCache;
+
+    /**
+     * Cached, pre-serialized announcement for the public endpoint.
+     */
+    public StorefrontConfigCache.Snapshot getAnnouncementSnapshot() {
+        return storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT, this::getAnnouncement);
+    }
 
     public AnnouncementDTO getAnnouncement() {
         // Find by ID, or create a new default instance if not found.
@@ -42,6 +50,7 @@ public class AnnouncementService {
         announcement.setFontWeight(dto.getFontWeight()); // Update font weight
         announcement.setShowOnlineCounter(dto.isShowOnlineCounter()); // Update online counter
         Announcement savedAnnouncement = announcementRepository.save(announcement);
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.ANNOUNCEMENT);
         return toDto(savedAnnouncement);
     }
 
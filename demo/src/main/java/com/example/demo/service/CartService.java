@@ -121,15 +121,12 @@ public class CartService {
             }
 
             final String fVariantName = targetVariantName;
+            final Long fVariantId = variant != null ? variant.getId() : null;
 
-            // Now find existing item with exact same Product ID AND Variant Name
+            // Now find existing item with exact same Product ID AND Variant ID
             existingCartItem = cart.getItems().stream()
                     .filter(item -> item.getProduct() != null && item.getProduct().getId().equals(productId))
-                    .filter(item -> {
-                        if (fVariantName == null)
-                            return item.getVariantName() == null;
-                        return fVariantName.equals(item.getVariantName());
-                    })
+                    .filter(item -> java.util.Objects.equals(fVariantId, item.getProductVariantId()))
                     .findFirst();
 
             if (existingCartItem.isPresent()) {
@@ -147,6 +144,7 @@ public class CartService {
                 cartItem.setProductName(product.getName());
                 cartItem.setImageUrl(targetImage);
                 cartItem.setVariantName(fVariantName);
+                cartItem.setProductVariantId(fVariantId);
                 cart.getItems().add(cartItem);
             }
         } else if (itemDTO != null) {
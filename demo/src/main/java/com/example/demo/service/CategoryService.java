@@ -5,6 +5,7 @@ import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.model.Category;
 import com.example.demo.repositories.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -18,6 +19,7 @@ public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final com.example.demo.repositories.ProductRepository productRepository; // Injected ProductRepository
     private final LocalFileService localFileService; // Injected LocalFileService
+    private final ApplicationEventPublisher eventPublisher;
 
     public CategoryDTO createCategory(CategoryDTO categoryDTO, MultipartFile image) throws IOException {
         Category category = new Category();
@@ -30,6 +32,7 @@ public class CategoryService {
         }
 
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new StorefrontConfigChangedEvent("CATEGORIES"));
         return toDto(savedCategory);
     }
 
@@ -49,19 +52,22 @@ public class CategoryService {
         existingCategory.setName(categoryDTO.getName());
         existingCategory.setDescription(categoryDTO.getDescription());
 
+        String replacedImageUrl = null;
         if (image != null && !image.isEmpty()) {
             String imageUrl = localFileService.saveImage(image, "categories"); // Use LocalFileService
+            replacedImageUrl = existingCategory.getImageUrl();
             existingCategory.setImageUrl(imageUrl);
         }
 
         Category updatedCategory = categoryRepository.save(existingCategory);
+        localFileService.deleteImageAfterCommit(replacedImageUrl);
+        eventPublisher.publishEvent(new StorefrontConfigChangedEvent("CATEGORIES"));
         return toDto(updatedCategory);
     }
 
     public void deleteCategory(Long id) {
-        if (!categoryRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Category not found with ID: " + id);
-        }
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with ID: " + id));
 
         // Check for associated products
         long productCount = productRepository.countByCategory_Id(id);
@@ -71,9 +77,12 @@ public class CategoryService {
         }
 
         categoryRepository.deleteById(id);
+        localFileService.deleteImageAfterCommit(category.getImageUrl());
+        eventPublisher.publishEvent(new StorefrontConfigChangedEvent("CATEGORIES"));
     }
 
     private CategoryDTO toDto(Category category) {
-        return new CategoryDTO(category.getId(), category.getName(), category.getDescription(), category.getImageUrl());
+        return new CategoryDTO(category.getId(), category.getName(), category.getDescription(), category.getImageUrl(),
+                ResponsiveImages.srcset(category.getImageUrl()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartItemDTO;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductVariant;
+import com.example.demo.repositories.ProductRepository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Products referenced by a single checkout, loaded once up front.
+ * Pricing, coupon checks and order-item creation all read from this snapshot
+ * instead of calling {@code productRepository.findById} per cart line.
+ */
+final class CheckoutContext {
+
+    private final Map<Long, Product> products;
+
+    private CheckoutContext(Map<Long, Product> products) {
+        this.products = products;
+    }
+
+    static CheckoutContext forCartItems(Collection<CartItemDTO> items, ProductRepository productRepository) {
+        Set<Long> ids = items.stream()
+                .map(CartItemDTO::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return forProductIds(ids, productRepository);
+    }
+
+    static CheckoutContext forProductIds(Collection<Long> productIds, ProductRepository productRepository) {
+        if (productIds.isEmpty()) {
+            return new CheckoutContext(Collections.emptyMap());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIdWithCategoryAndImages(productIds)) {
+            products.put(product.getId(), product);
+        }
+        return new CheckoutContext(products);
+    }
+
+    Optional<Product> findProduct(Long productId) {
+        return Optional.ofNullable(products.get(productId));
+    }
+
+    Product getProduct(Long productId) {
+        return findProduct(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+    }
+
+    /**
+     * Resolves the variant a line refers to by its id. Lines without a variant id,
+     * or with the id of another product's variant, are plain product lines.
+     */
+    Optional<ProductVariant> findVariant(Product product, Long variantId) {
+        if (variantId == null || product.getVariants() == null) {
+            return Optional.empty();
+        }
+        return product.getVariants().stream()
+                .filter(variant -> variantId.equals(variant.getId()))
+                .findFirst();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploaded images by content: the SHA-256 of the bytes names the file,
+ * so the same photo uploaded for several products, packs or landing pages is
+ * stored, resized and cached by browsers once. Files live under
+ * {@code uploads/images/cas/<2 hex>/<2 hex>/} to keep directories small, and
+ * are served as {@code /api/images/cas/<hash>.<ext>}; the URL changes whenever
+ * the content does, so it can be cached for a year.
+ *
+ * The {@code image_blob} table counts the uploads pointing at each file. A
+ * file is deleted once every upload that stored it has been released. Both
+ * sides hold the blob's row lock while they touch the file (the upsert locks
+ * it on store, {@code SELECT ... FOR UPDATE} on release), so an upload on any
+ * node can't reuse a file that a release is deleting. Both run in their own
+ * transaction, so the row lock is held only while the file is touched, and a
+ * released file is only deleted once its row's removal has really committed,
+ * even when called from inside a caller's transaction.
+ */
+@Service
+public class ContentAddressedStore {
+    private final Logger logger = LoggerFactory.getLogger(ContentAddressedStore.class);
+
+    /**
+     * The "type" segment of content-addressed image URLs.
+     */
+    public static final String TYPE = "cas";
+
+    private static final Pattern BLOB_NAME = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]{1,5}$");
+    private static final Pattern EXTENSION = Pattern.compile("^[a-z0-9]{1,5}$");
+
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO image_blob (blob_name, size, ref_count) VALUES (?, ?, 1) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1";
+    private static final String LOCK_SQL = "SELECT ref_count FROM image_blob WHERE blob_name = ? FOR UPDATE";
+    private static final String RELEASE_SQL = "UPDATE image_blob SET ref_count = ref_count - 1 WHERE blob_name = ?";
+    private static final String DELETE_SQL = "DELETE FROM image_blob WHERE blob_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    public ContentAddressedStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stores the bytes (unless an identical file is already stored) and adds
+     * a reference to them.
+     *
+     * @param extension file extension of the upload, used for the content type
+     * @return the blob name, {@code <sha-256>.<ext>}
+     */
+    public String store(InputStream content, String extension) throws IOException {
+        Path root = root();
+        Files.createDirectories(root);
+        Path temp = root.resolve(UUID.randomUUID() + ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(content, digest)) {
+                Files.copy(in, temp);
+            }
+            String name = HexFormat.of().formatHex(digest.digest()) + "." + normalizeExtension(extension);
+            Path target = pathOf(name);
+            long size = Files.size(temp);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Locks the row until commit: a release of this blob waits for the file to be in place
+                    jdbcTemplate.update(ACQUIRE_SQL, name, size);
+                    if (!Files.exists(target)) {
+                        move(temp, target);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Removes one reference to a blob, deleting the file with the last one.
+     *
+     * The file is moved aside while the row is locked and deleted once the
+     * row's removal has committed; if the transaction fails it is put back.
+     *
+     * @return true if this was the last reference and the blob is gone
+     */
+    public boolean release(String name) {
+        Path path = pathOf(name);
+        if (path == null) {
+            return false;
+        }
+        Path[] movedAside = new Path[1];
+        Boolean released;
+        try {
+            released = transactionTemplate.execute(status -> {
+                List<Integer> refCount = jdbcTemplate.queryForList(LOCK_SQL, Integer.class, name);
+                if (refCount.isEmpty()) {
+                    return false;
+                }
+                if (refCount.get(0) > 1) {
+                    jdbcTemplate.update(RELEASE_SQL, name);
+                    return false;
+                }
+                jdbcTemplate.update(DELETE_SQL, name);
+                if (Files.exists(path)) {
+                    Path aside = path.resolveSibling(name + "." + UUID.randomUUID() + ".tmp");
+                    move(path, aside);
+                    movedAside[0] = aside;
+                }
+                return true;
+            });
+        } catch (RuntimeException e) {
+            if (movedAside[0] != null) {
+                restore(movedAside[0], path);
+            }
+            throw e;
+        }
+        if (movedAside[0] != null) {
+            try {
+                Files.deleteIfExists(movedAside[0]);
+            } catch (IOException e) {
+                logger.warn("Failed to delete unreferenced image {}: {}", name, e.getMessage());
+            }
+        }
+        return Boolean.TRUE.equals(released);
+    }
+
+    /**
+     * Where a blob is stored, or null if the name isn't a blob name (which
+     * also rules out path traversal).
+     */
+    public Path pathOf(String name) {
+        if (name == null || !BLOB_NAME.matcher(name).matches()) {
+            return null;
+        }
+        return root().resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private Path root() {
+        return Paths.get(uploadDir, "images", TYPE).toAbsolutePath();
+    }
+
+    /**
+     * Lowercase, with "jpeg" stored as "jpg" so the same photo under both
+     * names is stored once; "bin" when the upload has no usable extension.
+     */
+    static String normalizeExtension(String extension) {
+        String normalized = extension == null ? "" : extension.toLowerCase(Locale.ROOT);
+        if ("jpeg".equals(normalized)) {
+            return "jpg";
+        }
+        return EXTENSION.matcher(normalized).matches() ? normalized : "bin";
+    }
+
+    private static void move(Path source, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void restore(Path aside, Path path) {
+        try {
+            if (!Files.exists(path)) {
+                Files.move(aside, path);
+            } else {
+                // Stored again meanwhile: same bytes, same name
+                Files.delete(aside);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to restore image {} after a failed release", path.getFileName(), e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -7,7 +7,6 @@ import com.example.demo.repositories.CountdownRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -19,19 +18,23 @@ public class CountdownService {
     @Autowired
     private CountdownMapper countdownMapper;
 
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
+
     public CountdownDTO getCountdown() {
-        Optional<Countdown> countdown = countdownRepository.findAll().stream().findFirst();
+        Optional<Countdown> countdown = countdownRepository.findFirstByOrderByIdAsc();
         return countdown.map(countdownMapper::toDto).orElse(null);
     }
 
+    /**
+     * Cached, pre-serialized countdown for the public endpoint.
+     */
+    public StorefrontConfigCache.Snapshot getCountdownSnapshot() {
+        return storefrontConfigCache.get(StorefrontConfigCache.Section.COUNTDOWN, this::getCountdown);
+    }
+
     public CountdownDTO saveCountdown(CountdownDTO countdownDTO) {
-        List<Countdown> countdowns = countdownRepository.findAll();
-        Countdown countdown;
-        if (countdowns.isEmpty()) {
-            countdown = new Countdown();
-        } else {
-            countdown = countdowns.get(0);
-        }
+        Countdown countdown = countdownRepository.findFirstByOrderByIdAsc().orElseGet(Countdown::new);
         // Basic Settings
         countdown.setTitle(countdownDTO.getTitle());
         countdown.setEndDate(countdownDTO.getEndDate());
@@ -75,6 +78,7 @@ public class CountdownService {
         countdown.setUseDefaultDesign(countdownDTO.isUseDefaultDesign());
         
         Countdown savedCountdown = countdownRepository.save(countdown);
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.COUNTDOWN);
         return countdownMapper.toDto(savedCountdown);
     }
 }
\ No newline at end of file
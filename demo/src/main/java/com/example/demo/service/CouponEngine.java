@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CouponDTO;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.mapper.CouponMapper;
+import com.example.demo.repositories.CouponRepository;
+import com.example.demo.repositories.OrderRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single place where coupons are validated and discounts computed.
+ *
+ * Coupons are compiled into {@link CouponRule}s and cached by code, so the
+ * cart page's validate calls and checkouts don't hit the database on a warm
+ * cache. Unknown codes are cached briefly as well. Entries are dropped when a
+ * coupon is created, updated, deleted or a limited coupon is redeemed, and
+ * expire after {@code coupon.cache.ttl-seconds} in any case.
+ */
+@Service
+@RequiredArgsConstructor
+public class CouponEngine {
+
+    private final CouponRepository couponRepository;
+    private final CouponMapper couponMapper;
+    private final OrderRepository orderRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${coupon.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${coupon.cache.negative-ttl-seconds:5}")
+    private long negativeTtlSeconds;
+
+    @Value("${coupon.cache.max-size:10000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent misses on the same code wait for a single query
+    private final ConcurrentHashMap<String, CompletableFuture<CacheEntry>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * @throws ResourceNotFoundException if no coupon has this code
+     */
+    public CouponRule getRule(String code) {
+        return lookup(code).getRule();
+    }
+
+    /**
+     * Checks expiry and usage limit and returns the coupon as shown to the
+     * storefront.
+     */
+    public CouponDTO validate(String code) {
+        CacheEntry entry = lookup(code);
+        entry.getRule().checkRedeemable(LocalDateTime.now());
+        return entry.getCoupon();
+    }
+
+    /**
+     * Validates the coupon against a cart and computes its discount.
+     *
+     * @param userId customer placing the order, for first-time-only coupons
+     */
+    public CouponRule.Evaluation evaluate(String code, List<CouponRule.Line> lines, BigDecimal subtotal,
+            Long userId) {
+        CouponRule rule = getRule(code);
+        rule.checkRedeemable(LocalDateTime.now());
+        rule.checkMinimumPurchase(subtotal);
+        if (rule.isFirstTimeOnly() && orderRepository.existsByUser_Id(userId)) {
+            throw new IllegalStateException("This coupon is for first-time customers only.");
+        }
+        return rule.apply(lines, subtotal);
+    }
+
+    /**
+     * Drops the cached rule for a code. Inside a transaction the entry is dropped
+     * again after commit, so a concurrent lookup can't re-cache the old row.
+     */
+    public void invalidate(String code) {
+        if (code == null) {
+            return;
+        }
+        String key = key(code);
+        cache.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.remove(key);
+                }
+            });
+        }
+    }
+
+    private CacheEntry lookup(String code) {
+        String key = key(code);
+        long now = System.nanoTime();
+        CacheEntry entry = cache.get(key);
+        if (entry == null || entry.isExpired(now)) {
+            if (cache.size() >= maxSize) {
+                cache.values().removeIf(cached -> cached.isExpired(now));
+                if (cache.size() >= maxSize) {
+                    cache.clear();
+                }
+            }
+            entry = loadOnce(key);
+        }
+        if (entry.getRule() == null) {
+            throw new ResourceNotFoundException("Coupon not found: " + code);
+        }
+        return entry;
+    }
+
+    /**
+     * Loads and caches a code, or waits for the load already in progress. The
+     * query runs outside the map's locks, so it never blocks other codes.
+     */
+    private CacheEntry loadOnce(String key) {
+        CompletableFuture<CacheEntry> future = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> inProgress = loading.putIfAbsent(key, future);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            CacheEntry entry = load(key);
+            cache.put(key, entry);
+            // Removed before completing, so a lookup that misses after this point starts a fresh load
+            loading.remove(key, future);
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @param key normalized code, the same as the cache key
+     */
+    private CacheEntry load(String key) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(status -> couponRepository.findByCode(key)
+                .map(coupon -> new CacheEntry(CouponRule.compile(coupon), couponMapper.toDTO(coupon),
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds)))
+                .orElseGet(() -> new CacheEntry(null, null,
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(negativeTtlSeconds))));
+    }
+
+    private static String key(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final CouponRule rule;
+        private final CouponDTO coupon;
+        private final long expiresAt;
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
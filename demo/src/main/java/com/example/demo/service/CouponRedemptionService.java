@@ -0,0 +1,244 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records coupon redemptions without serializing checkouts on the coupon row.
+ *
+ * Limited coupons are incremented with a single guarded UPDATE
+ * ({@code times_used < usage_limit}), so a popular code can never be redeemed
+ * past its limit. Unlimited coupons have nothing to guard: their redemptions
+ * are counted in striped in-memory counters and flushed periodically into
+ * {@code coupons.times_used} in one batch.
+ *
+ * Redemptions of every coupon are also counted per day and flushed into
+ * {@code coupon_daily_usage}, which coupon usage statistics are read from. A
+ * nightly job, run by one node (see {@link ScheduledJobLock}), reconciles the
+ * last {@code coupon.usage.reconcile-days} closed days against the orders
+ * table, so counts lost if a node stopped before flushing are repaired. Counts
+ * carry the {@link RollupFence} epoch of their order transaction: daily counts
+ * a reconciliation already includes are dropped when flushed, on whichever
+ * node buffered them, and only their {@code times_used} increments are written.
+ */
+@Service
+@RequiredArgsConstructor
+public class CouponRedemptionService {
+    private final Logger logger = LoggerFactory.getLogger(CouponRedemptionService.class);
+
+    private static final String FENCE = "coupon_usage";
+    private static final String RECONCILE_JOB = "coupon-usage-reconcile";
+
+    private static final String GUARDED_INCREMENT_SQL =
+            "UPDATE coupons SET times_used = COALESCE(times_used, 0) + 1 " +
+            "WHERE id = ? AND COALESCE(times_used, 0) < usage_limit";
+    private static final String ADD_TIMES_USED_SQL =
+            "UPDATE coupons SET times_used = COALESCE(times_used, 0) + ? WHERE id = ?";
+    private static final String UPSERT_DAILY_USAGE_SQL =
+            "INSERT INTO coupon_daily_usage (coupon_id, date, usage_count) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE usage_count = usage_count + VALUES(usage_count)";
+    private static final String DELETE_DAILY_USAGE_SQL =
+            "DELETE FROM coupon_daily_usage WHERE date BETWEEN ? AND ?";
+    // orders.coupon_id references coupons, so every counted coupon still exists
+    private static final String REBUILD_DAILY_USAGE_SQL =
+            "INSERT INTO coupon_daily_usage (coupon_id, date, usage_count) " +
+            "SELECT coupon_id, DATE(created_at), COUNT(*) FROM orders " +
+            "WHERE coupon_id IS NOT NULL AND created_at >= ? AND created_at < ? " +
+            "GROUP BY coupon_id, DATE(created_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CouponEngine couponEngine;
+    private final RollupFence rollupFence;
+    private final ScheduledJobLock scheduledJobLock;
+
+    @Value("${coupon.usage.reconcile-days:2}")
+    private int reconcileDays;
+
+    private final ConcurrentHashMap<DailyKey, StripedCounter> pendingRedemptions = new ConcurrentHashMap<>();
+    // So the shutdown flush doesn't run alongside a scheduled one
+    private final Object flushLock = new Object();
+
+    /**
+     * Counts one redemption of the coupon for the current order.
+     *
+     * @throws IllegalStateException if a limited coupon has no redemptions left
+     */
+    public void redeem(CouponRule coupon) {
+        if (coupon.isLimited()) {
+            // Joins the order transaction: rolled back with the order if checkout fails later
+            if (jdbcTemplate.update(GUARDED_INCREMENT_SQL, coupon.getCouponId()) == 0) {
+                throw new IllegalStateException("Coupon has reached its usage limit.");
+            }
+            // The cached rule's times_used is now stale; reload it so validation sees the new count
+            couponEngine.invalidate(coupon.getCode());
+        }
+
+        // times_used of limited coupons is already written; they only need the daily count
+        DailyKey key = new DailyKey(coupon.getCouponId(), LocalDate.now(), coupon.isLimited(),
+                rollupFence.currentEpoch(FENCE));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only count orders that actually commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(key, 1);
+                }
+            });
+        } else {
+            increment(key, 1);
+        }
+    }
+
+    /**
+     * Drops buffered redemptions of a coupon that is being deleted, so the
+     * next flush does not try to write rows for it.
+     */
+    public void discardPending(Long couponId) {
+        pendingRedemptions.keySet().removeIf(key -> key.getCouponId().equals(couponId));
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.usage.flush-interval-ms:10000}")
+    public void flush() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        Map<DailyKey, Long> drained = drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        // times_used isn't rebuilt, so it gets every redemption of unlimited coupons
+        List<Object[]> timesUsedArgs = timesUsedArgs(drained);
+        LocalDate firstDay = drained.keySet().stream().map(DailyKey::getDate).min(LocalDate::compareTo).get();
+        LocalDate lastDay = drained.keySet().stream().map(DailyKey::getDate).max(LocalDate::compareTo).get();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!timesUsedArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate(ADD_TIMES_USED_SQL, timesUsedArgs);
+                }
+                Map<LocalDate, Long> rebuilt = rollupFence.rebuildEpochs(FENCE, firstDay, lastDay);
+                Map<DailyKey, Long> dailyCounts = new HashMap<>();
+                drained.forEach((key, count) -> {
+                    Long rebuiltAt = rebuilt.get(key.getDate());
+                    if (rebuiltAt == null || key.getEpoch() >= rebuiltAt) {
+                        // A coupon's limit may have changed during the day; both keys go to the same row
+                        dailyCounts.merge(new DailyKey(key.getCouponId(), key.getDate(), false, 0), count,
+                                Long::sum);
+                    }
+                });
+                if (dailyCounts.isEmpty()) {
+                    return;
+                }
+                List<Object[]> dailyArgs = new ArrayList<>(dailyCounts.size());
+                dailyCounts.forEach((key, count) -> dailyArgs.add(
+                        new Object[] { key.getCouponId(), Date.valueOf(key.getDate()), count }));
+                jdbcTemplate.batchUpdate(UPSERT_DAILY_USAGE_SQL, dailyArgs);
+            });
+        } catch (DataAccessException e) {
+            // Put the counts back so they are retried on the next flush
+            logger.error("Failed to flush {} buffered coupon redemptions, will retry", drained.size(), e);
+            drained.forEach(this::increment);
+        }
+        // Counters of past days are empty once flushed; drop them so the map doesn't grow
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        pendingRedemptions.entrySet().removeIf(entry -> entry.getKey().getDate().isBefore(yesterday)
+                && entry.getValue().isEmpty());
+    }
+
+    /**
+     * Recomputes {@code coupon_daily_usage} for a date range from the orders
+     * placed with each coupon. Daily counts of orders committed before it,
+     * still buffered on any node, are dropped when flushed rather than added
+     * on top.
+     */
+    public void reconcileDailyUsage(LocalDate from, LocalDate to) {
+        rollupFence.rebuild(FENCE, from, to, () -> {
+            jdbcTemplate.update(DELETE_DAILY_USAGE_SQL, Date.valueOf(from), Date.valueOf(to));
+            jdbcTemplate.update(REBUILD_DAILY_USAGE_SQL, Timestamp.valueOf(from.atStartOfDay()),
+                    Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        });
+        logger.info("Reconciled coupon daily usage from {} to {}", from, to);
+    }
+
+    @Scheduled(cron = "${coupon.usage.reconcile-cron:0 45 3 * * *}")
+    public void reconcileRecentDays() {
+        if (!scheduledJobLock.tryLock(RECONCILE_JOB)) {
+            logger.debug("Coupon usage reconciliation already run by another node");
+            return;
+        }
+        // Closed days only: today's redemptions are still coming in
+        LocalDate today = LocalDate.now();
+        reconcileDailyUsage(today.minusDays(reconcileDays), today.minusDays(1));
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private Map<DailyKey, Long> drain() {
+        Map<DailyKey, Long> drained = new HashMap<>();
+        pendingRedemptions.forEach((key, counter) -> {
+            long count = counter.drain();
+            if (count > 0) {
+                drained.put(key, count);
+            }
+        });
+        return drained;
+    }
+
+    /**
+     * Batch arguments adding the redemptions of unlimited coupons to
+     * {@code times_used}; limited coupons were incremented when redeemed.
+     */
+    private static List<Object[]> timesUsedArgs(Map<DailyKey, Long> drained) {
+        Map<Long, Long> totalsByCoupon = new HashMap<>();
+        drained.forEach((key, count) -> {
+            if (!key.isLimited()) {
+                totalsByCoupon.merge(key.getCouponId(), count, Long::sum);
+            }
+        });
+        List<Object[]> args = new ArrayList<>(totalsByCoupon.size());
+        totalsByCoupon.forEach((couponId, count) -> args.add(new Object[] { count, couponId }));
+        return args;
+    }
+
+    private void increment(DailyKey key, long count) {
+        pendingRedemptions.computeIfAbsent(key, k -> new StripedCounter()).add(count);
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static final class DailyKey {
+        private final Long couponId;
+        private final LocalDate date;
+        private final boolean limited;
+        // RollupFence epoch of the order transaction that redeemed the coupon
+        private final long epoch;
+    }
+}
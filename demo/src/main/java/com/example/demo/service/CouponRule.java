@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Category;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, pre-compiled form of a {@link Coupon}: everything needed to
+ * validate it and compute its discount without touching the entity or its
+ * lazy product/category collections. Applicable product and category ids are
+ * kept as sorted primitive arrays and checked with a binary search.
+ */
+@Getter
+public final class CouponRule {
+
+    private final Long couponId;
+    private final String code;
+    private final Coupon.DiscountType discountType;
+    private final BigDecimal discountValue;
+    private final LocalDateTime expiryDate;
+    private final BigDecimal minPurchaseAmount;
+    private final Integer usageLimit;
+    private final int timesUsed;
+    private final boolean firstTimeOnly;
+    private final long[] productIds;
+    private final long[] categoryIds;
+
+    private CouponRule(Coupon coupon, long[] productIds, long[] categoryIds) {
+        this.couponId = coupon.getId();
+        this.code = coupon.getCode();
+        this.discountType = coupon.getDiscountType();
+        this.discountValue = coupon.getDiscountValue();
+        this.expiryDate = coupon.getExpiryDate();
+        this.minPurchaseAmount = coupon.getMinPurchaseAmount();
+        this.usageLimit = coupon.getUsageLimit();
+        this.timesUsed = coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0;
+        this.firstTimeOnly = coupon.isFirstTimeOnly();
+        this.productIds = productIds;
+        this.categoryIds = categoryIds;
+    }
+
+    /**
+     * Compiles a coupon. Must run while its applicable products/categories can
+     * still be lazily loaded.
+     */
+    public static CouponRule compile(Coupon coupon) {
+        long[] productIds = coupon.getApplicableProducts() == null ? new long[0]
+                : sortedIds(coupon.getApplicableProducts().stream().map(Product::getId).toList());
+        long[] categoryIds = coupon.getApplicableCategories() == null ? new long[0]
+                : sortedIds(coupon.getApplicableCategories().stream().map(Category::getId).toList());
+        return new CouponRule(coupon, productIds, categoryIds);
+    }
+
+    public boolean isLimited() {
+        return usageLimit != null && usageLimit > 0;
+    }
+
+    public boolean isRestricted() {
+        return productIds.length > 0 || categoryIds.length > 0;
+    }
+
+    public boolean appliesTo(Long productId, Long categoryId) {
+        if (!isRestricted()) {
+            return true;
+        }
+        return (productId != null && Arrays.binarySearch(productIds, productId) >= 0)
+                || (categoryId != null && Arrays.binarySearch(categoryIds, categoryId) >= 0);
+    }
+
+    /**
+     * Checks that don't depend on the cart: expiry and usage limit.
+     */
+    public void checkRedeemable(LocalDateTime now) {
+        if (expiryDate.isBefore(now)) {
+            throw new IllegalStateException("Coupon has expired.");
+        }
+        if (isLimited() && timesUsed >= usageLimit) {
+            throw new IllegalStateException("Coupon has reached its usage limit.");
+        }
+    }
+
+    public void checkMinimumPurchase(BigDecimal subtotal) {
+        if (minPurchaseAmount != null && subtotal.compareTo(minPurchaseAmount) < 0) {
+            throw new IllegalStateException("Order total does not meet the minimum purchase amount for this coupon.");
+        }
+    }
+
+    /**
+     * Checks the coupon applies to the cart and computes its discount.
+     * Redeemability, minimum purchase and the first-time-customer check are
+     * done beforehand by {@link CouponEngine}.
+     */
+    public Evaluation apply(List<Line> lines, BigDecimal subtotal) {
+        // Lines without a catalog product (direct/virtual items) never match a restricted coupon
+        if (isRestricted() && lines.stream().noneMatch(this::matches)) {
+            throw new IllegalStateException("This coupon is not valid for the items in your cart.");
+        }
+
+        BigDecimal discountAmount = BigDecimal.ZERO;
+        if (discountType == Coupon.DiscountType.FIXED_AMOUNT) {
+            discountAmount = discountValue;
+        } else if (discountType == Coupon.DiscountType.PERCENTAGE) {
+            // Apply percentage discount only on applicable items
+            BigDecimal applicableSubtotal = isRestricted()
+                    ? lines.stream().filter(this::matches).map(Line::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add)
+                    : subtotal;
+            discountAmount = applicableSubtotal.multiply(discountValue.divide(new BigDecimal("100")));
+        }
+        return new Evaluation(this, discountAmount, discountType == Coupon.DiscountType.FREE_SHIPPING);
+    }
+
+    private boolean matches(Line line) {
+        return line.getProductId() != null && appliesTo(line.getProductId(), line.getCategoryId());
+    }
+
+    private static long[] sortedIds(Collection<Long> ids) {
+        return ids.stream().filter(Objects::nonNull).mapToLong(Long::longValue).sorted().distinct().toArray();
+    }
+
+    /**
+     * One cart line as seen by the coupon engine.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Line {
+        private final Long productId;
+        private final Long categoryId;
+        private final BigDecimal total;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Evaluation {
+        private final CouponRule rule;
+        private final BigDecimal discountAmount;
+        private final boolean freeShipping;
+    }
+}
@@ -6,13 +6,14 @@ import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.mapper.CouponMapper;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.Order; // Import Order class
+import com.example.demo.repositories.CouponDailyUsageRepository;
 import com.example.demo.repositories.CouponRepository;
 import com.example.demo.repositories.OrderRepository; // Import OrderRepository
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -24,6 +25,9 @@ public class CouponService {
     private final CouponRepository couponRepository;
     private final CouponMapper couponMapper;
     private final OrderRepository orderRepository; // Inject OrderRepository
+    private final CouponRedemptionService couponRedemptionService;
+    private final CouponEngine couponEngine;
+    private final CouponDailyUsageRepository couponDailyUsageRepository;
 
     @Transactional
     public CouponDTO createCoupon(CouponDTO couponDTO) {
@@ -43,6 +47,8 @@ public class CouponService {
         }
 
         Coupon savedCoupon = couponRepository.save(coupon);
+        // The code may have been cached as unknown
+        couponEngine.invalidate(savedCoupon.getCode());
         return couponMapper.toDTO(savedCoupon);
     }
 
@@ -51,6 +57,8 @@ public class CouponService {
         Coupon existingCoupon = couponRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Coupon not found with id: " + id));
 
+        couponEngine.invalidate(existingCoupon.getCode());
+
         // Update fields
         existingCoupon.setCode(couponDTO.getCode());
         existingCoupon.setName(couponDTO.getName());
@@ -76,23 +84,15 @@ public class CouponService {
         // depending on how CouponMapper works. If mapstruct, it usually handles it.
 
         Coupon savedCoupon = couponRepository.save(existingCoupon);
+        couponEngine.invalidate(savedCoupon.getCode());
         return couponMapper.toDTO(savedCoupon);
     }
 
+    /**
+     * Served from the coupon engine's cache; called by the cart page on each keystroke.
+     */
     public CouponDTO validateCoupon(String code) {
-        Coupon coupon = couponRepository.findByCode(code)
-                .orElseThrow(() -> new ResourceNotFoundException("Coupon with code " + code + " not found"));
-
-        if (coupon.getExpiryDate().isBefore(LocalDateTime.now())) {
-            throw new IllegalStateException("Coupon has expired");
-        }
-
-        if (coupon.getUsageLimit() != null && coupon.getUsageLimit() > 0 &&
-                coupon.getTimesUsed() != null && coupon.getTimesUsed() >= coupon.getUsageLimit()) {
-            throw new IllegalStateException("Coupon has reached its usage limit");
-        }
-
-        return couponMapper.toDTO(coupon);
+        return couponEngine.validate(code);
     }
 
     @Transactional(readOnly = true)
@@ -126,49 +126,32 @@ public class CouponService {
         }
         // End: Safeguard Check
 
+        couponRedemptionService.discardPending(id);
+        couponEngine.invalidate(coupon.getCode());
         couponRepository.deleteById(id);
     }
 
+    /**
+     * Coupon redemptions per day, read from the {@code coupon_daily_usage} rollup
+     * that redemptions are counted into. Counts not yet flushed by
+     * {@link CouponRedemptionService} are not included.
+     */
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> getCouponUsageStatistics() {
-        System.out.println("🔍 CouponService: Fetching general coupon usage statistics...");
-        List<Map<String, Object>> result = orderRepository.countByCouponUsageByDay();
-        System.out.println("✅ CouponService: General statistics result: " + result);
-        return result;
+        return couponDailyUsageRepository.sumUsageByDay();
     }
 
-    // --- NEW METHOD START ---
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> getCouponUsageStatisticsById(Long couponId) {
-        System.out.println("🔍 CouponService: Fetching usage statistics for coupon ID: " + couponId);
-
-        // Validate coupon exists first
-        if (couponId == null) {
-            System.out.println("❌ CouponService: Coupon ID is null");
+        if (couponId == null || !couponRepository.existsById(couponId)) {
             return List.of();
         }
+        return couponDailyUsageRepository.findUsageByDayForCoupon(couponId);
+    }
 
-        // Check if coupon exists
-        boolean couponExists = couponRepository.existsById(couponId);
-        System.out.println("🔍 CouponService: Coupon exists: " + couponExists);
-
-        if (!couponExists) {
-            System.out.println("❌ CouponService: Coupon with ID " + couponId + " not found");
-            return List.of();
-        }
-
-        List<Map<String, Object>> result = orderRepository.countByCouponUsageByDayForCoupon(couponId);
-        System.out.println("✅ CouponService: Usage statistics for coupon " + couponId + ": " + result);
-
-        // Log the structure of the returned data
-        if (result != null && !result.isEmpty()) {
-            System.out.println("📊 CouponService: Sample data structure: " + result.get(0));
-            System.out.println("📊 CouponService: Total records returned: " + result.size());
-        } else {
-            System.out.println("📊 CouponService: No usage data found for coupon " + couponId);
-        }
-
-        return result;
+    public void reconcileUsageStatistics(LocalDate from, LocalDate to) {
+        couponRedemptionService.reconcileDailyUsage(from, to);
     }
-    // --- NEW METHOD END ---
 
     @Transactional(readOnly = true)
     public List<CouponDTO> getActiveCouponsForUser(Long userId) {
@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutboxMessage;
+import com.example.demo.repositories.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Delivers queued outbox emails on a small bounded thread pool.
+ *
+ * A message is dispatched right after the transaction that queued it commits;
+ * anything that could not be sent (SMTP down, pool saturated, node restarted)
+ * is picked up again by the scheduled poll with exponential backoff until
+ * {@code email.outbox.max-attempts} is reached. Sent messages are purged after
+ * {@code email.outbox.retention-days}, and sensitive bodies are not kept at all
+ * once a message is sent or given up on.
+ */
+@Service
+@RequiredArgsConstructor
+public class EmailOutboxDispatcher {
+    private final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+
+    @Value("${spring.mail.from}")
+    private String fromEmail;
+
+    @Value("${email.outbox.threads:2}")
+    private int threads;
+
+    @Value("${email.outbox.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${email.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${email.outbox.send-timeout-seconds:300}")
+    private long sendTimeoutSeconds;
+
+    @Value("${email.outbox.retention-days:30}")
+    private int retentionDays;
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    @PostConstruct
+    void start() {
+        executor.setThreadNamePrefix("email-outbox-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEmailQueued(EmailQueuedEvent event) {
+        submit(event.getMessageId());
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:15000}")
+    public void dispatchDueMessages() {
+        List<Long> dueIds = emailOutboxRepository.findDueIds(LocalDateTime.now(), PageRequest.of(0, batchSize));
+        for (Long id : dueIds) {
+            if (!submit(id)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Deletes sent messages past the retention period. Safe to run on every node at once.
+     */
+    @Scheduled(cron = "${email.outbox.purge-cron:0 0 3 * * *}")
+    public void purgeSentMessages() {
+        int deleted = emailOutboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Purged {} sent emails older than {} days", deleted, retentionDays);
+        }
+    }
+
+    private boolean submit(Long messageId) {
+        try {
+            executor.execute(() -> dispatch(messageId));
+            return true;
+        } catch (TaskRejectedException e) {
+            // Pool saturated: the message stays PENDING and the next poll retries it
+            logger.warn("Email outbox queue is full, deferring message {}", messageId);
+            return false;
+        }
+    }
+
+    /**
+     * Claims and sends one message. The claim is a conditional UPDATE, so the same
+     * message is never sent twice by concurrent workers or nodes.
+     */
+    void dispatch(Long messageId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (emailOutboxRepository.claim(messageId, now, now.plusSeconds(sendTimeoutSeconds)) == 0) {
+            return;
+        }
+        EmailOutboxMessage message = emailOutboxRepository.findById(messageId).orElse(null);
+        if (message == null) {
+            return;
+        }
+
+        try {
+            SimpleMailMessage mail = new SimpleMailMessage();
+            mail.setFrom(fromEmail);
+            mail.setTo(message.getRecipient());
+            mail.setSubject(message.getSubject());
+            mail.setText(message.getBody());
+            mailSender.send(mail);
+
+            message.setStatus(EmailOutboxMessage.Status.SENT);
+            message.setSentAt(LocalDateTime.now());
+            message.setLastError(null);
+        } catch (RuntimeException e) {
+            // Not only MailException: a bad recipient or a sender error must not leave the message SENDING
+            int attempts = message.getAttempts() != null ? message.getAttempts() : 1;
+            message.setLastError(truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getName()));
+            if (attempts >= maxAttempts) {
+                message.setStatus(EmailOutboxMessage.Status.FAILED);
+                logger.error("Giving up on email {} to {} after {} attempts", message.getId(),
+                        message.getRecipient(), attempts, e);
+            } else {
+                message.setStatus(EmailOutboxMessage.Status.PENDING);
+                message.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+                logger.warn("Failed to send email {} (attempt {}), retrying at {}", message.getId(), attempts,
+                        message.getNextAttemptAt());
+            }
+        }
+        if (message.isSensitive() && message.getStatus() != EmailOutboxMessage.Status.PENDING) {
+            // Reset links and codes stay valid for a while; don't leave them readable in the table
+            message.setBody(null);
+        }
+        emailOutboxRepository.save(message);
+    }
+
+    Duration backoff(int attempts) {
+        long seconds = initialBackoffSeconds << Math.min(attempts - 1, 20);
+        return Duration.ofSeconds(Math.min(seconds, maxBackoffSeconds));
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
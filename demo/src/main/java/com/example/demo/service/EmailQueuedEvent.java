@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when an email has been written to the outbox. Handled after the
+ * surrounding transaction commits, so the dispatcher only sees committed rows.
+ */
+@Data
+@AllArgsConstructor
+public class EmailQueuedEvent {
+    private final Long messageId;
+}
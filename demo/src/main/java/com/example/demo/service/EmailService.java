@@ -1,45 +1,54 @@
 package com.example.demo.service;
 
+import com.example.demo.model.EmailOutboxMessage;
 import com.example.demo.model.Order;
 import com.example.demo.model.User;
+import com.example.demo.repositories.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Queues outgoing emails in the outbox table. Messages are committed with the
+ * caller's transaction and delivered by {@link EmailOutboxDispatcher} once it
+ * commits, so callers never block on SMTP.
+ */
 @Service
 @RequiredArgsConstructor
 public class EmailService {
-    private final JavaMailSender mailSender;
-
-    @Value("${spring.mail.from}")
-    private String fromEmail;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional
     public void sendOrderConfirmation(Order order){
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(order.getUser().getEmail());
-        message.setSubject("Order confirmation");
-        message.setText("Your order has been confirmed. Order ID " + order.getId());
-        mailSender.send(message);
+        enqueue(order.getUser().getEmail(), "Order confirmation",
+                "Your order has been confirmed. Order ID " + order.getId(), false);
     }
 
+    @Transactional
     public void sendConfirmationCode(User user){
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(user.getEmail());
-        message.setSubject("Confirm your email");
-        message.setText("Please confirm your email by entering this code " + user.getConfirmationCode());
-        mailSender.send(message);
+        enqueue(user.getEmail(), "Confirm your email",
+                "Please confirm your email by entering this code " + user.getConfirmationCode(), true);
     }
 
+    @Transactional
     public void sendPasswordResetEmail(User user, String resetLink) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(user.getEmail());
-        message.setSubject("Password Reset Request");
-        message.setText("To reset your password, please click the link below:\n" + resetLink);
-        mailSender.send(message);
+        enqueue(user.getEmail(), "Password Reset Request",
+                "To reset your password, please click the link below:\n" + resetLink, true);
+    }
+
+    /**
+     * @param sensitive the body carries a secret; it is dropped from the outbox once sent
+     */
+    private void enqueue(String recipient, String subject, String body, boolean sensitive) {
+        EmailOutboxMessage message = EmailOutboxMessage.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .sensitive(sensitive)
+                .build();
+        EmailOutboxMessage saved = emailOutboxRepository.save(message);
+        eventPublisher.publishEvent(new EmailQueuedEvent(saved.getId()));
     }
-}
\ No newline at end of file
+}
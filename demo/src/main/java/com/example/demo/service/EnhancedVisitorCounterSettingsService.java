@@ -14,6 +14,9 @@ public class EnhancedVisitorCounterSettingsService {
     @Autowired
     private EnhancedVisitorCounterSettingsRepository repository;
 
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
+
     private static final Long SETTINGS_ID = 1L;
 
     /**
@@ -28,6 +31,13 @@ public class EnhancedVisitorCounterSettingsService {
         });
     }
 
+    /**
+     * Cached, pre-serialized settings for the public endpoint
+     */
+    public StorefrontConfigCache.Snapshot getSettingsSnapshot() {
+        return storefrontConfigCache.get(StorefrontConfigCache.Section.VISITOR_COUNTER_SETTINGS, this::getSettings);
+    }
+
     /**
      * Update enhanced visitor counter settings
      */
@@ -74,7 +84,9 @@ public class EnhancedVisitorCounterSettingsService {
         settings.setGlobalEnabled(newSettings.isGlobalEnabled());
         settings.setLastUpdated(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
 
-        return repository.save(settings);
+        EnhancedVisitorCounterSettings savedSettings = repository.save(settings);
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.VISITOR_COUNTER_SETTINGS);
+        return savedSettings;
     }
 
     /**
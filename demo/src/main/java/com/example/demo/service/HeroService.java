@@ -17,6 +17,14 @@ public class HeroService {
     private final HeroRepository heroRepository;
     private final HeroMapper heroMapper;
     private final LocalFileService localFileService; // Injected LocalFileService
+    private final StorefrontConfigCache storefrontConfigCache;
+
+    /**
+     * Cached, pre-serialized hero for the public endpoint.
+     */
+    public StorefrontConfigCache.Snapshot getHeroSnapshot() {
+        return storefrontConfigCache.get(StorefrontConfigCache.Section.HERO, this::getHero);
+    }
 
     public HeroDTO getHero() {
         Hero hero = heroRepository.findById(1L).orElseGet(() -> {
@@ -94,6 +102,7 @@ public class HeroService {
         }
 
         Hero updatedHero = heroRepository.save(hero);
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.HERO);
         return heroMapper.toDTO(updatedHero);
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps {@code uploads/images/cache} within {@code image.cache.max-size-mb}.
+ *
+ * Requested sizes are snapped up to {@code image.cache.buckets}, so scraped
+ * or hand-edited {@code ?w=} values can't create unlimited variants. Every
+ * cached variant is indexed in memory by its original (size and last
+ * access), loaded from the directory once at startup. When a new variant
+ * takes the cache over quota, the least recently used variants are deleted
+ * until it is back under 90% of it, and deleting an original removes its
+ * variants by index lookup instead of listing the directory.
+ */
+@Service
+public class ImageCacheManager {
+    private final Logger logger = LoggerFactory.getLogger(ImageCacheManager.class);
+
+    // <original>_w<width>_h<height>.<format>, see ThumbnailService
+    private static final Pattern VARIANT_NAME = Pattern.compile("^(.+)_w\\d+_h\\d+\\.(webp|jpg)$");
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${image.cache.max-size-mb:2048}")
+    private long maxSizeMb;
+
+    @Value("${image.cache.buckets:80,160,240,320,480,640,800,1024,1280,1600,1920}")
+    private int[] buckets;
+
+    private final Map<String, Map<String, Entry>> variantsByOriginal = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    void loadIndex() {
+        Arrays.sort(buckets);
+        Path cacheDir = getCacheDir();
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        int loaded = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left over by a resize interrupted by a restart
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                String original = originalOf(name);
+                if (original != null && Files.isRegularFile(file)) {
+                    add(original, name, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+                    loaded++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to index image cache {}", cacheDir, e);
+        }
+        logger.info("Indexed {} cached image variants ({} MB)", loaded, totalBytes.get() / (1024 * 1024));
+    }
+
+    public Path getCacheDir() {
+        return Paths.get(uploadDir, "images", "cache").toAbsolutePath();
+    }
+
+    /**
+     * The smallest bucket at least as large as the requested size, the
+     * largest bucket for anything above it, or 0 for "unspecified".
+     */
+    public int snap(int requested) {
+        if (requested <= 0) {
+            return 0;
+        }
+        for (int bucket : buckets) {
+            if (bucket >= requested) {
+                return bucket;
+            }
+        }
+        return buckets[buckets.length - 1];
+    }
+
+    /**
+     * The cached variant with this file name, marked as just used, or null.
+     */
+    public File find(String variantName) {
+        String original = originalOf(variantName);
+        Map<String, Entry> variants = original == null ? null : variantsByOriginal.get(original);
+        Entry entry = variants == null ? null : variants.get(variantName);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return getCacheDir().resolve(variantName).toFile();
+    }
+
+    public boolean contains(String variantName) {
+        String original = originalOf(variantName);
+        Map<String, Entry> variants = original == null ? null : variantsByOriginal.get(original);
+        return variants != null && variants.containsKey(variantName);
+    }
+
+    /**
+     * Indexes a variant just written to the cache directory, evicting older
+     * variants if the cache is now over quota.
+     */
+    public void recordWrite(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String original = originalOf(name);
+        if (original == null) {
+            return;
+        }
+        add(original, name, Files.size(file), System.currentTimeMillis());
+        if (totalBytes.get() > maxBytes()) {
+            evict();
+        }
+    }
+
+    /**
+     * Deletes every cached variant of an original.
+     *
+     * @return the number of variants deleted
+     */
+    public int deleteVariants(String originalFilename) {
+        Map<String, Entry> variants = variantsByOriginal.remove(originalFilename);
+        if (variants == null) {
+            return 0;
+        }
+        int deleted = 0;
+        for (Map.Entry<String, Entry> variant : variants.entrySet()) {
+            totalBytes.addAndGet(-variant.getValue().size);
+            if (deleteFile(variant.getKey())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public Stats getStats() {
+        int variants = variantsByOriginal.values().stream().mapToInt(Map::size).sum();
+        return new Stats(variants, totalBytes.get(), maxBytes(), evictions.sum());
+    }
+
+    /**
+     * Deletes least recently used variants until the cache is under 90% of
+     * its quota, so the next few writes don't each trigger an eviction. One
+     * thread evicts at a time; the others carry on.
+     */
+    void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long target = maxBytes() * 9 / 10;
+            // Last access is copied once: find() keeps updating it, and a
+            // comparator whose answers change mid-sort breaks the sort
+            List<Candidate> candidates = new ArrayList<>();
+            variantsByOriginal.forEach((original, variants) -> variants.forEach((name, entry) ->
+                    candidates.add(new Candidate(original, name, entry.lastAccess))));
+            candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+
+            int evicted = 0;
+            for (Candidate candidate : candidates) {
+                if (totalBytes.get() <= target) {
+                    break;
+                }
+                if (remove(candidate.original(), candidate.name())) {
+                    deleteFile(candidate.name());
+                    evicted++;
+                }
+            }
+            evictions.add(evicted);
+            logger.info("Evicted {} cached image variants, cache now {} MB", evicted,
+                    totalBytes.get() / (1024 * 1024));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void add(String original, String name, long size, long lastAccess) {
+        Entry previous = variantsByOriginal.computeIfAbsent(original, key -> new ConcurrentHashMap<>())
+                .put(name, new Entry(size, lastAccess));
+        totalBytes.addAndGet(size - (previous == null ? 0 : previous.size));
+    }
+
+    private boolean remove(String original, String name) {
+        Map<String, Entry> variants = variantsByOriginal.get(original);
+        Entry entry = variants == null ? null : variants.remove(name);
+        if (entry == null) {
+            return false;
+        }
+        totalBytes.addAndGet(-entry.size);
+        return true;
+    }
+
+    private boolean deleteFile(String variantName) {
+        try {
+            return Files.deleteIfExists(getCacheDir().resolve(variantName));
+        } catch (IOException e) {
+            logger.warn("Failed to delete cached variant {}: {}", variantName, e.getMessage());
+            return false;
+        }
+    }
+
+    private long maxBytes() {
+        return maxSizeMb * 1024 * 1024;
+    }
+
+    private static String originalOf(String variantName) {
+        Matcher matcher = VARIANT_NAME.matcher(variantName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static final class Entry {
+        private final long size;
+        private volatile long lastAccess;
+
+        Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private record Candidate(String original, String name, long lastAccess) {
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private final int variants;
+        private final long bytes;
+        private final long maxBytes;
+        private final long evictions;
+    }
+}
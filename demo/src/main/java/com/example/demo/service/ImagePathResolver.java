@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves image URLs to stored originals, remembering the file and its size
+ * and modification time so a busy product grid doesn't stat the same files
+ * (up to three for the legacy {@code /api/images/{filename}} URLs) on every
+ * request. Uploaded files are never rewritten in place, only deleted, which
+ * {@link LocalFileService} reports through {@link #evict}.
+ *
+ * The cache holds up to {@code image.path-cache.size} entries and is simply
+ * cleared when full; it refills from the hot images within seconds.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImagePathResolver {
+
+    private final ContentAddressedStore contentAddressedStore;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${image.path-cache.size:10000}")
+    private int cacheSize;
+
+    private final Map<String, ImageFile> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The original stored as {@code uploads/images/{type}/{filename}}, or in
+     * the content-addressed store for type {@code cas}. Null if none exists.
+     */
+    public ImageFile resolve(String type, String filename) {
+        String key = type + "/" + filename;
+        ImageFile cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (ContentAddressedStore.TYPE.equals(type)) {
+            Path path = contentAddressedStore.pathOf(filename);
+            return path == null ? null : remember(key, stat(path));
+        }
+        return remember(key, stat(Paths.get(uploadDir, "images", type, filename)));
+    }
+
+    /**
+     * The original behind a legacy {@code /api/images/{filename}} URL: in
+     * {@code images/general/}, directly in the upload directory, or in
+     * {@code images/}, in that order. Null if none exists.
+     */
+    public ImageFile resolveLegacy(String filename) {
+        String key = "/" + filename;
+        ImageFile cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        ImageFile file = stat(Paths.get(uploadDir, "images", "general", filename));
+        if (file == null) {
+            file = stat(Paths.get(uploadDir, filename));
+        }
+        if (file == null) {
+            file = stat(Paths.get(uploadDir, "images", filename));
+        }
+        return remember(key, file);
+    }
+
+    /**
+     * Forgets a deleted original.
+     */
+    public void evict(String type, String filename) {
+        cache.remove(type + "/" + filename);
+        cache.remove("/" + filename);
+    }
+
+    /**
+     * Size and modification time of a regular file, or null if there is none.
+     */
+    public static ImageFile stat(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            return new ImageFile(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ImageFile remember(String key, ImageFile file) {
+        if (file != null) {
+            if (cache.size() >= cacheSize) {
+                cache.clear();
+            }
+            cache.put(key, file);
+        }
+        return file;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ImageFile {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+    }
+}
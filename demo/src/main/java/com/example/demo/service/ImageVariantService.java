@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Pre-resizes uploaded images to the {@link ResponsiveImages#WIDTHS} presets,
+ * in WebP and JPEG, so the first visitor of a new product gets a cached
+ * thumbnail instead of waiting for a resize.
+ *
+ * Uploads are queued on their own thread, separate from the on-demand
+ * {@link ThumbnailService} pool. The variants available for each original are
+ * recorded, which lets requests for widths at or above the original size skip
+ * the resize entirely. A nightly backfill (also available on demand) walks
+ * {@code uploads/images} and generates whatever is missing, including for
+ * uploads whose job was dropped because the queue was full. It runs on a
+ * separate minimum-priority thread, one at a time, so new uploads never wait
+ * behind it and the scheduler thread only starts it.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImageVariantService {
+    private final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private final ThumbnailService thumbnailService;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${image.variants.threads:1}")
+    private int threads;
+
+    @Value("${image.variants.queue-capacity:500}")
+    private int queueCapacity;
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final ThreadPoolTaskExecutor backfillExecutor = new ThreadPoolTaskExecutor();
+    private final Map<String, Variants> variantsByFilename = new ConcurrentHashMap<>();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @PostConstruct
+    void start() {
+        executor.setThreadNamePrefix("image-variants-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+
+        backfillExecutor.setThreadNamePrefix("image-backfill-");
+        backfillExecutor.setThreadPriority(Thread.MIN_PRIORITY);
+        backfillExecutor.setCorePoolSize(1);
+        backfillExecutor.setMaxPoolSize(1);
+        // No queue: a second backfill is refused, never lined up
+        backfillExecutor.setQueueCapacity(0);
+        backfillExecutor.initialize();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+        backfillExecutor.shutdown();
+    }
+
+    /**
+     * Rejects an upload whose header declares too many pixels, before it is
+     * stored or decoded. Data no image reader understands is let through.
+     */
+    public void validateUpload(InputStream input) throws IOException {
+        Dimension size = ThumbnailService.readDimensions(input);
+        if (size != null) {
+            thumbnailService.checkDimensions(size);
+        }
+    }
+
+    /**
+     * Queues the generation of the variants of a stored original. If the
+     * queue is full the nightly backfill generates them instead.
+     */
+    public void generateAsync(Path original) {
+        try {
+            executor.execute(() -> generateQuietly(original.toFile()));
+        } catch (TaskRejectedException e) {
+            logger.warn("Image variant queue is full, leaving {} to the backfill", original.getFileName());
+        }
+    }
+
+    /**
+     * Generates the missing variants of an original on the calling thread and
+     * records them.
+     */
+    public Variants generate(File original) throws IOException {
+        Dimension size = ThumbnailService.readDimensions(original);
+        if (size == null) {
+            throw new IOException("Not a readable image: " + original.getName());
+        }
+        List<Integer> widths = thumbnailService.generateVariants(original, original.getName(),
+                ResponsiveImages.WIDTHS);
+        Variants variants = new Variants(size.width, size.height, List.copyOf(widths));
+        variantsByFilename.put(original.getName(), variants);
+        return variants;
+    }
+
+    /**
+     * The recorded variants of an original, or null if it hasn't been
+     * processed since startup.
+     */
+    public Variants getVariants(String filename) {
+        return variantsByFilename.get(filename);
+    }
+
+    /**
+     * Whether a request for this width can be answered with the original
+     * itself, because the original is known to be no wider.
+     */
+    public boolean isOriginalWideEnough(String filename, int width) {
+        Variants variants = variantsByFilename.get(filename);
+        return variants != null && width >= variants.getOriginalWidth();
+    }
+
+    public void forget(String filename) {
+        variantsByFilename.remove(filename);
+    }
+
+    /**
+     * Starts a backfill on the backfill thread unless one is running.
+     *
+     * @return false if a backfill is already running or couldn't be started
+     */
+    public boolean backfillAsync() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            backfillExecutor.execute(() -> {
+                try {
+                    runBackfill();
+                } finally {
+                    backfillRunning.set(false);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            backfillRunning.set(false);
+            return false;
+        }
+    }
+
+    @Scheduled(cron = "${image.variants.backfill-cron:0 30 4 * * *}")
+    void scheduledBackfill() {
+        if (!backfillAsync()) {
+            logger.info("Image variant backfill already running, skipping scheduled run");
+        }
+    }
+
+    /**
+     * Generates the missing variants of every original under
+     * {@code uploads/images} (cached variants excluded) on the calling thread.
+     *
+     * @return the number of originals processed, or -1 if a backfill was already running
+     */
+    public int backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            return runBackfill();
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    private int runBackfill() {
+        Path imagesDir = Paths.get(uploadDir, "images").toAbsolutePath();
+        Path cacheDir = imagesDir.resolve("cache");
+        int processed = 0;
+        int failed = 0;
+        try (Stream<Path> files = Files.walk(imagesDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)
+                    .filter(path -> !path.startsWith(cacheDir))
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))::iterator) {
+                if (generateQuietly(file.toFile())) {
+                    processed++;
+                } else {
+                    failed++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Image variant backfill stopped", e);
+        }
+        logger.info("Image variant backfill done: {} originals processed, {} skipped", processed, failed);
+        return processed;
+    }
+
+    private boolean generateQuietly(File original) {
+        try {
+            generate(original);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Not an image, or refused as too large: served as-is
+            logger.warn("No variants for {}: {}", original.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Variants {
+        private final int originalWidth;
+        private final int originalHeight;
+        private final List<Integer> widths;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.demo.service;
+
+import com.example.demo.mapper.LandingPageMapper;
+import com.example.demo.model.LandingPage;
+import com.example.demo.model.LandingPageSection;
+import com.example.demo.repositories.LandingPageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Published landing pages, cached by slug as their serialized
+ * {@code LandingPageResponseDTO} plus ETag.
+ *
+ * Landing pages receive the ad traffic; on a warm cache a hit costs no query,
+ * no lazy loading of sections/settings/product and no Jackson work. Unknown or
+ * unpublished slugs are cached briefly as well, in a separate map bounded by
+ * {@code landing-page.cache.max-misses}, so scraped or random slugs can never
+ * push real pages out. {@link LandingPageService} drops a page's entry
+ * whenever it is written, product changes drop the pages showing the product
+ * (as the page's product or in a section's {@code productId}/{@code productIds}),
+ * and entries expire after {@code landing-page.cache.ttl-seconds} so changes
+ * made on other nodes show up.
+ */
+@Service
+@RequiredArgsConstructor
+public class LandingPageResponseCache {
+
+    private final LandingPageRepository landingPageRepository;
+    private final LandingPageMapper landingPageMapper;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${landing-page.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${landing-page.cache.negative-ttl-seconds:5}")
+    private long negativeTtlSeconds;
+
+    @Value("${landing-page.cache.max-size:1000}")
+    private int maxSize;
+
+    @Value("${landing-page.cache.max-misses:1000}")
+    private int maxMisses;
+
+    private final ConcurrentHashMap<String, CachedPage> pages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CachedPage> misses = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent misses on the same slug wait for a single query
+    private final ConcurrentHashMap<String, CompletableFuture<CachedPage>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the published landing page with this slug, or null if there is none.
+     */
+    public CachedPage get(String slug) {
+        long now = System.nanoTime();
+        CachedPage page = pages.get(slug);
+        if (page == null) {
+            page = misses.get(slug);
+        }
+        if (page == null || page.isExpired(now)) {
+            page = loadOnce(slug);
+        }
+        return page.isPublished() ? page : null;
+    }
+
+    /**
+     * Drops the entry of a landing page, found by id (its slug may just have
+     * changed) and by slug (a cached miss before it was published). Inside a
+     * transaction it is dropped again after completion, so a read in between
+     * can't cache the pre-commit page.
+     */
+    public void invalidate(Long landingPageId, String slug) {
+        evict(landingPageId, slug);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(landingPageId, slug);
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        loading.clear();
+        pages.values().removeIf(page -> page.getProductIds().contains(event.getProductId()));
+    }
+
+    private void evict(Long landingPageId, String slug) {
+        // Loads in progress may have read the old rows and must not cache them.
+        // The slug of an in-flight load isn't known by id, so all of them are dropped
+        loading.clear();
+        if (slug != null) {
+            pages.remove(slug);
+            misses.remove(slug);
+        }
+        if (landingPageId != null) {
+            pages.values().removeIf(page -> landingPageId.equals(page.getLandingPageId()));
+        }
+    }
+
+    /**
+     * Loads and caches a slug, or waits for the load already in progress. The
+     * query and serialization run outside the maps' locks.
+     */
+    private CachedPage loadOnce(String slug) {
+        CompletableFuture<CachedPage> future = new CompletableFuture<>();
+        CompletableFuture<CachedPage> inProgress = loading.putIfAbsent(slug, future);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            CachedPage page = load(slug);
+            // Only cached if no invalidation dropped this load meanwhile. Removed before
+            // completing, so a lookup that misses after this point starts a fresh load
+            loading.computeIfPresent(slug, (key, current) -> {
+                if (current != future) {
+                    return current;
+                }
+                remember(slug, page);
+                return null;
+            });
+            future.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            loading.remove(slug, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void remember(String slug, CachedPage page) {
+        long now = System.nanoTime();
+        if (page.isPublished()) {
+            misses.remove(slug);
+            if (!pages.containsKey(slug) && pages.size() >= maxSize) {
+                pages.values().removeIf(cached -> cached.isExpired(now));
+                if (pages.size() >= maxSize) {
+                    // Make room by dropping the page closest to expiry, not the whole cache
+                    pages.entrySet().stream()
+                            .min(Comparator.comparingLong(entry -> entry.getValue().getExpiresAt() - now))
+                            .ifPresent(oldest -> pages.remove(oldest.getKey(), oldest.getValue()));
+                }
+            }
+            pages.put(slug, page);
+        } else {
+            pages.remove(slug);
+            if (misses.size() >= maxMisses) {
+                misses.values().removeIf(cached -> cached.isExpired(now));
+                if (misses.size() >= maxMisses) {
+                    // Only misses are dropped: real pages stay cached
+                    misses.clear();
+                }
+            }
+            misses.put(slug, page);
+        }
+    }
+
+    private CachedPage load(String slug) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(status -> landingPageRepository.findPublishedBySlug(slug)
+                .map(landingPage -> {
+                    try {
+                        byte[] json = objectMapper.writeValueAsBytes(landingPageMapper.toResponseDTO(landingPage));
+                        return new CachedPage(landingPage.getId(), productIds(landingPage),
+                                json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"",
+                                System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Failed to serialize landing page " + slug, e);
+                    }
+                })
+                .orElseGet(() -> new CachedPage(null, Set.of(), null, null,
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(negativeTtlSeconds))));
+    }
+
+    /**
+     * The page's product and the products its sections refer to by
+     * {@code productId} or {@code productIds}.
+     */
+    static Set<Long> productIds(LandingPage landingPage) {
+        Set<Long> ids = new HashSet<>();
+        if (landingPage.getProduct() != null) {
+            ids.add(landingPage.getProduct().getId());
+        }
+        for (LandingPageSection section : landingPage.getSections()) {
+            Map<String, Object> data = section.getSectionData();
+            if (data == null) {
+                continue;
+            }
+            addProductId(ids, data.get("productId"));
+            if (data.get("productIds") instanceof Collection<?> productIds) {
+                productIds.forEach(id -> addProductId(ids, id));
+            }
+        }
+        return ids;
+    }
+
+    // Section data is free-form JSON: ids may be numbers or strings
+    private static void addProductId(Set<Long> ids, Object value) {
+        if (value instanceof Number number) {
+            ids.add(number.longValue());
+        } else if (value instanceof String text && !text.isBlank()) {
+            try {
+                ids.add(Long.parseLong(text.trim()));
+            } catch (NumberFormatException e) {
+                // Not a product id
+            }
+        }
+    }
+
+    @Getter
+    public static final class CachedPage {
+        private final Long landingPageId;
+        private final Set<Long> productIds;
+        private final byte[] json;
+        private final String etag;
+        private final long expiresAt;
+
+        CachedPage(Long landingPageId, Set<Long> productIds, byte[] json, String etag, long expiresAt) {
+            this.landingPageId = landingPageId;
+            this.productIds = productIds;
+            this.json = json;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isPublished() {
+            return json != null;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -56,6 +58,12 @@ public class LandingPageService {
     @Autowired
     private LandingPageSettingsMapper settingsMapper;
 
+    @Autowired
+    private LandingPageViewTracker viewTracker;
+
+    @Autowired
+    private LandingPageResponseCache responseCache;
+
     /**
      * Create a new landing page
      */
@@ -92,6 +100,8 @@ public class LandingPageService {
 
         // Save landing page
         landingPage = landingPageRepository.save(landingPage);
+        // The slug may be cached as not found
+        responseCache.invalidate(landingPage.getId(), landingPage.getSlug());
 
         // Create and save sections if provided
         if (requestDTO.getSections() != null && !requestDTO.getSections().isEmpty()) {
@@ -180,6 +190,7 @@ public class LandingPageService {
         }
 
         landingPage = landingPageRepository.save(landingPage);
+        responseCache.invalidate(id, landingPage.getSlug());
         return landingPageMapper.toResponseDTO(landingPage);
     }
 
@@ -194,18 +205,15 @@ public class LandingPageService {
     }
 
     /**
-     * Get published landing page by slug (public view)
+     * Get published landing page by slug (public view), served from
+     * {@link LandingPageResponseCache}. The caller tracks the view.
      */
-    @Transactional
-    public LandingPageResponseDTO getPublishedLandingPageBySlug(String slug) {
-        LandingPage landingPage = landingPageRepository.findPublishedBySlug(slug)
-                .orElseThrow(
-                        () -> new ResourceNotFoundException("Published landing page not found with slug: " + slug));
-
-        // Track view
-        trackView(landingPage.getId());
-
-        return landingPageMapper.toResponseDTO(landingPage);
+    public LandingPageResponseCache.CachedPage getPublishedLandingPageBySlug(String slug) {
+        LandingPageResponseCache.CachedPage page = responseCache.get(slug);
+        if (page == null) {
+            throw new ResourceNotFoundException("Published landing page not found with slug: " + slug);
+        }
+        return page;
     }
 
     /**
@@ -215,16 +223,7 @@ public class LandingPageService {
     public Page<LandingPageDTO> getAllLandingPages(Pageable pageable) {
         Page<LandingPage> landingPages = landingPageRepository.findAll(pageable);
 
-        // Convert to DTO and add view counts
-        List<LandingPageDTO> dtos = landingPages.getContent().stream()
-                .map(lp -> {
-                    LandingPageDTO dto = landingPageMapper.toDTO(lp);
-                    dto.setTotalViews(getTotalViews(lp.getId()).intValue());
-                    return dto;
-                })
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(dtos, pageable, landingPages.getTotalElements());
+        return toDTOsWithViews(landingPages, pageable);
     }
 
     /**
@@ -234,15 +233,7 @@ public class LandingPageService {
     public Page<LandingPageDTO> getLandingPagesByStatus(LandingPage.LandingPageStatus status, Pageable pageable) {
         Page<LandingPage> landingPages = landingPageRepository.findByStatus(status, pageable);
 
-        List<LandingPageDTO> dtos = landingPages.getContent().stream()
-                .map(lp -> {
-                    LandingPageDTO dto = landingPageMapper.toDTO(lp);
-                    dto.setTotalViews(getTotalViews(lp.getId()).intValue());
-                    return dto;
-                })
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(dtos, pageable, landingPages.getTotalElements());
+        return toDTOsWithViews(landingPages, pageable);
     }
 
     /**
@@ -252,10 +243,29 @@ public class LandingPageService {
     public Page<LandingPageDTO> searchLandingPages(String searchTerm, Pageable pageable) {
         Page<LandingPage> landingPages = landingPageRepository.searchByTitle(searchTerm, pageable);
 
+        return toDTOsWithViews(landingPages, pageable);
+    }
+
+    /**
+     * Convert a page of landing pages to DTOs with their total views, loaded
+     * for the whole page with one grouped query instead of one per row
+     */
+    private Page<LandingPageDTO> toDTOsWithViews(Page<LandingPage> landingPages, Pageable pageable) {
+        List<Long> ids = landingPages.getContent().stream()
+                .map(LandingPage::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, Long> totalViews = new HashMap<>(viewTracker.getPendingViews(ids));
+        if (!ids.isEmpty()) {
+            for (Object[] row : viewRepository.getTotalViewsByLandingPageIds(ids)) {
+                totalViews.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+
         List<LandingPageDTO> dtos = landingPages.getContent().stream()
                 .map(lp -> {
                     LandingPageDTO dto = landingPageMapper.toDTO(lp);
-                    dto.setTotalViews(getTotalViews(lp.getId()).intValue());
+                    dto.setTotalViews(totalViews.getOrDefault(lp.getId(), 0L).intValue());
                     return dto;
                 })
                 .collect(Collectors.toList());
@@ -275,6 +285,7 @@ public class LandingPageService {
         landingPage.setPublishedAt(LocalDateTime.now());
 
         landingPage = landingPageRepository.save(landingPage);
+        responseCache.invalidate(id, landingPage.getSlug());
         return landingPageMapper.toDTO(landingPage);
     }
 
@@ -289,6 +300,7 @@ public class LandingPageService {
         landingPage.setStatus(LandingPage.LandingPageStatus.DRAFT);
 
         landingPage = landingPageRepository.save(landingPage);
+        responseCache.invalidate(id, landingPage.getSlug());
         return landingPageMapper.toDTO(landingPage);
     }
 
@@ -303,6 +315,7 @@ public class LandingPageService {
         landingPage.setStatus(LandingPage.LandingPageStatus.ARCHIVED);
 
         landingPage = landingPageRepository.save(landingPage);
+        responseCache.invalidate(id, landingPage.getSlug());
         return landingPageMapper.toDTO(landingPage);
     }
 
@@ -317,31 +330,15 @@ public class LandingPageService {
 
         // Cascade delete will handle sections, settings, and views
         landingPageRepository.deleteById(id);
+        responseCache.invalidate(id, null);
     }
 
     /**
-     * Track a view for a landing page
+     * Track a view for a landing page. Counted in memory and flushed to
+     * landing_page_views in batches by {@link LandingPageViewTracker}.
      */
-    @Transactional
-    public void trackView(Long landingPageId) {
-        LocalDate today = LocalDate.now();
-
-        LandingPage landingPage = landingPageRepository.findById(landingPageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Landing page not found with ID: " + landingPageId));
-
-        LandingPageView view = viewRepository.findByLandingPageIdAndViewDate(landingPageId, today)
-                .orElse(LandingPageView.builder()
-                        .landingPage(landingPage)
-                        .viewDate(today)
-                        .viewCount(0)
-                        .uniqueVisitors(0)
-                        .build());
-
-        view.setViewCount(view.getViewCount() + 1);
-        // Note: In production, you'd want to track unique visitors via session/cookie
-        view.setUniqueVisitors(view.getUniqueVisitors() + 1);
-
-        viewRepository.save(view);
+    public void trackView(Long landingPageId, String visitorId) {
+        viewTracker.recordView(landingPageId, visitorId);
     }
 
     /**
@@ -349,7 +346,8 @@ public class LandingPageService {
      */
     @Transactional(readOnly = true)
     public Long getTotalViews(Long landingPageId) {
-        return viewRepository.getTotalViewsByLandingPageId(landingPageId);
+        // Include views not flushed yet
+        return viewRepository.getTotalViewsByLandingPageId(landingPageId) + viewTracker.getPendingViews(landingPageId);
     }
 
     /**
@@ -360,6 +358,19 @@ public class LandingPageService {
         return viewRepository.findByLandingPageIdAndDateRange(landingPageId, startDate, endDate);
     }
 
+    /**
+     * Estimate unique visitors of a landing page over a date range by merging
+     * the daily visitor sketches (stored and not yet flushed)
+     */
+    @Transactional(readOnly = true)
+    public long getUniqueVisitors(Long landingPageId, LocalDate startDate, LocalDate endDate) {
+        HyperLogLog visitors = viewTracker.getVisitorSketch(landingPageId, startDate, endDate);
+        for (byte[] sketch : viewRepository.findVisitorSketches(landingPageId, startDate, endDate)) {
+            visitors.merge(HyperLogLog.fromBytes(sketch));
+        }
+        return visitors.estimate();
+    }
+
     /**
      * Duplicate a landing page
      */
@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Counts landing page views in memory and writes them behind.
+ *
+ * Public page hits only bump a striped counter per landing page per day; a
+ * scheduled flush adds the accumulated counts to {@code landing_page_views}
+ * with one batched upsert, so a burst of paid traffic to one page doesn't
+ * turn its daily row into a hot spot or race on {@code uk_landing_page_date}.
+ *
+ * Unique visitors are estimated with a {@link HyperLogLog} sketch per page per
+ * day. The flush merges it into the sketch stored on the row (under a row
+ * lock, so several nodes can flush the same day) and stores the estimate in
+ * {@code unique_visitors}.
+ */
+@Service
+@RequiredArgsConstructor
+public class LandingPageViewTracker {
+    private final Logger logger = LoggerFactory.getLogger(LandingPageViewTracker.class);
+
+    // Selecting from landing_pages skips pages deleted since the views were counted
+    private static final String UPSERT_DAILY_VIEWS_SQL =
+            "INSERT INTO landing_page_views " +
+            "(landing_page_id, view_date, view_count, unique_visitors, created_at, updated_at) " +
+            "SELECT id, ?, ?, 0, NOW(), NOW() FROM landing_pages WHERE id = ? " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + ?, updated_at = NOW()";
+    private static final String LOCK_SKETCH_SQL =
+            "SELECT visitor_sketch FROM landing_page_views WHERE landing_page_id = ? AND view_date = ? FOR UPDATE";
+    private static final String UPDATE_SKETCH_SQL =
+            "UPDATE landing_page_views SET visitor_sketch = ?, unique_visitors = ? " +
+            "WHERE landing_page_id = ? AND view_date = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<DailyKey, DailyViews> pendingViews = new ConcurrentHashMap<>();
+
+    /**
+     * @param visitorId stable id of the visitor (cookie), or null if unknown
+     */
+    public void recordView(Long landingPageId, String visitorId) {
+        DailyViews day = day(new DailyKey(landingPageId, LocalDate.now()));
+        day.getViews().add(1);
+        if (visitorId != null && day.getVisitors().add(visitorId)) {
+            day.getSketchDirty().set(true);
+        }
+    }
+
+    /**
+     * Views counted for a landing page that have not been flushed yet.
+     */
+    public long getPendingViews(Long landingPageId) {
+        long total = 0;
+        for (Map.Entry<DailyKey, DailyViews> entry : pendingViews.entrySet()) {
+            if (entry.getKey().getLandingPageId().equals(landingPageId)) {
+                total += entry.getValue().getViews().sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Views not flushed yet for several landing pages, in one pass over the
+     * counters. Pages without pending views are left out.
+     */
+    public Map<Long, Long> getPendingViews(Collection<Long> landingPageIds) {
+        Set<Long> ids = new HashSet<>(landingPageIds);
+        Map<Long, Long> totals = new HashMap<>();
+        pendingViews.forEach((key, day) -> {
+            if (ids.contains(key.getLandingPageId())) {
+                long count = day.getViews().sum();
+                if (count > 0) {
+                    totals.merge(key.getLandingPageId(), count, Long::sum);
+                }
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * In-memory visitor sketches of a landing page for days in the range, merged.
+     * Combined with the stored sketches to estimate unique visitors over a range.
+     */
+    public HyperLogLog getVisitorSketch(Long landingPageId, LocalDate startDate, LocalDate endDate) {
+        HyperLogLog merged = new HyperLogLog();
+        pendingViews.forEach((key, day) -> {
+            if (key.getLandingPageId().equals(landingPageId)
+                    && !key.getDate().isBefore(startDate) && !key.getDate().isAfter(endDate)) {
+                merged.merge(day.getVisitors());
+            }
+        });
+        return merged;
+    }
+
+    @Scheduled(fixedDelayString = "${landing-page.views.flush-interval-ms:10000}")
+    public void flush() {
+        Map<DailyKey, Long> drained = new HashMap<>();
+        List<DailyKey> dirtySketches = new ArrayList<>();
+        pendingViews.forEach((key, day) -> {
+            long count = day.getViews().drain();
+            if (count > 0) {
+                drained.put(key, count);
+            }
+            if (day.getSketchDirty().getAndSet(false)) {
+                dirtySketches.add(key);
+            }
+        });
+        if (drained.isEmpty() && dirtySketches.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> viewArgs = new ArrayList<>(drained.size());
+        drained.forEach((key, count) -> viewArgs.add(new Object[] {
+                Date.valueOf(key.getDate()), count, key.getLandingPageId(), count }));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!viewArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_DAILY_VIEWS_SQL, viewArgs);
+                }
+                mergeSketches(dirtySketches);
+            });
+        } catch (DataAccessException e) {
+            // Put the counts back so they are retried on the next flush
+            logger.error("Failed to flush views of {} landing page days, will retry",
+                    drained.size() + dirtySketches.size(), e);
+            drained.forEach((key, count) -> day(key).getViews().add(count));
+            dirtySketches.forEach(key -> day(key).getSketchDirty().set(true));
+        }
+        // Counters of past days are empty once flushed; drop them so the map doesn't grow
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        pendingViews.entrySet().removeIf(entry -> entry.getKey().getDate().isBefore(yesterday)
+                && entry.getValue().getViews().isEmpty() && !entry.getValue().getSketchDirty().get());
+    }
+
+    /**
+     * Merges each day's in-memory sketch with the stored one. The row is locked
+     * while merging so concurrent flushes from other nodes don't overwrite each other.
+     */
+    private void mergeSketches(List<DailyKey> keys) {
+        List<Object[]> args = new ArrayList<>(keys.size());
+        for (DailyKey key : keys) {
+            Date date = Date.valueOf(key.getDate());
+            List<byte[]> stored = jdbcTemplate.query(LOCK_SKETCH_SQL, (rs, rowNum) -> rs.getBytes(1),
+                    key.getLandingPageId(), date);
+            if (stored.isEmpty()) {
+                // Landing page deleted since the view was counted
+                continue;
+            }
+            HyperLogLog visitors = day(key).getVisitors();
+            // Keep the stored registers in memory too, so later flushes write the whole day
+            visitors.merge(HyperLogLog.fromBytes(stored.get(0)));
+            args.add(new Object[] { visitors.toBytes(), visitors.estimate(), key.getLandingPageId(), date });
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SKETCH_SQL, args);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private DailyViews day(DailyKey key) {
+        return pendingViews.computeIfAbsent(key, k -> new DailyViews());
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static final class DailyKey {
+        private final Long landingPageId;
+        private final LocalDate date;
+    }
+
+    @Getter
+    private static final class DailyViews {
+        private final StripedCounter views = new StripedCounter();
+        private final HyperLogLog visitors = new HyperLogLog();
+        private final AtomicBoolean sketchDirty = new AtomicBoolean();
+    }
+}
@@ -1,32 +1,48 @@
 package com.example.demo.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
 
 /**
  * Local file storage service to replace AWS S3.
- * Stores images in local filesystem organized by type.
+ * Stores images in local filesystem, by content.
  * 
  * Storage structure:
  * uploads/
  * images/
- * products/
- * categories/
- * packs/
- * hero/
- * comments/
+ * cas/ab/cd/abcd...{sha-256}.{ext} (see ContentAddressedStore)
+ * products/, categories/, packs/, hero/, comments/, general/
+ * (uploads stored before content addressing, still served and deletable)
+ * cache/ (resized variants, see ImageVariantService and ThumbnailService)
  */
 @Service
 public class LocalFileService {
+    private final Logger logger = LoggerFactory.getLogger(LocalFileService.class);
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ImageCacheManager imageCacheManager;
+
+    @Autowired
+    private ImagePathResolver imagePathResolver;
+
+    @Autowired
+    private ContentAddressedStore contentAddressedStore;
 
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
@@ -36,46 +52,34 @@ public class LocalFileService {
 
     /**
      * Save a MultipartFile image to local filesystem.
+     * Stored by content (see ContentAddressedStore): uploading the same bytes
+     * again returns the same URL.
      * 
      * @param file      The image file to save
      * @param imageType The type of image (products, categories, packs, hero,
-     *                  comments)
+     *                  comments); no longer affects where the file is stored
      * @return The URL to access the saved image
      * @throws IOException If file cannot be saved
+     * @throws IllegalArgumentException If the file is empty or the image too large
      */
     public String saveImage(MultipartFile file, String imageType) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("File cannot be null or empty");
         }
-
-        // Ensure image type directory exists
-        String typeDir = imageType != null ? imageType : "general";
-        Path uploadPath = Paths.get(uploadDir, "images", typeDir);
-        ensureDirectoryExists(uploadPath);
-
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename == null || originalFilename.isEmpty()) {
-            originalFilename = "image";
+        try (InputStream header = file.getInputStream()) {
+            imageVariantService.validateUpload(header);
         }
 
-        // Clean filename (remove special characters)
-        String cleanFilename = cleanFilename(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + "-" + cleanFilename;
-
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath);
-
-        // Log for debugging
-        System.out.println("✅ Image saved successfully:");
-        System.out.println("   Physical path: " + filePath.toAbsolutePath());
-        System.out.println("   File size: " + filePath.toFile().length() + " bytes");
+        String blobName;
+        try (InputStream content = file.getInputStream()) {
+            blobName = contentAddressedStore.store(content, extensionOf(file.getOriginalFilename()));
+        }
+        imageVariantService.generateAsync(contentAddressedStore.pathOf(blobName));
 
         // Return relative URL for database storage
-        // Format: /api/images/{type}/{filename}
-        String imageUrl = baseUrl + "/" + typeDir + "/" + uniqueFilename;
-        System.out.println("   Database URL: " + imageUrl);
+        // Format: /api/images/cas/{hash}.{ext}
+        String imageUrl = baseUrl + "/" + ContentAddressedStore.TYPE + "/" + blobName;
+        logger.debug("Image saved: {} ({} bytes)", imageUrl, file.getSize());
 
         return imageUrl;
     }
@@ -91,36 +95,27 @@ public class LocalFileService {
     /**
      * Save a byte array image to local filesystem.
      * Used for composite images (e.g., pack composite images).
+     * Stored by content, like uploaded files.
      * 
      * @param imageBytes The image bytes to save
-     * @param fileName   The desired file name
+     * @param fileName   The desired file name (only its extension is kept)
      * @param imageType  The type of image (products, categories, packs, hero,
-     *                   comments)
+     *                   comments); no longer affects where the file is stored
      * @return The URL to access the saved image
      * @throws IOException If file cannot be saved
+     * @throws IllegalArgumentException If the bytes are empty or the image too large
      */
     public String saveImage(byte[] imageBytes, String fileName, String imageType) throws IOException {
         if (imageBytes == null || imageBytes.length == 0) {
             throw new IllegalArgumentException("Image bytes cannot be null or empty");
         }
+        imageVariantService.validateUpload(new ByteArrayInputStream(imageBytes));
 
-        // Ensure image type directory exists
-        String typeDir = imageType != null ? imageType : "general";
-        Path uploadPath = Paths.get(uploadDir, "images", typeDir);
-        ensureDirectoryExists(uploadPath);
-
-        // Generate unique filename
-        String cleanFilename = cleanFilename(fileName);
-        String uniqueFilename = UUID.randomUUID().toString() + "-" + cleanFilename;
-
-        // Save file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        try (FileOutputStream fos = new FileOutputStream(filePath.toFile())) {
-            fos.write(imageBytes);
-        }
+        String blobName = contentAddressedStore.store(new ByteArrayInputStream(imageBytes), extensionOf(fileName));
+        imageVariantService.generateAsync(contentAddressedStore.pathOf(blobName));
 
         // Return relative URL for database storage
-        return baseUrl + "/" + typeDir + "/" + uniqueFilename;
+        return baseUrl + "/" + ContentAddressedStore.TYPE + "/" + blobName;
     }
 
     /**
@@ -132,45 +127,47 @@ public class LocalFileService {
     }
 
     /**
-     * Ensure the directory exists, creating it if necessary.
+     * Extension of an uploaded file name, without the dot ("" if none).
      */
-    private void ensureDirectoryExists(Path directory) throws IOException {
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
+    private String extensionOf(String filename) {
+        if (filename == null) {
+            return "";
         }
+        int lastDot = filename.lastIndexOf('.');
+        return lastDot >= 0 ? filename.substring(lastDot + 1) : "";
     }
 
     /**
-     * Clean filename by removing special characters, spaces, and path separators.
-     * Spaces are removed to prevent URL encoding issues.
+     * Deletes an image that the current transaction stops referencing, once
+     * that transaction has committed: if it rolls back, the entity still points
+     * at the image and it is kept. Without a transaction it is deleted at once.
+     * 
+     * @param imageUrl The URL of the image to delete
      */
-    private String cleanFilename(String filename) {
-        if (filename == null) {
-            return "image";
+    public void deleteImageAfterCommit(String imageUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return;
         }
-
-        // Remove path separators, dangerous characters, AND SPACES
-        String cleaned = filename.replaceAll("[\\\\/:*?\"<>|\\s]", "_");
-
-        // Limit length
-        if (cleaned.length() > 200) {
-            String extension = "";
-            int lastDot = cleaned.lastIndexOf('.');
-            if (lastDot > 0) {
-                extension = cleaned.substring(lastDot);
-                cleaned = cleaned.substring(0, lastDot);
-            }
-            cleaned = cleaned.substring(0, 200 - extension.length()) + extension;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteImage(imageUrl);
+            return;
         }
-
-        return cleaned;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteImage(imageUrl);
+            }
+        });
     }
 
     /**
      * Delete an image file from local filesystem.
      * 
+     * Content-addressed images are only deleted once every upload that
+     * stored them has been deleted.
+     * 
      * @param imageUrl The URL of the image to delete
-     * @return true if file was deleted, false if file doesn't exist
+     * @return true if file was deleted, false if file doesn't exist (or is still in use)
      */
     public boolean deleteImage(String imageUrl) {
         if (imageUrl == null || imageUrl.isEmpty()) {
@@ -195,7 +192,18 @@ public class LocalFileService {
             String type = parts[0];
             String filename = parts[1];
 
-            // Build file path
+            if (ContentAddressedStore.TYPE.equals(type)) {
+                boolean deleted = contentAddressedStore.release(filename);
+                if (deleted) {
+                    logger.debug("Deleted unreferenced image {}", filename);
+                    deleteCachedVersions(filename);
+                    imageVariantService.forget(filename);
+                    imagePathResolver.evict(type, filename);
+                }
+                return deleted;
+            }
+
+            // Build file path (uploads stored before content addressing)
             Path filePath = Paths.get(uploadDir, "images", type, filename);
             File file = filePath.toFile();
 
@@ -203,41 +211,29 @@ public class LocalFileService {
             if (file.exists() && file.isFile()) {
                 deleted = file.delete();
                 if (deleted) {
-                    System.out.println("🗑️ Deleted original image: " + filePath);
+                    logger.debug("Deleted original image {}", filePath);
                     // Also delete cached versions if any
                     deleteCachedVersions(filename);
+                    imageVariantService.forget(filename);
+                    imagePathResolver.evict(type, filename);
                 }
             }
             return deleted;
         } catch (Exception e) {
             // Log error but don't throw
-            System.err.println("Error deleting image: " + imageUrl + " - " + e.getMessage());
+            logger.warn("Error deleting image {}: {}", imageUrl, e.getMessage());
         }
 
         return false;
     }
 
     /**
-     * Delete all cached versions of a specific file.
-     * Searches in uploads/images/cache/ for files starting with original filename.
+     * Delete all cached versions of a specific file, found through the cache index.
      */
     private void deleteCachedVersions(String originalFilename) {
-        try {
-            Path cachePath = Paths.get(uploadDir, "images", "cache");
-            File cacheDirFile = cachePath.toFile();
-
-            if (cacheDirFile.exists() && cacheDirFile.isDirectory()) {
-                File[] cachedFiles = cacheDirFile.listFiles((dir, name) -> name.startsWith(originalFilename));
-                if (cachedFiles != null) {
-                    for (File cachedFile : cachedFiles) {
-                        if (cachedFile.delete()) {
-                            System.out.println("   🗑️ Deleted cached variant: " + cachedFile.getName());
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error deleting cached versions for " + originalFilename + ": " + e.getMessage());
+        int deleted = imageCacheManager.deleteVariants(originalFilename);
+        if (deleted > 0) {
+            logger.debug("Deleted {} cached variants of {}", deleted, originalFilename);
         }
     }
 }
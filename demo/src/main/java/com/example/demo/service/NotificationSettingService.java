@@ -10,6 +10,9 @@ public class NotificationSettingService {
     
     @Autowired
     private NotificationSettingRepository notificationSettingRepository;
+
+    @Autowired
+    private StorefrontConfigCache storefrontConfigCache;
     
     /**
      * Get the notification settings. If none exist, create default settings.
@@ -33,6 +36,13 @@ public class NotificationSettingService {
                 });
     }
     
+    /**
+     * Cached, pre-serialized settings for the public endpoint
+     */
+    public StorefrontConfigCache.Snapshot getSettingsSnapshot() {
+        return storefrontConfigCache.get(StorefrontConfigCache.Section.NOTIFICATION_SETTINGS, this::getSettings);
+    }
+
     /**
      * Update notification settings
      */
@@ -50,7 +60,9 @@ public class NotificationSettingService {
         existingSettings.setPosition(newSettings.getPosition() != null ? newSettings.getPosition() : existingSettings.getPosition());
         existingSettings.setNotificationDurationSeconds(newSettings.getNotificationDurationSeconds() != null ? newSettings.getNotificationDurationSeconds() : existingSettings.getNotificationDurationSeconds());
         
-        return notificationSettingRepository.save(existingSettings);
+        NotificationSetting savedSettings = notificationSettingRepository.save(existingSettings);
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.NOTIFICATION_SETTINGS);
+        return savedSettings;
     }
     
     /**
@@ -0,0 +1,194 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the orders CSV export straight to the response.
+ *
+ * Orders are read in chunks of {@code orders.export.chunk-size}, seeking by id
+ * from the previous chunk, with their items and coupon codes loaded per chunk.
+ * Only one chunk is in memory at a time and no entities are loaded, so the
+ * export's heap use doesn't grow with the order history.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderCsvExportService {
+
+    static final String HEADER = "Order ID,User ID,Customer Name,City,Address,Phone Number,Status,Created At," +
+            "Coupon Code,Discount Amount,Shipping Cost,Total Items,Total Quantity," +
+            "Order Items Details,Total Amount";
+
+    private static final String ORDERS_SQL =
+            "SELECT id, user_id, client_full_name, city, address, phone_number, status, created_at, coupon_id, " +
+            "discount_amount, shipping_cost FROM orders WHERE deleted = false";
+    private static final String ITEMS_SQL =
+            "SELECT i.order_id, COALESCE(i.product_name, p.name, 'Unknown Product') AS product_name, " +
+            "i.quantity, i.price FROM order_item i LEFT JOIN product p ON p.id = i.product_id " +
+            "WHERE i.order_id IN (%s) ORDER BY i.id";
+    private static final String COUPON_CODES_SQL = "SELECT id, code FROM coupons WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${orders.export.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Writes the CSV of non-deleted orders matching the filters, newest first.
+     *
+     * @param from first day included, or null
+     * @param to   last day included, or null
+     */
+    public void writeCsv(Order.OrderStatus status, LocalDate from, LocalDate to, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(HEADER);
+        writer.write('\n');
+
+        Long lastId = null;
+        while (true) {
+            StringBuilder sql = new StringBuilder(ORDERS_SQL);
+            List<Object> args = new ArrayList<>();
+            OrderSearchService.appendFilters(sql, args, status, null, null, from, to);
+            if (lastId != null) {
+                sql.append(" AND id < ?");
+                args.add(lastId);
+            }
+            // Ids follow creation order, and unlike created_at are never null
+            sql.append(" ORDER BY id DESC LIMIT ?");
+            args.add(chunkSize);
+
+            List<ExportRow> chunk = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+                ExportRow row = new ExportRow();
+                row.id = rs.getLong("id");
+                long userId = rs.getLong("user_id");
+                row.userId = rs.wasNull() ? null : userId;
+                row.clientFullName = rs.getString("client_full_name");
+                row.city = rs.getString("city");
+                row.address = rs.getString("address");
+                row.phoneNumber = rs.getString("phone_number");
+                row.status = rs.getString("status");
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                row.createdAt = createdAt != null ? String.valueOf(createdAt.toLocalDateTime()) : "null";
+                long couponId = rs.getLong("coupon_id");
+                row.couponId = rs.wasNull() ? null : couponId;
+                row.discountAmount = rs.getBigDecimal("discount_amount");
+                row.shippingCost = rs.getBigDecimal("shipping_cost");
+                return row;
+            }, args.toArray());
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            writeChunk(chunk, writer);
+            lastId = chunk.get(chunk.size() - 1).id;
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeChunk(List<ExportRow> chunk, Writer writer) throws IOException {
+        Map<Long, ExportRow> byId = new LinkedHashMap<>();
+        List<Object> couponIds = new ArrayList<>();
+        for (ExportRow row : chunk) {
+            byId.put(row.id, row);
+            if (row.couponId != null && !couponIds.contains(row.couponId)) {
+                couponIds.add(row.couponId);
+            }
+        }
+
+        jdbcTemplate.query(String.format(ITEMS_SQL, placeholders(byId.size())), rs -> {
+            ExportRow row = byId.get(rs.getLong("order_id"));
+            int quantity = rs.getInt("quantity");
+            BigDecimal price = rs.getBigDecimal("price");
+            if (row.itemsDetails.length() > 0) {
+                row.itemsDetails.append("; ");
+            }
+            row.itemsDetails.append(rs.getString("product_name"))
+                    .append(" (Qty: ").append(quantity)
+                    .append(", Price: $").append(price)
+                    .append(")");
+            row.totalItems++;
+            row.totalQuantity += quantity;
+            if (price != null) {
+                row.itemsTotal = row.itemsTotal.add(price.multiply(BigDecimal.valueOf(quantity)));
+            }
+        }, byId.keySet().toArray());
+
+        Map<Long, String> couponCodes = new HashMap<>();
+        if (!couponIds.isEmpty()) {
+            jdbcTemplate.query(String.format(COUPON_CODES_SQL, placeholders(couponIds.size())),
+                    rs -> { couponCodes.put(rs.getLong("id"), rs.getString("code")); }, couponIds.toArray());
+        }
+
+        for (ExportRow row : chunk) {
+            BigDecimal discountAmount = row.discountAmount != null ? row.discountAmount : BigDecimal.ZERO;
+            BigDecimal shippingCost = row.shippingCost != null ? row.shippingCost : BigDecimal.ZERO;
+            String couponCode = row.couponId != null ? couponCodes.get(row.couponId) : null;
+            writer.write(String.join(",",
+                    String.valueOf(row.id),
+                    row.userId != null ? String.valueOf(row.userId) : "N/A",
+                    quote(row.clientFullName),
+                    quote(row.city),
+                    quote(row.address),
+                    quote(row.phoneNumber),
+                    row.status,
+                    row.createdAt,
+                    couponCode != null ? quote(couponCode) : "N/A",
+                    discountAmount.toString(),
+                    shippingCost.toString(),
+                    String.valueOf(row.totalItems),
+                    String.valueOf(row.totalQuantity),
+                    quote(row.itemsDetails.toString()),
+                    row.itemsTotal.subtract(discountAmount).add(shippingCost).toString()));
+            writer.write('\n');
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + (value != null ? value.replace("\"", "\"\"") : "") + "\"";
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static final class ExportRow {
+        private long id;
+        private Long userId;
+        private String clientFullName;
+        private String city;
+        private String address;
+        private String phoneNumber;
+        private String status;
+        private String createdAt;
+        private Long couponId;
+        private BigDecimal discountAmount;
+        private BigDecimal shippingCost;
+        private final StringBuilder itemsDetails = new StringBuilder();
+        private int totalItems;
+        private int totalQuantity;
+        private BigDecimal itemsTotal = BigDecimal.ZERO;
+    }
+}
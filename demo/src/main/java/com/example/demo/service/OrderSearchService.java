@@ -0,0 +1,229 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemDTO;
+import com.example.demo.dto.OrderSearchResultDTO;
+import com.example.demo.dto.OrderSummaryDTO;
+import com.example.demo.model.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin order search, paginated by keyset on {@code (created_at, id)}.
+ *
+ * Each page reads only the order columns of the requested rows (seeking past
+ * the previous page through {@code idx_orders_deleted_created_id} instead of
+ * an OFFSET scan), then the items of just those orders with one query.
+ * Nothing is loaded as an entity, so the eager {@code Order.items} and the
+ * user/coupon associations are not touched.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderSearchService {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    private static final String ORDER_COLUMNS =
+            "SELECT id, client_full_name, city, address, phone_number, status, created_at, " +
+            "discount_amount, shipping_cost FROM orders WHERE deleted = false";
+    private static final String ITEMS_SQL =
+            "SELECT id, order_id, product_id, product_name, variant_name, quantity, price " +
+            "FROM order_item WHERE order_id IN (%s) ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Non-deleted orders matching the filters, newest first.
+     *
+     * @param phone  prefix of the phone number
+     * @param from   first day included
+     * @param to     last day included
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     */
+    public OrderSearchResultDTO search(Order.OrderStatus status, String city, String phone, LocalDate from,
+            LocalDate to, String cursor, Integer size) {
+        int limit = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder(ORDER_COLUMNS);
+        List<Object> args = new ArrayList<>();
+        appendFilters(sql, args, status, city, phone, from, to);
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor.decode(cursor).appendSeek(sql, args);
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit + 1);
+
+        List<OrderSummaryDTO> orders = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            OrderSummaryDTO order = new OrderSummaryDTO();
+            order.setId(rs.getLong("id"));
+            order.setClientFullName(rs.getString("client_full_name"));
+            order.setCity(rs.getString("city"));
+            order.setAddress(rs.getString("address"));
+            order.setPhoneNumber(rs.getString("phone_number"));
+            order.setStatus(Order.OrderStatus.valueOf(rs.getString("status")));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            order.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+            order.setDiscountAmount(rs.getBigDecimal("discount_amount"));
+            order.setShippingCost(rs.getBigDecimal("shipping_cost"));
+            return order;
+        }, args.toArray());
+
+        String nextCursor = null;
+        if (orders.size() > limit) {
+            orders = new ArrayList<>(orders.subList(0, limit));
+            OrderSummaryDTO last = orders.get(limit - 1);
+            // Orders are always created with created_at; legacy rows without it sort last and end the listing
+            if (last.getCreatedAt() != null) {
+                nextCursor = new Cursor(last.getCreatedAt(), last.getId()).encode();
+            }
+        }
+        attachItems(orders);
+        return new OrderSearchResultDTO(orders, nextCursor);
+    }
+
+    /**
+     * Appends the {@code AND ...} conditions of the given filters to a query on
+     * {@code orders}; null filters are left out.
+     */
+    static void appendFilters(StringBuilder sql, List<Object> args, Order.OrderStatus status, String city,
+            String phone, LocalDate from, LocalDate to) {
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        if (city != null && !city.isBlank()) {
+            sql.append(" AND city = ?");
+            args.add(city.trim());
+        }
+        if (phone != null && !phone.isBlank()) {
+            sql.append(" AND phone_number LIKE ?");
+            args.add(escapeLike(phone.trim()) + "%");
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+    }
+
+    private void attachItems(List<OrderSummaryDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, OrderSummaryDTO> byId = new LinkedHashMap<>();
+        for (OrderSummaryDTO order : orders) {
+            order.setOrderItems(new ArrayList<>());
+            byId.put(order.getId(), order);
+        }
+        String placeholders = String.join(",", Collections.nCopies(byId.size(), "?"));
+        jdbcTemplate.query(String.format(ITEMS_SQL, placeholders), rs -> {
+            OrderItemDTO item = new OrderItemDTO();
+            item.setId(rs.getLong("id"));
+            long productId = rs.getLong("product_id");
+            item.setProductId(rs.wasNull() ? null : productId);
+            item.setProductName(rs.getString("product_name"));
+            item.setVariantName(rs.getString("variant_name"));
+            item.setQuantity(rs.getInt("quantity"));
+            item.setPrice(rs.getBigDecimal("price"));
+            byId.get(rs.getLong("order_id")).getOrderItems().add(item);
+        }, byId.keySet().toArray());
+
+        for (OrderSummaryDTO order : orders) {
+            order.setItemCount(order.getOrderItems().size());
+            order.setTotal(total(order));
+        }
+    }
+
+    /**
+     * Same total as {@code OrderMapper.calculateTotal}: items plus shipping minus discount.
+     */
+    private static BigDecimal total(OrderSummaryDTO order) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItemDTO item : order.getOrderItems()) {
+            if (item.getPrice() != null) {
+                total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+        }
+        if (order.getShippingCost() != null) {
+            total = total.add(order.getShippingCost());
+        }
+        if (order.getDiscountAmount() != null) {
+            total = total.subtract(order.getDiscountAmount());
+        }
+        return total;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Position after the last row of a page, passed to clients as an opaque string.
+     */
+    static final class Cursor {
+        private final LocalDateTime createdAt;
+        private final long id;
+
+        Cursor(LocalDateTime createdAt, long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        /**
+         * Appends the condition selecting the rows after this position in
+         * {@code created_at DESC, id DESC} order.
+         */
+        void appendSeek(StringBuilder sql, List<Object> args) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            Timestamp timestamp = Timestamp.valueOf(createdAt);
+            args.add(timestamp);
+            args.add(timestamp);
+            args.add(id);
+        }
+
+        String encode() {
+            String value = createdAt + "_" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Reads a cursor sent back by a client. Anything that is not a position this
+         * service could have produced (including dates outside MySQL's DATETIME range,
+         * which would fail in the query) is an IllegalArgumentException, answered with 400.
+         */
+        static Cursor decode(String cursor) {
+            Cursor decoded;
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.lastIndexOf('_');
+                decoded = new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int year = decoded.createdAt.getYear();
+            if (year < 1000 || year > 9999 || decoded.id < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return decoded;
+        }
+    }
+}
@@ -17,15 +17,15 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.mail.MailException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,29 +42,25 @@ public class OrderService {
     private final CartMapper cartMapper;
     private final CouponRepository couponRepository;
     private final SettingService settingService;
-
-    private List<OrderItem> createOrderItemsFromDTO(List<CartItemDTO> itemDTOs, Order order) {
-        return itemDTOs.stream().map(itemDTO -> {
+    private final StockReservationService stockReservationService;
+    private final CouponRedemptionService couponRedemptionService;
+    private final CouponEngine couponEngine;
+    private final SalesRollupService salesRollupService;
+
+    private List<OrderItem> createOrderItemsFromDTO(List<CartItemDTO> itemDTOs, Order order,
+            CheckoutContext checkout) {
+        List<OrderItem> orderItems = itemDTOs.stream().map(itemDTO -> {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setQuantity(itemDTO.getQuantity());
 
             if (itemDTO.getProductId() != null) {
-                // Standard Product
-                Product product = productRepository.findById(itemDTO.getProductId())
-                        .orElseThrow(() -> new ResourceNotFoundException(
-                                "Product not found with id: " + itemDTO.getProductId()));
-
-                if (product.getQuantity() < itemDTO.getQuantity()) {
-                    throw new InsufficientStockException("Not enough stock for product " + product.getName());
-                }
-
-                // Decrease product stock
-                product.setQuantity(product.getQuantity() - itemDTO.getQuantity());
-                productRepository.save(product);
+                // Standard Product (stock is reserved for the whole cart below)
+                Product product = checkout.getProduct(itemDTO.getProductId());
 
                 orderItem.setProduct(product);
                 orderItem.setProductName(product.getName());
+                orderItem.setProductVariantId(itemDTO.getProductVariantId());
 
                 // Fix for Admin Panel Price: Use price from DTO if provided (for
                 // packs/overrides), else use DB price
@@ -99,6 +95,9 @@ public class OrderService {
 
             return orderItem;
         }).collect(Collectors.toList());
+
+        reserveStock(orderItems, checkout);
+        return orderItems;
     }
 
     @Transactional
@@ -118,63 +117,22 @@ public class OrderService {
         order.setPhoneNumber(request.getPhoneNumber());
         order.setStatus(Order.OrderStatus.PREPARING);
         order.setCreatedAt(LocalDateTime.now());
-        // Apply coupon logic (shared or duplicated - here duplicating for
-        // simplicity/safety as previous session)
-        BigDecimal subtotal = calculateSubtotalForGuestOrder(request.getCartItems());
+        CheckoutContext checkout = CheckoutContext.forCartItems(request.getCartItems(), productRepository);
+        BigDecimal subtotal = calculateSubtotalForGuestOrder(request.getCartItems(), checkout);
 
         // Calculate Shipping
         int totalQuantity = request.getCartItems().stream().mapToInt(CartItemDTO::getQuantity).sum();
         order.setShippingCost(calculateShippingCost(request.getCity(), totalQuantity, subtotal));
-        if (request.getCouponCode() != null && !request.getCouponCode().trim().isEmpty()) {
-            Coupon coupon = couponRepository.findByCode(request.getCouponCode())
-                    .orElseThrow(() -> new ResourceNotFoundException("Coupon not found: " + request.getCouponCode()));
-
-            // Validation (simplified for direct order - copy from guest)
-            if (coupon.getExpiryDate().isBefore(LocalDateTime.now())) {
-                throw new IllegalStateException("Coupon has expired.");
-            }
-            if (coupon.getUsageLimit() > 0
-                    && (coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0) >= coupon.getUsageLimit()) {
-                throw new IllegalStateException("Coupon has reached its usage limit.");
-            }
-            if (coupon.getMinPurchaseAmount() != null && subtotal.compareTo(coupon.getMinPurchaseAmount()) < 0) {
-                throw new IllegalStateException("Order total does not meet the minimum purchase amount.");
-            }
-            if (coupon.isFirstTimeOnly() && orderRepository.existsByUser_Id(userId)) {
-                throw new IllegalStateException("This coupon is for first-time customers only.");
-            }
-            if (!isCouponApplicableToGuestCart(coupon, request.getCartItems())) { // Use DTO check
-                throw new IllegalStateException("This coupon is not valid for these items.");
-            }
-
-            // Discount
-            BigDecimal discountAmount = BigDecimal.ZERO;
-            if (coupon.getDiscountType() == Coupon.DiscountType.FIXED_AMOUNT) {
-                discountAmount = coupon.getDiscountValue();
-            } else if (coupon.getDiscountType() == Coupon.DiscountType.PERCENTAGE) {
-                BigDecimal applicableSubtotal = getApplicableSubtotalForGuestCart(coupon, request.getCartItems());
-                discountAmount = applicableSubtotal.multiply(coupon.getDiscountValue().divide(new BigDecimal("100")));
-            }
-            if (coupon.getDiscountType() == Coupon.DiscountType.FREE_SHIPPING) {
-                order.setShippingCost(BigDecimal.ZERO);
-            }
-            order.setCoupon(coupon);
-            order.setDiscountAmount(discountAmount);
-            coupon.setTimesUsed((coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0) + 1);
-            couponRepository.save(coupon);
-        } else {
-            order.setDiscountAmount(BigDecimal.ZERO);
-        }
+        applyCoupon(order, request.getCouponCode(), guestCartLines(request.getCartItems(), checkout), subtotal,
+                userId);
 
-        List<OrderItem> items = createOrderItemsFromDTO(request.getCartItems(), order);
+        List<OrderItem> items = createOrderItemsFromDTO(request.getCartItems(), order, checkout);
         order.setItems(items);
 
         Order savedOrder = orderRepository.save(order);
-        try {
-            emailService.sendOrderConfirmation(savedOrder);
-        } catch (MailException e) {
-            logger.error("Failed to send order confirmation email", e);
-        }
+        salesRollupService.recordPlaced(savedOrder);
+        // Queued in the outbox, delivered after commit
+        emailService.sendOrderConfirmation(savedOrder);
 
         OrderDTO orderDTO = orderMapper.toDTO(savedOrder);
 
@@ -218,81 +176,27 @@ public class OrderService {
         order.setPhoneNumber(request.getPhoneNumber());
         order.setStatus(Order.OrderStatus.PREPARING);
         order.setCreatedAt(LocalDateTime.now());
+        CheckoutContext checkout = CheckoutContext.forCartItems(request.getCartItems(), productRepository);
         // === COUPON PROCESSING LOGIC (same as createOrder method) ===
-        BigDecimal subtotal = calculateSubtotalForGuestOrder(request.getCartItems());
+        BigDecimal subtotal = calculateSubtotalForGuestOrder(request.getCartItems(), checkout);
 
         // Set a default shipping cost
         // Calculate Shipping
         int totalQuantity = request.getCartItems().stream().mapToInt(CartItemDTO::getQuantity).sum();
         order.setShippingCost(calculateShippingCost(request.getCity(), totalQuantity, subtotal));
 
-        if (request.getCouponCode() != null && !request.getCouponCode().trim().isEmpty()) {
-            Coupon coupon = couponRepository.findByCode(request.getCouponCode())
-                    .orElseThrow(() -> new ResourceNotFoundException("Coupon not found: " + request.getCouponCode()));
-
-            // === Start of Validation Logic ===
-            if (coupon.getExpiryDate().isBefore(LocalDateTime.now())) {
-                throw new IllegalStateException("Coupon has expired.");
-            }
-            if (coupon.getUsageLimit() > 0
-                    && (coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0) >= coupon.getUsageLimit()) {
-                throw new IllegalStateException("Coupon has reached its usage limit.");
-            }
-            if (coupon.getMinPurchaseAmount() != null && subtotal.compareTo(coupon.getMinPurchaseAmount()) < 0) {
-                throw new IllegalStateException(
-                        "Order total does not meet the minimum purchase amount for this coupon.");
-            }
-
-            // First-Time Customer Validation for guest orders
-            if (coupon.isFirstTimeOnly() && orderRepository.existsByUser_Id(guestUser.getId())) {
-                throw new IllegalStateException("This coupon is for first-time customers only.");
-            }
-
-            // Product/Category Specific Validation for guest orders
-            boolean isApplicable = isCouponApplicableToGuestCart(coupon, request.getCartItems());
-            if (!isApplicable) {
-                throw new IllegalStateException("This coupon is not valid for the items in your cart.");
-            }
-            // === End of Validation Logic ===
-
-            // === Start of Discount Calculation ===
-            BigDecimal discountAmount = BigDecimal.ZERO;
-            if (coupon.getDiscountType() == Coupon.DiscountType.FIXED_AMOUNT) {
-                discountAmount = coupon.getDiscountValue();
-            } else if (coupon.getDiscountType() == Coupon.DiscountType.PERCENTAGE) {
-                // Apply percentage discount only on applicable items
-                BigDecimal applicableSubtotal = getApplicableSubtotalForGuestCart(coupon, request.getCartItems());
-                discountAmount = applicableSubtotal.multiply(coupon.getDiscountValue().divide(new BigDecimal("100")));
-            }
-
-            // Handle Free Shipping
-            if (coupon.getDiscountType() == Coupon.DiscountType.FREE_SHIPPING) {
-                order.setShippingCost(BigDecimal.ZERO);
-            }
-            // === End of Discount Calculation ===
-
-            order.setCoupon(coupon);
-            order.setDiscountAmount(discountAmount);
-
-            // Fix: Handle null timesUsed field
-            int currentUsage = coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0;
-            coupon.setTimesUsed(currentUsage + 1);
-            couponRepository.save(coupon);
-        } else {
-            order.setDiscountAmount(BigDecimal.ZERO);
-        }
+        applyCoupon(order, request.getCouponCode(), guestCartLines(request.getCartItems(), checkout), subtotal,
+                guestUser.getId());
         // === END COUPON PROCESSING LOGIC ===
 
-        List<OrderItem> items = createOrderItemsFromDTO(request.getCartItems(), order);
+        List<OrderItem> items = createOrderItemsFromDTO(request.getCartItems(), order, checkout);
         order.setItems(items);
 
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.recordPlaced(savedOrder);
 
-        try {
-            emailService.sendOrderConfirmation(savedOrder);
-        } catch (MailException e) {
-            logger.error("Failed to send guest order confirmation email for order ID " + savedOrder.getId(), e);
-        }
+        // Queued in the outbox, delivered after commit
+        emailService.sendOrderConfirmation(savedOrder);
 
         return orderMapper.toDTO(savedOrder);
     }
@@ -315,9 +219,13 @@ public class OrderService {
         // ======================= FIX START =======================
         // The cart object from the mapper has products with only an ID.
         // We need to load the full product details for each cart item.
+        CheckoutContext checkout = CheckoutContext.forProductIds(cart.getItems().stream()
+                .filter(item -> item.getProduct() != null && item.getProduct().getId() != null)
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet()), productRepository);
         for (CartItem item : cart.getItems()) {
             if (item.getProduct() != null && item.getProduct().getId() != null) {
-                Product fullProduct = productRepository.findById(item.getProduct().getId())
+                Product fullProduct = checkout.findProduct(item.getProduct().getId())
                         .orElseThrow(() -> new ResourceNotFoundException(
                                 "Product not found in cart with ID: " + item.getProduct().getId()));
                 item.setProduct(fullProduct);
@@ -342,76 +250,17 @@ public class OrderService {
         int totalQuantity = cart.getItems().stream().mapToInt(CartItem::getQuantity).sum();
         order.setShippingCost(calculateShippingCost(city, totalQuantity, subtotal));
 
-        if (couponCode != null && !couponCode.trim().isEmpty()) {
-            Coupon coupon = couponRepository.findByCode(couponCode)
-                    .orElseThrow(() -> new ResourceNotFoundException("Coupon not found: " + couponCode));
-
-            // === Start of Validation Logic ===
-
-            if (coupon.getExpiryDate().isBefore(LocalDateTime.now())) {
-                throw new IllegalStateException("Coupon has expired.");
-            }
-            if (coupon.getUsageLimit() > 0
-                    && (coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0) >= coupon.getUsageLimit()) {
-                throw new IllegalStateException("Coupon has reached its usage limit.");
-            }
-            if (coupon.getMinPurchaseAmount() != null && subtotal.compareTo(coupon.getMinPurchaseAmount()) < 0) {
-                throw new IllegalStateException(
-                        "Order total does not meet the minimum purchase amount for this coupon.");
-            }
-
-            // New: First-Time Customer Validation
-            // Corrected method call from existsByUserId to existsByUser_Id
-            if (coupon.isFirstTimeOnly() && orderRepository.existsByUser_Id(userId)) {
-                throw new IllegalStateException("This coupon is for first-time customers only.");
-            }
-
-            // New: Product/Category Specific Validation
-            boolean isApplicable = isCouponApplicableToCart(coupon, cart);
-            if (!isApplicable) {
-                throw new IllegalStateException("This coupon is not valid for the items in your cart.");
-            }
-
-            // === End of Validation Logic ===
-
-            // === Start of Discount Calculation ===
-            BigDecimal discountAmount = BigDecimal.ZERO;
-            if (coupon.getDiscountType() == Coupon.DiscountType.FIXED_AMOUNT) {
-                discountAmount = coupon.getDiscountValue();
-            } else if (coupon.getDiscountType() == Coupon.DiscountType.PERCENTAGE) {
-                // Apply percentage discount only on applicable items
-                BigDecimal applicableSubtotal = getApplicableSubtotal(coupon, cart);
-                discountAmount = applicableSubtotal.multiply(coupon.getDiscountValue().divide(new BigDecimal("100")));
-            }
-
-            // Handle Free Shipping
-            if (coupon.getDiscountType() == Coupon.DiscountType.FREE_SHIPPING) {
-                order.setShippingCost(BigDecimal.ZERO);
-            }
-            // === End of Discount Calculation ===
+        applyCoupon(order, couponCode, cartLines(cart), subtotal, userId);
 
-            order.setCoupon(coupon);
-            order.setDiscountAmount(discountAmount);
-
-            // Fix: Handle null timesUsed field
-            int currentUsage = coupon.getTimesUsed() != null ? coupon.getTimesUsed() : 0;
-            coupon.setTimesUsed(currentUsage + 1);
-            couponRepository.save(coupon);
-        } else {
-            order.setDiscountAmount(BigDecimal.ZERO);
-        }
-
-        List<OrderItem> orderItems = createOrderItems(cart, order);
+        List<OrderItem> orderItems = createOrderItems(cart, order, checkout);
         order.setItems(orderItems);
 
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.recordPlaced(savedOrder);
         cartService.clearCart(userId);
 
-        try {
-            emailService.sendOrderConfirmation(savedOrder);
-        } catch (MailException e) {
-            logger.error("Failed to send order confirmation email for order ID " + savedOrder.getId(), e);
-        }
+        // Queued in the outbox, delivered after commit
+        emailService.sendOrderConfirmation(savedOrder);
 
         OrderDTO orderDTO = orderMapper.toDTO(savedOrder);
 
@@ -421,25 +270,18 @@ public class OrderService {
         return orderDTO;
     }
 
-    private List<OrderItem> createOrderItems(Cart cart, Order order) {
-        return cart.getItems().stream().map(cartItem -> {
+    private List<OrderItem> createOrderItems(Cart cart, Order order, CheckoutContext checkout) {
+        List<OrderItem> orderItems = cart.getItems().stream().map(cartItem -> {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setQuantity(cartItem.getQuantity());
 
             Product product = cartItem.getProduct();
             if (product != null) {
-                // Standard Product Logic
-                if (product.getQuantity() < cartItem.getQuantity()) {
-                    throw new InsufficientStockException("Not enough stock for product " + product.getName());
-                }
-
-                // Decrease stock
-                product.setQuantity(product.getQuantity() - cartItem.getQuantity());
-                productRepository.save(product);
-
+                // Standard Product Logic (stock is reserved for the whole cart below)
                 orderItem.setProduct(product);
                 orderItem.setProductName(product.getName());
+                orderItem.setProductVariantId(cartItem.getProductVariantId());
                 orderItem.setPrice(product.getPrice());
                 if (product.getImages() != null && !product.getImages().isEmpty()) {
                     orderItem.setProductImage(product.getImages().get(0));
@@ -460,52 +302,95 @@ public class OrderService {
 
             return orderItem;
         }).collect(Collectors.toList());
-    }
 
-    private boolean isCouponApplicableToCart(Coupon coupon, Cart cart) {
-        boolean productSpecific = coupon.getApplicableProducts() != null && !coupon.getApplicableProducts().isEmpty();
-        boolean categorySpecific = coupon.getApplicableCategories() != null
-                && !coupon.getApplicableCategories().isEmpty();
+        reserveStock(orderItems, checkout);
+        return orderItems;
+    }
 
-        // If not restricted by product or category, it's applicable to the whole cart
-        if (!productSpecific && !categorySpecific) {
-            return true;
+    /**
+     * Takes stock for every catalog line with guarded batch updates. Lines for the
+     * same product or variant are summed so each row is decremented once; any
+     * rejected row aborts the order and rolls back the whole batch.
+     */
+    private void reserveStock(List<OrderItem> orderItems, CheckoutContext checkout) {
+        Map<Long, Integer> productQuantities = new LinkedHashMap<>();
+        Map<Long, Integer> variantQuantities = new LinkedHashMap<>();
+        Map<Long, String> variantLabels = new HashMap<>();
+
+        for (OrderItem item : orderItems) {
+            Product product = item.getProduct();
+            if (product == null) {
+                continue;
+            }
+            productQuantities.merge(product.getId(), item.getQuantity(), Integer::sum);
+            checkout.findVariant(product, item.getProductVariantId()).ifPresent(variant -> {
+                variantQuantities.merge(variant.getId(), item.getQuantity(), Integer::sum);
+                variantLabels.put(variant.getId(), product.getName() + " (" + item.getVariantName() + ")");
+            });
         }
 
-        return cart.getItems().stream().anyMatch(item -> {
-            boolean matchesProduct = productSpecific && item.getProduct() != null
-                    && coupon.getApplicableProducts().contains(item.getProduct());
-            boolean matchesCategory = categorySpecific && item.getProduct() != null
-                    && item.getProduct().getCategory() != null
-                    && coupon.getApplicableCategories().contains(item.getProduct().getCategory());
-            return matchesProduct || matchesCategory;
+        stockReservationService.reserveProducts(productQuantities).forEach((productId, reserved) -> {
+            if (!reserved) {
+                throw new InsufficientStockException(
+                        "Not enough stock for product " + checkout.getProduct(productId).getName());
+            }
+        });
+        stockReservationService.reserveVariants(variantQuantities).forEach((variantId, reserved) -> {
+            if (!reserved) {
+                throw new InsufficientStockException("Not enough stock for product " + variantLabels.get(variantId));
+            }
         });
     }
 
-    private BigDecimal getApplicableSubtotal(Coupon coupon, Cart cart) {
-        boolean productSpecific = coupon.getApplicableProducts() != null && !coupon.getApplicableProducts().isEmpty();
-        boolean categorySpecific = coupon.getApplicableCategories() != null
-                && !coupon.getApplicableCategories().isEmpty();
-
-        if (!productSpecific && !categorySpecific) {
-            return calculateSubtotal(cart.getItems()); // Apply to whole cart if no restrictions
+    /**
+     * Validates the coupon (if any) and applies its discount to the order.
+     * Shared by cart, guest and direct checkouts.
+     */
+    private void applyCoupon(Order order, String couponCode, List<CouponRule.Line> lines, BigDecimal subtotal,
+            Long userId) {
+        if (couponCode == null || couponCode.trim().isEmpty()) {
+            order.setDiscountAmount(BigDecimal.ZERO);
+            return;
         }
+        CouponRule.Evaluation evaluation = couponEngine.evaluate(couponCode, lines, subtotal, userId);
+        if (evaluation.isFreeShipping()) {
+            order.setShippingCost(BigDecimal.ZERO);
+        }
+        order.setCoupon(couponRepository.getReferenceById(evaluation.getRule().getCouponId()));
+        order.setDiscountAmount(evaluation.getDiscountAmount());
+
+        // Atomic, limit-guarded increment (no read-modify-write on the coupon row)
+        couponRedemptionService.redeem(evaluation.getRule());
+    }
 
+    private List<CouponRule.Line> cartLines(Cart cart) {
         return cart.getItems().stream()
-                .filter(item -> {
-                    boolean matchesProduct = productSpecific
-                            && item.getProduct() != null
-                            && coupon.getApplicableProducts().contains(item.getProduct());
-                    boolean matchesCategory = categorySpecific && item.getProduct() != null
-                            && item.getProduct().getCategory() != null
-                            && coupon.getApplicableCategories().contains(item.getProduct().getCategory());
-                    return matchesProduct || matchesCategory;
-                })
                 .map(item -> {
-                    BigDecimal price = item.getProduct() != null ? item.getProduct().getPrice() : item.getPrice();
-                    return price.multiply(new BigDecimal(item.getQuantity()));
+                    Product product = item.getProduct();
+                    BigDecimal price = product != null ? product.getPrice() : item.getPrice();
+                    return new CouponRule.Line(product != null ? product.getId() : null,
+                            product != null && product.getCategory() != null ? product.getCategory().getId() : null,
+                            price.multiply(new BigDecimal(item.getQuantity())));
                 })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                .collect(Collectors.toList());
+    }
+
+    private List<CouponRule.Line> guestCartLines(List<CartItemDTO> cartItems, CheckoutContext checkout) {
+        return cartItems.stream()
+                .map(itemDTO -> {
+                    if (itemDTO.getProductId() == null) {
+                        // Direct order item: counts towards the subtotal but never matches a restricted coupon
+                        return new CouponRule.Line(null, null,
+                                itemDTO.getPrice().multiply(new BigDecimal(itemDTO.getQuantity())));
+                    }
+                    Product product = checkout.getProduct(itemDTO.getProductId());
+                    // Use price from DTO if available (for packs/variants), else use DB price
+                    BigDecimal price = itemDTO.getPrice() != null ? itemDTO.getPrice() : product.getPrice();
+                    return new CouponRule.Line(product.getId(),
+                            product.getCategory() != null ? product.getCategory().getId() : null,
+                            price.multiply(new BigDecimal(itemDTO.getQuantity())));
+                })
+                .collect(Collectors.toList());
     }
 
     private BigDecimal calculateSubtotal(List<CartItem> items) {
@@ -517,13 +402,11 @@ public class OrderService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    private BigDecimal calculateSubtotalForGuestOrder(List<CartItemDTO> cartItems) {
+    private BigDecimal calculateSubtotalForGuestOrder(List<CartItemDTO> cartItems, CheckoutContext checkout) {
         return cartItems.stream()
                 .map(itemDTO -> {
                     if (itemDTO.getProductId() != null) {
-                        Product product = productRepository.findById(itemDTO.getProductId())
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                        "Product not found with id: " + itemDTO.getProductId()));
+                        Product product = checkout.getProduct(itemDTO.getProductId());
 
                         // Fix: Use price from DTO if available (for packs/variants), else use DB price
                         if (itemDTO.getPrice() != null) {
@@ -541,77 +424,6 @@ public class OrderService {
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
-    private boolean isCouponApplicableToGuestCart(Coupon coupon, List<CartItemDTO> cartItems) {
-        boolean productSpecific = coupon.getApplicableProducts() != null && !coupon.getApplicableProducts().isEmpty();
-        boolean categorySpecific = coupon.getApplicableCategories() != null
-                && !coupon.getApplicableCategories().isEmpty();
-
-        // If not restricted by product or category, it's applicable to the whole cart
-        if (!productSpecific && !categorySpecific) {
-            return true;
-        }
-
-        return cartItems.stream().anyMatch(itemDTO -> {
-            if (itemDTO.getProductId() != null) {
-                Product product = productRepository.findById(itemDTO.getProductId())
-                        .orElseThrow(() -> new ResourceNotFoundException(
-                                "Product not found with id: " + itemDTO.getProductId()));
-
-                boolean matchesProduct = productSpecific && coupon.getApplicableProducts().contains(product);
-                boolean matchesCategory = categorySpecific
-                        && coupon.getApplicableCategories().contains(product.getCategory());
-                return matchesProduct || matchesCategory;
-            } else {
-                // Direct items cannot match specific products/categories in this implementation
-                // unless we map variant names or titles to categories, which is complex.
-                // For now, assume Not Applicable if restricted.
-                return false;
-            }
-        });
-    }
-
-    private BigDecimal getApplicableSubtotalForGuestCart(Coupon coupon, List<CartItemDTO> cartItems) {
-        boolean productSpecific = coupon.getApplicableProducts() != null && !coupon.getApplicableProducts().isEmpty();
-        boolean categorySpecific = coupon.getApplicableCategories() != null
-                && !coupon.getApplicableCategories().isEmpty();
-
-        if (!productSpecific && !categorySpecific) {
-            return calculateSubtotalForGuestOrder(cartItems); // Apply to whole cart if no restrictions
-        }
-
-        return cartItems.stream()
-                .filter(itemDTO -> {
-                    if (itemDTO.getProductId() != null) {
-                        Product product = productRepository.findById(itemDTO.getProductId())
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                        "Product not found with id: " + itemDTO.getProductId()));
-
-                        boolean matchesProduct = productSpecific && coupon.getApplicableProducts().contains(product);
-                        boolean matchesCategory = categorySpecific && product.getCategory() != null
-                                && coupon.getApplicableCategories().contains(product.getCategory());
-                        return matchesProduct || matchesCategory;
-                    } else {
-                        return false;
-                    }
-                })
-                .map(itemDTO -> {
-                    // We already fetched product in filter, but clean code:
-                    if (itemDTO.getProductId() != null) {
-                        // Fix: Use price from DTO if available
-                        if (itemDTO.getPrice() != null) {
-                            return itemDTO.getPrice().multiply(new BigDecimal(itemDTO.getQuantity()));
-                        }
-
-                        Product product = productRepository.findById(itemDTO.getProductId())
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                        "Product not found with id: " + itemDTO.getProductId()));
-                        return product.getPrice().multiply(new BigDecimal(itemDTO.getQuantity()));
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
         return orderMapper.toDTOs(orderRepository.findByDeletedFalseOrderByCreatedAtDesc());
@@ -631,14 +443,18 @@ public class OrderService {
         return orderMapper.toDTOs(orderRepository.findByUser_Id(userId));
     }
 
+    @Transactional
     public OrderDTO updateOrderStatus(Long orderId, Order.OrderStatus status) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         Order.OrderStatus oldStatus = order.getStatus();
         order.setStatus(status);
         // FORCE FLUSH to ensure the countByUser query sees this order as DELIVERED
         Order updatedOrder = orderRepository.saveAndFlush(order);
+        if (!order.isDeleted()) {
+            salesRollupService.recordStatusChange(updatedOrder, oldStatus);
+        }
 
         // Check if status changed to DELIVERED
         if (oldStatus != Order.OrderStatus.DELIVERED && status == Order.OrderStatus.DELIVERED) {
@@ -728,18 +544,26 @@ public class OrderService {
         }
     }
 
+    @Transactional
     public void softDeleteOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
 
+        if (!order.isDeleted()) {
+            salesRollupService.recordDeleted(order);
+        }
         order.setDeleted(true);
         orderRepository.save(order);
     }
 
+    @Transactional
     public void restoreOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
 
+        if (order.isDeleted()) {
+            salesRollupService.recordRestored(order);
+        }
         order.setDeleted(false);
         orderRepository.save(order);
     }
@@ -750,71 +574,7 @@ public class OrderService {
 
     public void deleteAllOrders() {
         orderRepository.deleteAll();
-    }
-
-    public String exportOrdersToCsv() {
-        List<Order> orders = orderRepository.findAllForExportWithRelations();
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-
-        // Enhanced CSV header with comprehensive order information
-        pw.println("Order ID,User ID,Customer Name,City,Address,Phone Number,Status,Created At," +
-                "Coupon Code,Discount Amount,Shipping Cost,Total Items,Total Quantity," +
-                "Order Items Details,Total Amount");
-
-        for (Order order : orders) {
-            // Calculate order totals
-            int totalItems = order.getItems().size();
-            int totalQuantity = order.getItems().stream()
-                    .mapToInt(OrderItem::getQuantity)
-                    .sum();
-
-            // Calculate total amount from items
-            BigDecimal itemsTotal = order.getItems().stream()
-                    .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Calculate final total (items total - discount + shipping)
-            BigDecimal discountAmount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
-            BigDecimal shippingCost = order.getShippingCost() != null ? order.getShippingCost() : BigDecimal.ZERO;
-            BigDecimal finalTotal = itemsTotal.subtract(discountAmount).add(shippingCost);
-
-            // Format order items details
-            StringBuilder itemsDetails = new StringBuilder();
-            for (OrderItem item : order.getItems()) {
-                if (itemsDetails.length() > 0) {
-                    itemsDetails.append("; ");
-                }
-                String pName = item.getProductName() != null ? item.getProductName()
-                        : (item.getProduct() != null ? item.getProduct().getName() : "Unknown Product");
-                itemsDetails.append(pName)
-                        .append(" (Qty: ").append(item.getQuantity())
-                        .append(", Price: $").append(item.getPrice())
-                        .append(")");
-            }
-
-            // Escape CSV values that contain commas or quotes
-            String escapedItemsDetails = "\"" + itemsDetails.toString().replace("\"", "\"\"") + "\"";
-            String escapedAddress = "\"" + order.getAddress().replace("\"", "\"\"") + "\"";
-
-            pw.println(String.join(",",
-                    String.valueOf(order.getId()),
-                    order.getUser() != null ? String.valueOf(order.getUser().getId()) : "N/A",
-                    "\"" + order.getClientFullName().replace("\"", "\"\"") + "\"",
-                    "\"" + order.getCity().replace("\"", "\"\"") + "\"",
-                    escapedAddress,
-                    "\"" + order.getPhoneNumber().replace("\"", "\"\"") + "\"",
-                    String.valueOf(order.getStatus()),
-                    String.valueOf(order.getCreatedAt()),
-                    order.getCoupon() != null ? "\"" + order.getCoupon().getCode().replace("\"", "\"\"") + "\"" : "N/A",
-                    discountAmount.toString(),
-                    shippingCost.toString(),
-                    String.valueOf(totalItems),
-                    String.valueOf(totalQuantity),
-                    escapedItemsDetails,
-                    finalTotal.toString()));
-        }
-        return sw.toString();
+        salesRollupService.clear();
     }
 
     /**
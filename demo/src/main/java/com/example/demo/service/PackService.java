@@ -127,6 +127,7 @@ public class PackService {
 
         if (imageFile != null && !imageFile.isEmpty()) {
             String newImageUrl = localFileService.saveImage(imageFile, "packs");
+            localFileService.deleteImageAfterCommit(pack.getImageUrl());
             pack.setImageUrl(newImageUrl);
         }
 
@@ -155,7 +156,9 @@ public class PackService {
         return packMapper.toResponseDTO(updatedPack);
     }
 
+    @Transactional
     public void deletePack(Long id) {
+        packRepository.findById(id).ifPresent(pack -> localFileService.deleteImageAfterCommit(pack.getImageUrl()));
         packRepository.deleteById(id);
     }
 
@@ -321,6 +324,7 @@ public class PackService {
             if (compositeImageBytes != null && compositeImageBytes.length > 0) {
                 logger.info("Uploading composite image to local storage for pack ID {}.", pack.getId());
                 String newImageUrl = localFileService.saveImage(compositeImageBytes, "pack-" + pack.getId() + "-composite.png", "packs");
+                localFileService.deleteImageAfterCommit(pack.getImageUrl());
                 pack.setImageUrl(newImageUrl);
                 logger.info("Successfully updated image URL for pack ID {} to: {}", pack.getId(), newImageUrl);
             } else {
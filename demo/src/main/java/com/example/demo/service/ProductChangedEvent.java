@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when a product is created, updated, deleted or restored, so data
+ * derived from it (landing pages showing the product, the search index) can
+ * be refreshed.
+ */
+@Data
+@AllArgsConstructor
+public class ProductChangedEvent {
+    private final Long productId;
+}
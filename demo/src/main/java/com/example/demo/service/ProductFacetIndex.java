@@ -0,0 +1,387 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductFacetsDTO;
+import com.example.demo.model.Product;
+import com.example.demo.specification.ProductSpecification;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * In-memory facet counts for catalog browsing.
+ *
+ * Non-deleted products are numbered 0..n-1 and every facet value (category,
+ * brand, type, bestseller, new arrival) holds a {@link BitSet} of the
+ * products having it; prices are kept sorted so a price range becomes a
+ * bitmap with two binary searches. A filter combination is the AND of its
+ * bitmaps, and each facet is counted by AND-ing the other filters with each
+ * of its values, so facet counts and price histograms need no query.
+ *
+ * Product changes mark the snapshot stale and it is rebuilt by the next
+ * scheduled refresh, like {@link ProductSuggestionIndex}.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductFacetIndex {
+    private final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    static final int DEFAULT_BUCKETS = 8;
+    static final int MAX_BUCKETS = 20;
+
+    private static final String SELECT_PRODUCTS_SQL =
+            "SELECT p.id, p.name, p.price, p.brand, p.bestseller, p.new_arrival, p.type, p.category_id, c.name " +
+            "FROM product p LEFT JOIN categories c ON c.id = p.category_id WHERE p.deleted = false";
+
+    private enum Facet {
+        SEARCH, CATEGORY, BRAND, TYPE, BESTSELLER, NEW_ARRIVAL, PRICE
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductSearchIndex productSearchIndex;
+
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private volatile Snapshot snapshot;
+
+    /**
+     * Facet counts for the same filters as the catalog listing.
+     *
+     * @param buckets number of price histogram buckets wanted (approximate,
+     *                bucket bounds are rounded to 1, 2 or 5 times a power of ten)
+     */
+    public ProductFacetsDTO facets(String search, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                   String brand, Boolean bestseller, Boolean newArrival, String type, Integer buckets) {
+        Snapshot s = snapshot;
+        if (s == null) {
+            s = rebuild();
+        }
+
+        Map<Facet, BitSet> filters = new EnumMap<>(Facet.class);
+        if (search != null && !search.isBlank()) {
+            filters.put(Facet.SEARCH, search(s, search));
+        }
+        if (categoryId != null) {
+            filters.put(Facet.CATEGORY, s.categories.getOrDefault(categoryId, new BitSet()));
+        }
+        if (brand != null && !brand.isBlank()) {
+            filters.put(Facet.BRAND, s.brands.getOrDefault(ProductSpecification.brandKey(brand), new BitSet()));
+        }
+        if (type != null && !type.isEmpty()) {
+            // Same rules as the listing: invalid names are ignored, a type without products matches nothing
+            Product.ProductType productType = ProductSpecification.parseType(type);
+            if (productType != null) {
+                filters.put(Facet.TYPE, s.types.getOrDefault(productType.name(), new BitSet()));
+            }
+        }
+        if (Boolean.TRUE.equals(bestseller)) {
+            filters.put(Facet.BESTSELLER, s.bestsellers);
+        }
+        if (Boolean.TRUE.equals(newArrival)) {
+            filters.put(Facet.NEW_ARRIVAL, s.newArrivals);
+        }
+        if (minPrice != null || maxPrice != null) {
+            filters.put(Facet.PRICE, s.priceRange(minPrice, maxPrice));
+        }
+
+        BitSet matching = match(s, filters, null);
+        BitSet anyPrice = match(s, filters, Facet.PRICE);
+        int bucketCount = buckets == null ? DEFAULT_BUCKETS : Math.max(1, Math.min(buckets, MAX_BUCKETS));
+        return new ProductFacetsDTO(
+                matching.cardinality(),
+                counts(s.categories, match(s, filters, Facet.CATEGORY), id -> String.valueOf(id), s.categoryNames::get),
+                counts(s.brands, match(s, filters, Facet.BRAND), key -> key, s.brandLabels::get),
+                counts(s.types, match(s, filters, Facet.TYPE), key -> key, key -> key),
+                intersectionCount(match(s, filters, Facet.BESTSELLER), s.bestsellers),
+                intersectionCount(match(s, filters, Facet.NEW_ARRIVAL), s.newArrivals),
+                s.minPrice(anyPrice),
+                s.maxPrice(anyPrice),
+                s.histogram(anyPrice, bucketCount));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${product.facets.refresh-interval-ms:5000}")
+    public void refreshIfStale() {
+        if (stale.get()) {
+            rebuildQuietly();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // Keep serving the previous snapshot; stays stale so the next refresh retries
+            logger.error("Failed to rebuild product facets", e);
+        }
+    }
+
+    synchronized Snapshot rebuild() {
+        // Cleared first: a change committed while loading marks it stale again
+        stale.set(false);
+        List<ProductRow> rows = new ArrayList<>();
+        try {
+            jdbcTemplate.query(SELECT_PRODUCTS_SQL, rs -> {
+                rows.add(new ProductRow(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3), rs.getString(4),
+                        rs.getBoolean(5), rs.getBoolean(6), rs.getString(7), rs.getObject(8, Long.class),
+                        rs.getString(9)));
+            });
+        } catch (DataAccessException e) {
+            stale.set(true);
+            throw e;
+        }
+        Snapshot built = new Snapshot(rows);
+        snapshot = built;
+        return built;
+    }
+
+    /**
+     * Products matching a search: through the full-text index when the query
+     * allows it, otherwise by name substring as in the listing.
+     */
+    private BitSet search(Snapshot s, String query) {
+        if (productSearchIndex.isSearchable(query)) {
+            return s.positionsOf(productSearchIndex.search(query));
+        }
+        return s.nameContains(SearchText.normalize(query));
+    }
+
+    private static BitSet match(Snapshot s, Map<Facet, BitSet> filters, Facet except) {
+        BitSet result = (BitSet) s.all.clone();
+        filters.forEach((facet, bits) -> {
+            if (facet != except) {
+                result.and(bits);
+            }
+        });
+        return result;
+    }
+
+    private static <K> List<ProductFacetsDTO.FacetCount> counts(Map<K, BitSet> values, BitSet matching,
+                                                                 Function<K, String> value,
+                                                                 Function<K, String> label) {
+        List<ProductFacetsDTO.FacetCount> counts = new ArrayList<>();
+        values.forEach((key, bits) -> {
+            long count = intersectionCount(matching, bits);
+            if (count > 0) {
+                counts.add(new ProductFacetsDTO.FacetCount(value.apply(key), label.apply(key), count));
+            }
+        });
+        counts.sort(Comparator.comparingLong(ProductFacetsDTO.FacetCount::getCount).reversed()
+                .thenComparing(ProductFacetsDTO.FacetCount::getLabel, Comparator.nullsLast(Comparator.naturalOrder())));
+        return counts;
+    }
+
+    private static long intersectionCount(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private record ProductRow(long id, String name, BigDecimal price, String brand, boolean bestseller,
+                              boolean newArrival, String type, Long categoryId, String categoryName) {
+    }
+
+    /**
+     * Bitmaps of one catalog load. Never modified after construction.
+     */
+    static final class Snapshot {
+        private final Map<Long, Integer> positions = new HashMap<>();
+        private final String[] normalizedNames;
+        private final BigDecimal[] prices;
+        private final int[] byPrice;
+        private final BitSet all = new BitSet();
+        private final BitSet bestsellers = new BitSet();
+        private final BitSet newArrivals = new BitSet();
+        private final Map<Long, BitSet> categories = new LinkedHashMap<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final Map<String, BitSet> brands = new LinkedHashMap<>();
+        private final Map<String, String> brandLabels = new HashMap<>();
+        private final Map<String, BitSet> types = new LinkedHashMap<>();
+
+        private Snapshot(List<ProductRow> rows) {
+            normalizedNames = new String[rows.size()];
+            prices = new BigDecimal[rows.size()];
+            List<Integer> priced = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                ProductRow row = rows.get(i);
+                positions.put(row.id(), i);
+                normalizedNames[i] = SearchText.normalize(row.name());
+                prices[i] = row.price();
+                if (row.price() != null) {
+                    priced.add(i);
+                }
+                all.set(i);
+                if (row.bestseller()) {
+                    bestsellers.set(i);
+                }
+                if (row.newArrival()) {
+                    newArrivals.set(i);
+                }
+                if (row.categoryId() != null) {
+                    categories.computeIfAbsent(row.categoryId(), k -> new BitSet()).set(i);
+                    categoryNames.put(row.categoryId(), row.categoryName());
+                }
+                if (row.brand() != null && !row.brand().isBlank()) {
+                    String key = ProductSpecification.brandKey(row.brand());
+                    brands.computeIfAbsent(key, k -> new BitSet()).set(i);
+                    brandLabels.putIfAbsent(key, row.brand().trim());
+                }
+                if (row.type() != null) {
+                    types.computeIfAbsent(row.type(), k -> new BitSet()).set(i);
+                }
+            }
+            byPrice = priced.stream()
+                    .sorted(Comparator.comparing(position -> prices[position]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        BitSet positionsOf(List<Long> productIds) {
+            BitSet result = new BitSet();
+            for (Long id : productIds) {
+                Integer position = positions.get(id);
+                if (position != null) {
+                    result.set(position);
+                }
+            }
+            return result;
+        }
+
+        BitSet nameContains(String normalized) {
+            BitSet result = new BitSet();
+            for (int i = 0; i < normalizedNames.length; i++) {
+                if (normalizedNames[i].contains(normalized)) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Products priced between the bounds (inclusive, either may be null).
+         */
+        BitSet priceRange(BigDecimal min, BigDecimal max) {
+            int from = min == null ? 0 : firstNotBelow(min);
+            int to = max == null ? byPrice.length : firstAbove(max);
+            BitSet result = new BitSet();
+            for (int i = from; i < to; i++) {
+                result.set(byPrice[i]);
+            }
+            return result;
+        }
+
+        BigDecimal minPrice(BitSet matching) {
+            for (int position : byPrice) {
+                if (matching.get(position)) {
+                    return prices[position];
+                }
+            }
+            return null;
+        }
+
+        BigDecimal maxPrice(BitSet matching) {
+            for (int i = byPrice.length - 1; i >= 0; i--) {
+                if (matching.get(byPrice[i])) {
+                    return prices[byPrice[i]];
+                }
+            }
+            return null;
+        }
+
+        List<ProductFacetsDTO.PriceBucket> histogram(BitSet matching, int bucketCount) {
+            BigDecimal min = minPrice(matching);
+            BigDecimal max = maxPrice(matching);
+            if (min == null) {
+                return List.of();
+            }
+            BigDecimal width = niceWidth(max.subtract(min).divide(BigDecimal.valueOf(bucketCount), 4,
+                    RoundingMode.CEILING));
+            BigDecimal start = min.divide(width, 0, RoundingMode.FLOOR).multiply(width);
+            int count = max.subtract(start).divide(width, 0, RoundingMode.FLOOR).intValue() + 1;
+            long[] counts = new long[count];
+            for (int position = matching.nextSetBit(0); position >= 0; position = matching.nextSetBit(position + 1)) {
+                if (prices[position] != null) {
+                    counts[prices[position].subtract(start).divide(width, 0, RoundingMode.FLOOR).intValue()]++;
+                }
+            }
+            List<ProductFacetsDTO.PriceBucket> histogram = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BigDecimal from = start.add(width.multiply(BigDecimal.valueOf(i)));
+                histogram.add(new ProductFacetsDTO.PriceBucket(from, from.add(width), counts[i]));
+            }
+            return histogram;
+        }
+
+        private int firstNotBelow(BigDecimal price) {
+            int low = 0;
+            int high = byPrice.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[byPrice[mid]].compareTo(price) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int firstAbove(BigDecimal price) {
+            int low = 0;
+            int high = byPrice.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[byPrice[mid]].compareTo(price) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Smallest 1, 2 or 5 times a power of ten not below the raw width
+         * (at least 1, prices are not bucketed below the unit).
+         */
+        static BigDecimal niceWidth(BigDecimal raw) {
+            if (raw.compareTo(BigDecimal.ONE) <= 0) {
+                return BigDecimal.ONE;
+            }
+            BigDecimal power = BigDecimal.ONE;
+            while (true) {
+                for (int step : new int[] { 1, 2, 5 }) {
+                    BigDecimal width = power.multiply(BigDecimal.valueOf(step));
+                    if (width.compareTo(raw) >= 0) {
+                        return width;
+                    }
+                }
+                power = power.multiply(BigDecimal.TEN);
+            }
+        }
+    }
+}
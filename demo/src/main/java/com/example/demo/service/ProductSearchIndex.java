@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text product search over the {@code product_search} table.
+ *
+ * Each non-deleted product has one row holding its text normalized with
+ * {@link SearchText}: the name, the "tags" (brand, category, variant type
+ * names and option values) and the description. MySQL FULLTEXT indexes on
+ * these columns answer searches without scanning the catalog, and results are
+ * ranked by relevance with name matches weighted above tags, and tags above
+ * the description.
+ *
+ * Rows are rewritten from the database after every committed product change
+ * ({@link ProductChangedEvent}), and the whole index is rebuilt nightly and on
+ * startup when empty, which also picks up category renames.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+    private final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    // InnoDB's default innodb_ft_min_token_size; shorter terms are not indexed
+    static final int MIN_TERM_LENGTH = 3;
+
+    private static final String SELECT_PRODUCT_SQL =
+            "SELECT p.name, p.brand, p.description, c.name FROM product p " +
+            "LEFT JOIN categories c ON c.id = p.category_id WHERE p.id = ? AND p.deleted = false";
+    private static final String SELECT_VARIANT_TERMS_SQL =
+            "SELECT t.name FROM variant_type t WHERE t.product_id = ? " +
+            "UNION SELECT o.value FROM variant_option o JOIN variant_type t ON t.id = o.variant_type_id " +
+            "WHERE t.product_id = ?";
+    private static final String UPSERT_SQL =
+            "INSERT INTO product_search (product_id, name_text, tags_text, body_text) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name_text = VALUES(name_text), tags_text = VALUES(tags_text), " +
+            "body_text = VALUES(body_text)";
+    private static final String DELETE_SQL = "DELETE FROM product_search WHERE product_id = ?";
+    private static final String SELECT_PRODUCT_IDS_SQL = "SELECT id FROM product WHERE deleted = false";
+    private static final String DELETE_STALE_SQL =
+            "DELETE s FROM product_search s LEFT JOIN product p ON p.id = s.product_id " +
+            "WHERE p.id IS NULL OR p.deleted = true";
+    private static final String SEARCH_SQL =
+            "SELECT product_id FROM product_search " +
+            "WHERE MATCH(name_text, tags_text, body_text) AGAINST (? IN BOOLEAN MODE) " +
+            "ORDER BY 4 * MATCH(name_text) AGAINST (? IN BOOLEAN MODE) " +
+            "+ 2 * MATCH(tags_text) AGAINST (? IN BOOLEAN MODE) " +
+            "+ MATCH(body_text) AGAINST (? IN BOOLEAN MODE) DESC, product_id DESC LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${product.search.max-results:1000}")
+    private int maxResults;
+
+    /**
+     * Whether the query has terms the index can match. Queries made only of
+     * very short terms are left to the LIKE filter.
+     */
+    public boolean isSearchable(String query) {
+        return toBooleanQuery(query) != null;
+    }
+
+    /**
+     * Ids of the non-deleted products matching every term of the query (each
+     * as a prefix), most relevant first, at most {@code product.search.max-results}.
+     */
+    public List<Long> search(String query) {
+        String booleanQuery = toBooleanQuery(query);
+        if (booleanQuery == null) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(SEARCH_SQL, Long.class,
+                booleanQuery, booleanQuery, booleanQuery, booleanQuery, maxResults);
+    }
+
+    /**
+     * Rewrites the row of a product from the database, or removes it if the
+     * product no longer exists or is deleted.
+     */
+    public void reindex(Long productId) {
+        List<Object[]> product = jdbcTemplate.query(SELECT_PRODUCT_SQL, (rs, rowNum) -> new Object[] {
+                rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4) }, productId);
+        if (product.isEmpty()) {
+            jdbcTemplate.update(DELETE_SQL, productId);
+            return;
+        }
+        Object[] row = product.get(0);
+        List<String> variantTerms = jdbcTemplate.queryForList(SELECT_VARIANT_TERMS_SQL, String.class,
+                productId, productId);
+
+        StringJoiner tags = new StringJoiner(" ");
+        tags.add(SearchText.normalize((String) row[1]));
+        tags.add(SearchText.normalize((String) row[3]));
+        variantTerms.forEach(term -> tags.add(SearchText.normalize(term)));
+        jdbcTemplate.update(UPSERT_SQL, productId, SearchText.normalize((String) row[0]),
+                tags.toString().trim(), SearchText.normalize((String) row[2]));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        try {
+            reindex(event.getProductId());
+        } catch (DataAccessException e) {
+            // The product change is committed; the nightly rebuild will index it
+            logger.error("Failed to reindex product {} for search", event.getProductId(), e);
+        }
+    }
+
+    @Scheduled(cron = "${product.search.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        List<Long> productIds = jdbcTemplate.queryForList(SELECT_PRODUCT_IDS_SQL, Long.class);
+        for (Long productId : productIds) {
+            reindex(productId);
+        }
+        jdbcTemplate.update(DELETE_STALE_SQL);
+        logger.info("Rebuilt product search index ({} products)", productIds.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIfEmpty() {
+        Integer indexed = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_search", Integer.class);
+        if (indexed != null && indexed == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Turns a user query into a boolean-mode FULLTEXT query requiring every
+     * term as a prefix ({@code +creme* +hydra*}), or null if no term is long
+     * enough to be indexed. Normalization leaves only letters and digits, so
+     * users can't inject FULLTEXT operators.
+     */
+    static String toBooleanQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        for (String term : SearchText.terms(query)) {
+            if (term.length() >= MIN_TERM_LENGTH) {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return terms.stream().distinct().map(term -> "+" + term + "*").collect(Collectors.joining(" "));
+    }
+}
@@ -2,21 +2,37 @@ package com.example.demo.service;
 
 import com.example.demo.dto.FrequentlyBoughtTogetherDTO;
 import com.example.demo.dto.ProductDTO;
+import com.example.demo.dto.ProductFacetsDTO;
+import com.example.demo.dto.ProductListDTO;
 import com.example.demo.dto.ProductVariantDto;
 import com.example.demo.dto.VariantTypeDto;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.mapper.ProductMapper;
 import com.example.demo.model.*;
 import com.example.demo.repositories.CategoryRepository;
+import com.example.demo.repositories.CommentRepository;
 import com.example.demo.repositories.ProductRepository;
 import com.example.demo.repositories.OrderItemRepository;
 import com.example.demo.repositories.CartItemRepository;
 import com.example.demo.repositories.PackItemRepository;
 import com.example.demo.specification.ProductSpecification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,6 +45,9 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
+    // Upper bound of the bestseller / new arrival lists
+    static final int MAX_FEATURED = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
@@ -44,6 +63,9 @@ public class ProductService {
     @Autowired
     private PackItemRepository packItemRepository;
 
+    @Autowired
+    private CommentRepository commentRepository;
+
     @Autowired
     private LocalFileService localFileService;
 
@@ -53,6 +75,21 @@ public class ProductService {
     @Autowired
     private ProductSpecification productSpecification;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestionIndex productSuggestionIndex;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Transactional
     public ProductDTO createProductWithImages(ProductDTO productDTO, List<MultipartFile> images) throws IOException {
         // Validate product data
@@ -93,6 +130,7 @@ public class ProductService {
         updateVariantsForProduct(product, productDTO);
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
         return productMapper.toDTO(savedProduct);
     }
 
@@ -108,6 +146,7 @@ public class ProductService {
 
         Product existingProduct = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        Set<String> previousImageUrls = imageUrlsOf(existingProduct);
 
         // Update basic fields
         productMapper.updateProductFromDto(productDTO, existingProduct);
@@ -139,9 +178,25 @@ public class ProductService {
         updateVariantsForProduct(existingProduct, productDTO);
 
         Product updatedProduct = productRepository.save(existingProduct);
+        // Images the admin removed (from the gallery or a variant) are no longer referenced
+        previousImageUrls.removeAll(imageUrlsOf(updatedProduct));
+        previousImageUrls.forEach(localFileService::deleteImageAfterCommit);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
         return productMapper.toDTO(updatedProduct);
     }
 
+    private static Set<String> imageUrlsOf(Product product) {
+        Set<String> urls = new HashSet<>();
+        if (product.getImages() != null) {
+            urls.addAll(product.getImages());
+        }
+        if (product.getVariants() != null) {
+            product.getVariants().forEach(variant -> urls.add(variant.getImageUrl()));
+        }
+        urls.remove(null);
+        return urls;
+    }
+
     private void updateVariantsForProduct(Product product, ProductDTO productDTO) {
         // Clear existing variants
         product.getVariantTypes().clear();
@@ -275,36 +330,151 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
-    public Page<ProductDTO> getAllProducts(String search, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+    public Page<ProductListDTO> getAllProducts(String search, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
             String brand, Boolean bestseller, Boolean newArrival, String type, Pageable pageable) {
-        Specification<Product> spec = productSpecification.getProducts(search, minPrice, maxPrice, brand, bestseller,
-                newArrival, categoryId, type);
+        // Searches go to the full-text index; queries of only very short terms keep the LIKE filter
+        boolean indexed = search != null && productSearchIndex.isSearchable(search);
+        Specification<Product> spec = productSpecification.getProducts(indexed ? null : search, minPrice, maxPrice,
+                brand, bestseller, newArrival, categoryId, type);
         // Add condition to exclude deleted products
         spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("deleted"), false));
-        return productRepository.findAll(spec, pageable)
-                .map(productMapper::toDTO);
+        if (!indexed) {
+            return findCards(spec, pageable);
+        }
+
+        List<Long> rankedIds = productSearchIndex.search(search);
+        if (rankedIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        spec = spec.and((root, query, criteriaBuilder) -> root.get("id").in(rankedIds));
+        if (pageable.getSort().isSorted()) {
+            // An explicit sort (price, name...) wins over relevance
+            return findCards(spec, pageable);
+        }
+        return findByRelevance(rankedIds, spec, pageable);
     }
 
-    @Transactional(readOnly = true)
-    public List<String> getProductSuggestions(String query) {
-        List<Product> products = productRepository.findByNameContainingIgnoreCaseAndDeletedFalse(query);
-        return products.stream()
-                .map(Product::getName)
+    /**
+     * One page of product cards matching the specification, read with a
+     * constructor projection (only the card columns) plus a count query.
+     */
+    private Page<ProductListDTO> findCards(Specification<Product> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListDTO> query = cb.createQuery(ProductListDTO.class);
+        Root<Product> root = query.from(Product.class);
+        Join<Product, Category> category = root.join("category");
+        query.select(cb.construct(ProductListDTO.class, root.get("id"), root.get("name"), root.get("price"),
+                        root.get("quantity"), root.get("brand"), category.get("id"), category.get("name"),
+                        root.get("type"), root.get("bestseller"), root.get("newArrival"), root.get("hasVariants")))
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        TypedQuery<ProductListDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<ProductListDTO> cards = fillCardDetails(typedQuery.getResultList());
+
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Product> countRoot = countQuery.from(Product.class);
+        countQuery.select(cb.count(countRoot)).where(spec.toPredicate(countRoot, countQuery, cb));
+        return PageableExecutionUtils.getPage(cards, pageable,
+                () -> entityManager.createQuery(countQuery).getSingleResult());
+    }
+
+    /**
+     * Pages through search results in relevance order: the filters select
+     * which of the ranked ids remain (ids only), then just the cards of the
+     * requested page are loaded.
+     */
+    private Page<ProductListDTO> findByRelevance(List<Long> rankedIds, Specification<Product> spec,
+            Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> idQuery = cb.createQuery(Long.class);
+        Root<Product> root = idQuery.from(Product.class);
+        idQuery.select(root.get("id")).where(spec.toPredicate(root, idQuery, cb));
+        Set<Long> matching = new HashSet<>(entityManager.createQuery(idQuery).getResultList());
+
+        List<Long> orderedIds = rankedIds.stream().filter(matching::contains).collect(Collectors.toList());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(loadCardsInOrder(orderedIds), pageable, orderedIds.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), orderedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), orderedIds.size());
+        return new PageImpl<>(loadCardsInOrder(orderedIds.subList(from, to)), pageable, orderedIds.size());
+    }
+
+    private List<ProductListDTO> loadCardsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductListDTO> byId = productRepository.findCardsByIds(ids).stream()
+                .collect(Collectors.toMap(ProductListDTO::getId, card -> card));
+        return fillCardDetails(ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Adds the first image, variant stock and rating to a page of cards, with
+     * one query each for the whole page.
+     */
+    private List<ProductListDTO> fillCardDetails(List<ProductListDTO> cards) {
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        Map<Long, ProductListDTO> byId = new HashMap<>();
+        cards.forEach(card -> byId.put(card.getId(), card));
+
+        for (Object[] row : productRepository.findFirstImagesByProductIds(byId.keySet())) {
+            ProductListDTO card = byId.get((Long) row[0]);
+            if (card.getImages().isEmpty() && row[1] != null) {
+                card.getImages().add((String) row[1]);
+                card.getImageSrcsets().add(ResponsiveImages.srcset((String) row[1]));
+            }
+        }
+        List<Long> withVariants = cards.stream()
+                .filter(card -> Boolean.TRUE.equals(card.getHasVariants()))
+                .map(ProductListDTO::getId)
                 .collect(Collectors.toList());
+        if (!withVariants.isEmpty()) {
+            for (Object[] row : productRepository.sumVariantStockByProductIds(withVariants)) {
+                if (row[1] != null && ((Number) row[1]).longValue() > 0) {
+                    byId.get((Long) row[0]).setInStock(true);
+                }
+            }
+        }
+        for (Object[] row : commentRepository.summarizeScoresByProductIds(byId.keySet())) {
+            ProductListDTO card = byId.get((Long) row[0]);
+            card.setAverageRating(row[1] == null ? null : ((Number) row[1]).doubleValue());
+            card.setReviewCount(((Number) row[2]).longValue());
+        }
+        return cards;
+    }
+
+    public ProductFacetsDTO getProductFacets(String search, Long categoryId, BigDecimal minPrice,
+            BigDecimal maxPrice, String brand, Boolean bestseller, Boolean newArrival, String type, Integer buckets) {
+        return productFacetIndex.facets(search, categoryId, minPrice, maxPrice, brand, bestseller, newArrival, type,
+                buckets);
+    }
+
+    public List<String> getProductSuggestions(String query, int limit) {
+        return productSuggestionIndex.suggest(query, limit);
     }
 
     @Transactional(readOnly = true)
-    public List<ProductDTO> getBestsellers() {
-        return productRepository.findByBestsellerIsTrueAndDeletedFalse(Pageable.unpaged()).getContent().stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+    public List<ProductListDTO> getBestsellers(int limit) {
+        return fillCardDetails(productRepository.findBestsellerCards(featuredPage(limit)));
     }
 
     @Transactional(readOnly = true)
-    public List<ProductDTO> getNewArrivals() {
-        return productRepository.findByNewArrivalIsTrueAndDeletedFalse(Pageable.unpaged()).getContent().stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+    public List<ProductListDTO> getNewArrivals(int limit) {
+        return fillCardDetails(productRepository.findNewArrivalCards(featuredPage(limit)));
+    }
+
+    private static Pageable featuredPage(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_FEATURED)), Sort.by(Sort.Direction.DESC, "id"));
     }
 
     @Transactional(readOnly = true)
@@ -399,6 +569,7 @@ public class ProductService {
         // Soft delete the product (mark as deleted instead of removing from database)
         product.setDeleted(true);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     @Transactional
@@ -412,6 +583,7 @@ public class ProductService {
 
         product.setDeleted(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 
     @Transactional
@@ -442,6 +614,9 @@ public class ProductService {
         }
 
         // Now safe to permanently delete the product
+        Set<String> imageUrls = imageUrlsOf(product);
         productRepository.delete(product);
+        imageUrls.forEach(localFileService::deleteImageAfterCommit);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
     }
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.example.demo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory autocomplete for the storefront search box.
+ *
+ * Every word start of every product name is stored, normalized with
+ * {@link SearchText}, in one sorted array, so "hydra" finds "Crème
+ * Hydratante". A lookup binary-searches the range of keys starting with the
+ * typed prefix and returns the names of the most ordered products in it
+ * (orders over the last {@code product.suggestions.popularity-days} days,
+ * read from the sales rollups).
+ *
+ * The index is an immutable snapshot swapped in on rebuild. Product changes
+ * only mark it stale; a scheduled task rebuilds it at most every
+ * {@code product.suggestions.refresh-interval-ms}, so a bulk import costs one
+ * rebuild. Popularity is refreshed with the nightly rebuild.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductSuggestionIndex {
+    private final Logger logger = LoggerFactory.getLogger(ProductSuggestionIndex.class);
+
+    static final int MAX_LIMIT = 20;
+
+    private static final String SELECT_NAMES_SQL = "SELECT id, name FROM product WHERE deleted = false";
+    private static final String SELECT_POPULARITY_SQL =
+            "SELECT dimension_key, SUM(orders) FROM sales_daily_rollup " +
+            "WHERE dimension = 'PRODUCT' AND day >= ? GROUP BY dimension_key";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${product.suggestions.popularity-days:90}")
+    private int popularityDays;
+
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private volatile Snapshot snapshot;
+
+    /**
+     * Names of up to {@code limit} products with a word starting with the
+     * query, most ordered first.
+     */
+    public List<String> suggest(String query, int limit) {
+        String prefix = SearchText.normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = rebuild();
+        }
+        return current.suggest(prefix, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${product.suggestions.refresh-interval-ms:5000}")
+    public void refreshIfStale() {
+        if (stale.get()) {
+            rebuildQuietly();
+        }
+    }
+
+    @Scheduled(cron = "${product.suggestions.rebuild-cron:0 20 4 * * *}")
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            // Keep serving the previous snapshot; stays stale so the next refresh retries
+            logger.error("Failed to rebuild product suggestions", e);
+        }
+    }
+
+    synchronized Snapshot rebuild() {
+        // Cleared first: a change committed while loading marks it stale again
+        stale.set(false);
+        Map<Long, Long> popularity = new HashMap<>();
+        // Products sharing a name are suggested once, with the best weight
+        Map<String, Long> weightByName = new LinkedHashMap<>();
+        try {
+            jdbcTemplate.query(SELECT_POPULARITY_SQL, rs -> {
+                popularity.put(Long.valueOf(rs.getString(1)), rs.getLong(2));
+            }, Date.valueOf(LocalDate.now().minusDays(popularityDays)));
+            jdbcTemplate.query(SELECT_NAMES_SQL, rs -> {
+                String name = rs.getString(2);
+                if (name != null && !name.isBlank()) {
+                    weightByName.merge(name.trim(), popularity.getOrDefault(rs.getLong(1), 0L), Math::max);
+                }
+            });
+        } catch (DataAccessException e) {
+            stale.set(true);
+            throw e;
+        }
+
+        Snapshot built = Snapshot.build(weightByName);
+        snapshot = built;
+        return built;
+    }
+
+    /**
+     * Sorted word-start keys, each pointing at a name and its weight.
+     */
+    @AllArgsConstructor
+    static final class Snapshot {
+        private final String[] keys;
+        private final int[] nameIndexes;
+        private final String[] names;
+        private final long[] weights;
+
+        static Snapshot build(Map<String, Long> weightByName) {
+            String[] names = weightByName.keySet().toArray(new String[0]);
+            long[] weights = new long[names.length];
+            List<Object[]> entries = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                weights[i] = weightByName.get(names[i]);
+                String normalized = SearchText.normalize(names[i]);
+                for (int start = 0; start < normalized.length(); start++) {
+                    if (start == 0 || normalized.charAt(start - 1) == ' ') {
+                        entries.add(new Object[] { normalized.substring(start), i });
+                    }
+                }
+            }
+            entries.sort(Comparator.comparing(entry -> (String) entry[0]));
+
+            String[] keys = new String[entries.size()];
+            int[] nameIndexes = new int[entries.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (String) entries.get(i)[0];
+                nameIndexes[i] = (Integer) entries.get(i)[1];
+            }
+            return new Snapshot(keys, nameIndexes, names, weights);
+        }
+
+        List<String> suggest(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            // Best `limit` names of the range, kept sorted by weight, then shorter name
+            int[] best = new int[limit];
+            int count = 0;
+            for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+                int candidate = nameIndexes[i];
+                if (contains(best, count, candidate)) {
+                    continue;
+                }
+                if (count == limit && !ranksBefore(candidate, best[count - 1])) {
+                    continue;
+                }
+                int pos = count < limit ? count++ : count - 1;
+                while (pos > 0 && ranksBefore(candidate, best[pos - 1])) {
+                    best[pos] = best[pos - 1];
+                    pos--;
+                }
+                best[pos] = candidate;
+            }
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(names[best[i]]);
+            }
+            return result;
+        }
+
+        private boolean ranksBefore(int a, int b) {
+            if (weights[a] != weights[b]) {
+                return weights[a] > weights[b];
+            }
+            if (names[a].length() != names[b].length()) {
+                return names[a].length() < names[b].length();
+            }
+            return names[a].compareTo(names[b]) < 0;
+        }
+
+        private static boolean contains(int[] values, int count, int value) {
+            for (int i = 0; i < count; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Index of the first key not before the prefix.
+         */
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
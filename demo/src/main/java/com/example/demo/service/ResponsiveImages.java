@@ -0,0 +1,52 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The fixed widths every uploaded image is pre-resized to, and the
+ * {@code srcset} attribute values pointing at them, so the storefront can let
+ * the browser pick the smallest image that fills its slot:
+ * {@code /api/images/products/a.jpg?w=160 160w, /api/images/products/a.jpg?w=320 320w, ...}.
+ */
+public final class ResponsiveImages {
+
+    public static final int[] WIDTHS = { 160, 320, 640, 1024 };
+
+    private static final String IMAGES_PATH = "/api/images/";
+
+    private ResponsiveImages() {
+    }
+
+    /**
+     * The srcset for one of our uploaded images, or null for anything else
+     * (external URLs, empty values) which can't be resized.
+     */
+    public static String srcset(String imageUrl) {
+        if (imageUrl == null || !imageUrl.contains(IMAGES_PATH)) {
+            return null;
+        }
+        String separator = imageUrl.contains("?") ? "&" : "?";
+        StringJoiner srcset = new StringJoiner(", ");
+        for (int width : WIDTHS) {
+            srcset.add(imageUrl + separator + "w=" + width + " " + width + "w");
+        }
+        return srcset.toString();
+    }
+
+    /**
+     * The srcset of each image, in the same order (null entries for images
+     * that can't be resized).
+     */
+    public static List<String> srcsets(List<String> imageUrls) {
+        if (imageUrls == null) {
+            return null;
+        }
+        List<String> srcsets = new ArrayList<>(imageUrls.size());
+        for (String imageUrl : imageUrls) {
+            srcsets.add(srcset(imageUrl));
+        }
+        return srcsets;
+    }
+}
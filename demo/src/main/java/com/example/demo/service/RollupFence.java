@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps buffered rollup deltas from being counted twice when the rollup rows
+ * they belong to are rebuilt from the source tables.
+ *
+ * A delta is produced inside the transaction that changes the source rows
+ * (an order placed, a status change) but only reaches the rollup table when
+ * some node flushes its buffer, possibly after a rebuild already counted that
+ * change. So each producing transaction reads the rollup's epoch with a shared
+ * lock ({@link #currentEpoch}) and tags its delta with it. A rebuild
+ * ({@link #rebuild}) takes the epoch row's exclusive lock, which waits for
+ * those transactions to commit and holds back new ones, bumps the epoch and
+ * records it for each rebuilt day, then reads the source tables: every change
+ * tagged with an older epoch is in what it reads, every later one is not.
+ * Flushes drop deltas older than their day's rebuild
+ * ({@link #rebuildEpochs}), on whichever node buffered them.
+ *
+ * The rebuild reads with READ COMMITTED consistent reads rather than the
+ * shared locks {@code INSERT ... SELECT} takes under REPEATABLE READ, so it
+ * can't deadlock with an order transaction waiting for the epoch row.
+ */
+@Service
+@RequiredArgsConstructor
+public class RollupFence {
+
+    private static final String SHARED_EPOCH_SQL = "SELECT epoch FROM rollup_epoch WHERE name = ? FOR SHARE";
+    private static final String EPOCH_SQL = "SELECT epoch FROM rollup_epoch WHERE name = ?";
+    private static final String LOCK_EPOCH_SQL = "SELECT epoch FROM rollup_epoch WHERE name = ? FOR UPDATE";
+    private static final String CREATE_EPOCH_SQL = "INSERT IGNORE INTO rollup_epoch (name, epoch) VALUES (?, 0)";
+    private static final String BUMP_EPOCH_SQL = "UPDATE rollup_epoch SET epoch = ? WHERE name = ?";
+    private static final String RECORD_REBUILD_SQL =
+            "INSERT INTO rollup_rebuild (name, day, epoch) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE epoch = VALUES(epoch)";
+    private static final String REBUILD_EPOCHS_SQL =
+            "SELECT day, epoch FROM rollup_rebuild WHERE name = ? AND day BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * The epoch to tag a delta with. Inside a transaction the row stays
+     * share-locked until it ends, so a rebuild can't start before this
+     * transaction's changes are committed.
+     */
+    public long currentEpoch(String name) {
+        List<Long> epoch = jdbcTemplate.queryForList(
+                TransactionSynchronizationManager.isActualTransactionActive() ? SHARED_EPOCH_SQL : EPOCH_SQL,
+                Long.class, name);
+        return epoch.isEmpty() || epoch.get(0) == null ? 0 : epoch.get(0);
+    }
+
+    /**
+     * Runs a rebuild of the days {@code from}..{@code to} in its own
+     * transaction, after fencing off the deltas it already counts.
+     */
+    public void rebuild(String name, LocalDate from, LocalDate to, Runnable rebuild) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        template.executeWithoutResult(status -> {
+            jdbcTemplate.update(CREATE_EPOCH_SQL, name);
+            Long current = jdbcTemplate.queryForObject(LOCK_EPOCH_SQL, Long.class, name);
+            long epoch = (current != null ? current : 0) + 1;
+            jdbcTemplate.update(BUMP_EPOCH_SQL, epoch, name);
+            List<Object[]> days = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                days.add(new Object[] { name, Date.valueOf(day), epoch });
+            }
+            jdbcTemplate.batchUpdate(RECORD_REBUILD_SQL, days);
+            rebuild.run();
+        });
+    }
+
+    /**
+     * The epoch each day in the range was last rebuilt at (days never rebuilt
+     * are missing). Call it inside the flush's transaction: it waits for a
+     * running rebuild, so the deltas it lets through are written after it.
+     */
+    public Map<LocalDate, Long> rebuildEpochs(String name, LocalDate from, LocalDate to) {
+        currentEpoch(name);
+        Map<LocalDate, Long> epochs = new HashMap<>();
+        jdbcTemplate.query(REBUILD_EPOCHS_SQL,
+                rs -> {
+                    epochs.put(rs.getDate("day").toLocalDate(), rs.getLong("epoch"));
+                },
+                name, Date.valueOf(from), Date.valueOf(to));
+        return epochs;
+    }
+}
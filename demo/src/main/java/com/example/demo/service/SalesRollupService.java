@@ -0,0 +1,382 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.SalesRollupDTO;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Daily sales rollups in {@code sales_daily_rollup}: orders, units, revenue,
+ * discount and shipping per day, overall and by product, category, city,
+ * coupon and status. Dashboards read only these rows, so their cost depends
+ * on the date range and not on the size of the orders table.
+ *
+ * {@link OrderService} reports each order placed, status change, delete and
+ * restore. The resulting deltas are applied after the order transaction
+ * commits, buffered in memory and added to the rollup rows by a periodic
+ * batched upsert, so checkouts never wait on the hot per-day TOTAL row. Orders
+ * count towards the sales dimensions unless canceled or deleted; the STATUS
+ * dimension counts every non-deleted order under its current status. Rollups
+ * are keyed by the day the order was placed.
+ *
+ * A nightly job, run by one node (see {@link ScheduledJobLock}), rebuilds the
+ * last {@code analytics.rollup.rebuild-days} closed days (today excluded, its
+ * orders are still coming in) from the orders table, repairing deltas lost if
+ * a node stopped before flushing; {@link #rebuild} backfills any range on
+ * demand. Deltas are tagged with the {@link RollupFence} epoch of their order
+ * transaction, so deltas a rebuild already counted are dropped when flushed,
+ * whichever node buffered them and however late their commit callback ran.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+    private final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    public enum Dimension {
+        TOTAL, PRODUCT, CATEGORY, CITY, COUPON, STATUS
+    }
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO sales_daily_rollup (day, dimension, dimension_key, orders, units, revenue, discount, shipping) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders), " +
+            "units = units + VALUES(units), revenue = revenue + VALUES(revenue), " +
+            "discount = discount + VALUES(discount), shipping = shipping + VALUES(shipping)";
+    private static final String FENCE = "sales";
+    private static final String REBUILD_JOB = "sales-rollup-rebuild";
+
+    private static final String DELETE_RANGE_SQL = "DELETE FROM sales_daily_rollup WHERE day BETWEEN ? AND ?";
+
+    // One row per non-deleted order placed in the range, with its item totals
+    private static final String ORDER_FACTS =
+            "(SELECT o.id, DATE(o.created_at) AS day, o.status, TRIM(COALESCE(o.city, '')) AS city, " +
+            "c.code AS coupon_code, COALESCE(o.discount_amount, 0) AS discount, " +
+            "COALESCE(o.shipping_cost, 0) AS shipping, COALESCE(SUM(i.quantity), 0) AS units, " +
+            "COALESCE(SUM(COALESCE(i.price, 0) * i.quantity), 0) AS items_total " +
+            "FROM orders o LEFT JOIN order_item i ON i.order_id = o.id LEFT JOIN coupons c ON c.id = o.coupon_id " +
+            "WHERE o.deleted = false AND o.created_at >= ? AND o.created_at < ? " +
+            "GROUP BY o.id, o.created_at, o.status, o.city, c.code, o.discount_amount, o.shipping_cost) f";
+    private static final String ORDER_TOTALS =
+            "COUNT(*), SUM(f.units), SUM(f.items_total + f.shipping - f.discount), SUM(f.discount), SUM(f.shipping)";
+    private static final String INSERT_PREFIX =
+            "INSERT INTO sales_daily_rollup (day, dimension, dimension_key, orders, units, revenue, discount, shipping) ";
+    private static final String[] REBUILD_SQL = {
+            INSERT_PREFIX + "SELECT f.day, 'TOTAL', '', " + ORDER_TOTALS + " FROM " + ORDER_FACTS +
+                    " WHERE f.status <> 'CANCELED' GROUP BY f.day",
+            INSERT_PREFIX + "SELECT f.day, 'CITY', f.city, " + ORDER_TOTALS + " FROM " + ORDER_FACTS +
+                    " WHERE f.status <> 'CANCELED' GROUP BY f.day, f.city",
+            INSERT_PREFIX + "SELECT f.day, 'COUPON', f.coupon_code, " + ORDER_TOTALS + " FROM " + ORDER_FACTS +
+                    " WHERE f.status <> 'CANCELED' AND f.coupon_code IS NOT NULL GROUP BY f.day, f.coupon_code",
+            INSERT_PREFIX + "SELECT f.day, 'STATUS', f.status, " + ORDER_TOTALS + " FROM " + ORDER_FACTS +
+                    " GROUP BY f.day, f.status",
+            INSERT_PREFIX + "SELECT DATE(o.created_at), 'PRODUCT', CAST(i.product_id AS CHAR), COUNT(DISTINCT o.id), " +
+                    "SUM(i.quantity), SUM(COALESCE(i.price, 0) * i.quantity), 0, 0 " +
+                    "FROM orders o JOIN order_item i ON i.order_id = o.id " +
+                    "WHERE o.deleted = false AND o.status <> 'CANCELED' AND o.created_at >= ? AND o.created_at < ? " +
+                    "AND i.product_id IS NOT NULL GROUP BY DATE(o.created_at), i.product_id",
+            INSERT_PREFIX + "SELECT DATE(o.created_at), 'CATEGORY', CAST(p.category_id AS CHAR), COUNT(DISTINCT o.id), " +
+                    "SUM(i.quantity), SUM(COALESCE(i.price, 0) * i.quantity), 0, 0 " +
+                    "FROM orders o JOIN order_item i ON i.order_id = o.id JOIN product p ON p.id = i.product_id " +
+                    "WHERE o.deleted = false AND o.status <> 'CANCELED' AND o.created_at >= ? AND o.created_at < ? " +
+                    "GROUP BY DATE(o.created_at), p.category_id"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RollupFence rollupFence;
+    private final ScheduledJobLock scheduledJobLock;
+
+    @Value("${analytics.rollup.rebuild-days:2}")
+    private int rebuildDays;
+
+    private final ConcurrentHashMap<RollupKey, Delta> pendingDeltas = new ConcurrentHashMap<>();
+    // So the shutdown flush doesn't run alongside a scheduled one
+    private final Object flushLock = new Object();
+
+    public void recordPlaced(Order order) {
+        record(order, order.getStatus(), 1);
+    }
+
+    public void recordStatusChange(Order order, Order.OrderStatus oldStatus) {
+        if (oldStatus == order.getStatus()) {
+            return;
+        }
+        long epoch = rollupFence.currentEpoch(FENCE);
+        Map<RollupKey, Delta> deltas = new HashMap<>();
+        addContributions(deltas, order, oldStatus, -1, epoch);
+        addContributions(deltas, order, order.getStatus(), 1, epoch);
+        apply(deltas);
+    }
+
+    public void recordDeleted(Order order) {
+        record(order, order.getStatus(), -1);
+    }
+
+    public void recordRestored(Order order) {
+        record(order, order.getStatus(), 1);
+    }
+
+    /**
+     * Sums of each day in the range for one dimension value (for TOTAL the key is ignored).
+     */
+    public List<SalesRollupDTO> getDaily(Dimension dimension, String key, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT day, dimension, dimension_key, orders, units, revenue, discount, shipping " +
+                "FROM sales_daily_rollup WHERE dimension = ? AND dimension_key = ? AND day BETWEEN ? AND ? " +
+                "ORDER BY day",
+                (rs, rowNum) -> new SalesRollupDTO(rs.getDate("day").toLocalDate(), rs.getString("dimension"),
+                        rs.getString("dimension_key"), rs.getLong("orders"), rs.getLong("units"),
+                        rs.getBigDecimal("revenue"), rs.getBigDecimal("discount"), rs.getBigDecimal("shipping")),
+                dimension.name(), dimension == Dimension.TOTAL || key == null ? "" : key,
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Totals of each value of a dimension over the range, highest revenue first.
+     */
+    public List<SalesRollupDTO> getBreakdown(Dimension dimension, LocalDate from, LocalDate to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT dimension_key, SUM(orders) AS orders, SUM(units) AS units, SUM(revenue) AS revenue, " +
+                "SUM(discount) AS discount, SUM(shipping) AS shipping FROM sales_daily_rollup " +
+                "WHERE dimension = ? AND day BETWEEN ? AND ? GROUP BY dimension_key " +
+                "ORDER BY revenue DESC LIMIT ?",
+                (rs, rowNum) -> new SalesRollupDTO(null, dimension.name(), rs.getString("dimension_key"),
+                        rs.getLong("orders"), rs.getLong("units"), rs.getBigDecimal("revenue"),
+                        rs.getBigDecimal("discount"), rs.getBigDecimal("shipping")),
+                dimension.name(), Date.valueOf(from), Date.valueOf(to), limit);
+    }
+
+    /**
+     * Recomputes the rollups of a date range from the orders table. Deltas of
+     * orders committed before it, still buffered on any node, are dropped when
+     * flushed rather than added on top.
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        rollupFence.rebuild(FENCE, from, to, () -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(from), Date.valueOf(to));
+            for (String sql : REBUILD_SQL) {
+                jdbcTemplate.update(sql, start, end);
+            }
+        });
+        logger.info("Rebuilt sales rollups from {} to {}", from, to);
+    }
+
+    @Scheduled(cron = "${analytics.rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuildRecentDays() {
+        if (!scheduledJobLock.tryLock(REBUILD_JOB)) {
+            logger.debug("Sales rollup rebuild already run by another node");
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(rebuildDays), today.minusDays(1));
+    }
+
+    /**
+     * Drops all rollups, after every order has been deleted.
+     */
+    public void clear() {
+        Runnable clear = () -> {
+            pendingDeltas.clear();
+            jdbcTemplate.update("DELETE FROM sales_daily_rollup");
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear.run();
+                }
+            });
+        } else {
+            clear.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        Map<RollupKey, Delta> drained = drain();
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        LocalDate firstDay = drained.keySet().stream().map(RollupKey::getDay).min(LocalDate::compareTo).get();
+        LocalDate lastDay = drained.keySet().stream().map(RollupKey::getDay).max(LocalDate::compareTo).get();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<LocalDate, Long> rebuilt = rollupFence.rebuildEpochs(FENCE, firstDay, lastDay);
+                // Summed over epochs: deltas a rebuild already counted are left out
+                Map<RollupKey, Delta> rows = new HashMap<>();
+                drained.forEach((key, delta) -> {
+                    Long rebuiltAt = rebuilt.get(key.getDay());
+                    if (rebuiltAt == null || key.getEpoch() >= rebuiltAt) {
+                        rows.merge(new RollupKey(key.getDay(), key.getDimension(), key.getKey(), 0), delta,
+                                Delta::plus);
+                    }
+                });
+                if (rows.isEmpty()) {
+                    return;
+                }
+                List<Object[]> args = new ArrayList<>(rows.size());
+                rows.forEach((key, delta) -> args.add(new Object[] { Date.valueOf(key.getDay()),
+                        key.getDimension().name(), key.getKey(), delta.getOrders(), delta.getUnits(),
+                        delta.getRevenue(), delta.getDiscount(), delta.getShipping() }));
+                jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+            });
+        } catch (DataAccessException e) {
+            // Put the deltas back so they are retried on the next flush
+            logger.error("Failed to flush {} sales rollup deltas, will retry", drained.size(), e);
+            drained.forEach((key, delta) -> pendingDeltas.merge(key, delta, Delta::plus));
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private Map<RollupKey, Delta> drain() {
+        Map<RollupKey, Delta> drained = new HashMap<>();
+        for (RollupKey key : pendingDeltas.keySet()) {
+            Delta delta = pendingDeltas.remove(key);
+            if (delta != null) {
+                drained.put(key, delta);
+            }
+        }
+        return drained;
+    }
+
+    private void record(Order order, Order.OrderStatus status, int sign) {
+        Map<RollupKey, Delta> deltas = new HashMap<>();
+        addContributions(deltas, order, status, sign, rollupFence.currentEpoch(FENCE));
+        apply(deltas);
+    }
+
+    /**
+     * Deltas are computed now, while the order's associations can be loaded,
+     * and applied only once the order transaction has committed. They carry
+     * the fence epoch read in that transaction.
+     */
+    private void apply(Map<RollupKey, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deltas.forEach((key, delta) -> pendingDeltas.merge(key, delta, Delta::plus));
+                }
+            });
+        } else {
+            deltas.forEach((key, delta) -> pendingDeltas.merge(key, delta, Delta::plus));
+        }
+    }
+
+    private static void addContributions(Map<RollupKey, Delta> deltas, Order order, Order.OrderStatus status,
+            int sign, long epoch) {
+        if (order.getCreatedAt() == null) {
+            return;
+        }
+        LocalDate day = order.getCreatedAt().toLocalDate();
+        BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
+        BigDecimal shipping = order.getShippingCost() != null ? order.getShippingCost() : BigDecimal.ZERO;
+
+        long units = 0;
+        BigDecimal itemsTotal = BigDecimal.ZERO;
+        Map<RollupKey, Delta> lines = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            BigDecimal lineTotal = item.getPrice() != null
+                    ? item.getPrice().multiply(BigDecimal.valueOf(quantity))
+                    : BigDecimal.ZERO;
+            units += quantity;
+            itemsTotal = itemsTotal.add(lineTotal);
+            if (item.getProduct() != null) {
+                Delta line = new Delta(0, quantity, lineTotal, BigDecimal.ZERO, BigDecimal.ZERO);
+                lines.merge(new RollupKey(day, Dimension.PRODUCT, String.valueOf(item.getProduct().getId()), epoch),
+                        line, Delta::plus);
+                if (item.getProduct().getCategory() != null) {
+                    lines.merge(new RollupKey(day, Dimension.CATEGORY,
+                            String.valueOf(item.getProduct().getCategory().getId()), epoch), line, Delta::plus);
+                }
+            }
+        }
+        Delta whole = new Delta(1, units, itemsTotal.add(shipping).subtract(discount), discount, shipping);
+
+        add(deltas, new RollupKey(day, Dimension.STATUS, status.name(), epoch), whole, sign);
+        if (status == Order.OrderStatus.CANCELED) {
+            return;
+        }
+        add(deltas, new RollupKey(day, Dimension.TOTAL, "", epoch), whole, sign);
+        add(deltas, new RollupKey(day, Dimension.CITY, order.getCity() != null ? order.getCity().trim() : "", epoch),
+                whole, sign);
+        if (order.getCoupon() != null) {
+            add(deltas, new RollupKey(day, Dimension.COUPON, order.getCoupon().getCode(), epoch), whole, sign);
+        }
+        // A product or category counts once per order however many lines it has
+        lines.forEach((key, line) -> add(deltas, key,
+                new Delta(1, line.getUnits(), line.getRevenue(), BigDecimal.ZERO, BigDecimal.ZERO), sign));
+    }
+
+    private static void add(Map<RollupKey, Delta> deltas, RollupKey key, Delta delta, int sign) {
+        deltas.merge(key, sign > 0 ? delta : delta.negate(), Delta::plus);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static final class RollupKey {
+        private final LocalDate day;
+        private final Dimension dimension;
+        private final String key;
+        // RollupFence epoch of the transaction the delta came from
+        private final long epoch;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static final class Delta {
+        private final long orders;
+        private final long units;
+        private final BigDecimal revenue;
+        private final BigDecimal discount;
+        private final BigDecimal shipping;
+
+        Delta plus(Delta other) {
+            return new Delta(orders + other.orders, units + other.units, revenue.add(other.revenue),
+                    discount.add(other.discount), shipping.add(other.shipping));
+        }
+
+        Delta negate() {
+            return new Delta(-orders, -units, revenue.negate(), discount.negate(), shipping.negate());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Lets a scheduled job that every node runs do its work on one node only.
+ *
+ * The first node to claim the job's {@code scheduled_job_lock} row holds it
+ * for {@code scheduling.job-lock-minutes}; the others skip that run. The claim
+ * is not released when the job finishes, so nodes whose clocks fire the same
+ * cron a little later still skip it, and expires on its own if the node dies.
+ * Times are the database's, so the nodes' clocks don't need to agree.
+ */
+@Service
+@RequiredArgsConstructor
+public class ScheduledJobLock {
+
+    private static final String CREATE_SQL =
+            "INSERT IGNORE INTO scheduled_job_lock (name, locked_until, locked_by) VALUES (?, NOW(3), '')";
+    private static final String CLAIM_SQL =
+            "UPDATE scheduled_job_lock SET locked_until = NOW(3) + INTERVAL ? MINUTE, locked_by = ? " +
+            "WHERE name = ? AND locked_until <= NOW(3)";
+
+    private static final String NODE = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${scheduling.job-lock-minutes:30}")
+    private int lockMinutes;
+
+    /**
+     * @return true if this node claimed the job and should run it now
+     */
+    public boolean tryLock(String job) {
+        jdbcTemplate.update(CREATE_SQL, job);
+        return jdbcTemplate.update(CLAIM_SQL, lockMinutes, NODE, job) > 0;
+    }
+}
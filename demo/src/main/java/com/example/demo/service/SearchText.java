@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes catalog text and search queries the same way, so a search
+ * matches regardless of case, accents or Arabic spelling variants:
+ * "Crème Hydratante" and "creme hydratante" give the same terms, as do
+ * "أحمر" and "احمر".
+ */
+public final class SearchText {
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern HTML_ENTITY = Pattern.compile("&[a-zA-Z#0-9]+;");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchText() {
+    }
+
+    /**
+     * Lowercases, strips HTML, Latin accents and Arabic diacritics, unifies
+     * Arabic letter variants and collapses everything else to single spaces.
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String plain = HTML_ENTITY.matcher(HTML_TAG.matcher(text).replaceAll(" ")).replaceAll(" ");
+        // Decomposing splits accents (and hamza on alef) into combining marks, which are then dropped
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(plain, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            switch (c) {
+                case 'ـ' -> { } // tatweel
+                case 'ة' -> sb.append('ه'); // teh marbuta -> heh
+                case 'ى' -> sb.append('ي'); // alef maksura -> yeh
+                case 'ٱ' -> sb.append('ا'); // alef wasla -> alef
+                case 'ß' -> sb.append("ss");
+                case 'œ' -> sb.append("oe");
+                case 'æ' -> sb.append("ae");
+                default -> sb.append(c);
+            }
+        }
+        return SEPARATORS.matcher(sb).replaceAll(" ").trim();
+    }
+
+    /**
+     * Normalized terms of a text, in order.
+     */
+    public static List<String> terms(String text) {
+        String normalized = normalize(text);
+        List<String> terms = new ArrayList<>();
+        if (!normalized.isEmpty()) {
+            for (String term : normalized.split(" ")) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
@@ -4,40 +4,70 @@ import com.example.demo.constant.SettingKeys;
 import com.example.demo.model.Setting;
 import com.example.demo.repositories.SettingRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+/**
+ * Key/value settings, served from an in-memory snapshot of the whole
+ * {@code settings} table. The snapshot is reloaded after any update made
+ * through this service, and every {@code settings.cache.ttl-seconds} so
+ * changes made on other nodes are picked up.
+ */
 @Service
 @RequiredArgsConstructor
 public class SettingService {
 
     private final SettingRepository settingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${settings.cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private volatile Snapshot snapshot;
 
     public String getSettingValue(String key, String defaultValue) {
-        return settingRepository.findBySettingKey(key)
-                .map(Setting::getValue)
-                .orElse(defaultValue);
+        return snapshot().value(key, defaultValue);
     }
 
     public BigDecimal getBigDecimalSetting(String key, String defaultValue) {
-        try {
-            return new BigDecimal(getSettingValue(key, defaultValue));
-        } catch (NumberFormatException e) {
-            return new BigDecimal(defaultValue);
-        }
+        Snapshot current = snapshot();
+        return current.parsed("decimal:" + key + ":" + defaultValue, k -> {
+            try {
+                return new BigDecimal(current.value(key, defaultValue));
+            } catch (NumberFormatException e) {
+                return new BigDecimal(defaultValue);
+            }
+        });
     }
 
     public int getIntSetting(String key, int defaultValue) {
-        try {
-            return Integer.parseInt(getSettingValue(key, String.valueOf(defaultValue)));
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        Snapshot current = snapshot();
+        return current.parsed("int:" + key + ":" + defaultValue, k -> {
+            try {
+                return Integer.parseInt(current.value(key, String.valueOf(defaultValue)));
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        });
+    }
+
+    /**
+     * All settings as a read-only map.
+     */
+    public Map<String, String> getAllSettings() {
+        return snapshot().getValues();
     }
 
     @Transactional
@@ -46,6 +76,7 @@ public class SettingService {
                 .orElse(new Setting(key, value));
         setting.setValue(value);
         settingRepository.save(setting);
+        invalidate();
     }
 
     @Transactional
@@ -63,4 +94,74 @@ public class SettingService {
                 getBigDecimalSetting(SettingKeys.LOYALTY_DISCOUNT_PERCENT, "15"));
         return settings;
     }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired(System.nanoTime())) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || current.isExpired(System.nanoTime())) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        Map<String, String> values = new HashMap<>();
+        for (Setting setting : settingRepository.findAll()) {
+            values.put(setting.getSettingKey(), setting.getValue());
+        }
+        return new Snapshot(Collections.unmodifiableMap(values),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+    }
+
+    /**
+     * Drops the snapshot now and again once the current transaction completes,
+     * so a read in between can't keep the pre-commit values around.
+     */
+    private void invalidate() {
+        snapshot = null;
+        eventPublisher.publishEvent(new StorefrontConfigChangedEvent("SETTINGS"));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshot = null;
+                }
+            });
+        }
+    }
+
+    private static final class Snapshot {
+        private final Map<String, String> values;
+        private final long expiresAt;
+        // Typed values parsed from this snapshot, so BigDecimal/int settings aren't reparsed per call
+        private final ConcurrentHashMap<String, Object> parsed = new ConcurrentHashMap<>();
+
+        Snapshot(Map<String, String> values, long expiresAt) {
+            this.values = values;
+            this.expiresAt = expiresAt;
+        }
+
+        Map<String, String> getValues() {
+            return values;
+        }
+
+        String value(String key, String defaultValue) {
+            String value = values.get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T parsed(String key, Function<String, T> parser) {
+            return (T) parsed.computeIfAbsent(key, parser::apply);
+        }
+    }
 }
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserves stock with guarded, batched UPDATE statements instead of the
+ * read-modify-write on the entity. Each row is only decremented if enough
+ * stock is left, so concurrent checkouts can never oversell or overwrite each
+ * other's decrement. Rows are updated in ascending id order, so two checkouts
+ * locking the same rows always take the locks in the same order and cannot
+ * deadlock each other.
+ *
+ * Runs inside the caller's transaction: when a line is rejected the caller
+ * throws and every decrement of the batch is rolled back with the order.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    private static final String RESERVE_PRODUCT_SQL =
+            "UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String RESERVE_VARIANT_SQL =
+            "UPDATE product_variant SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param quantitiesByProductId quantity to take per product id
+     * @return per product id, whether the reservation succeeded (same iteration order as the input)
+     */
+    @Transactional
+    public Map<Long, Boolean> reserveProducts(Map<Long, Integer> quantitiesByProductId) {
+        return reserve(RESERVE_PRODUCT_SQL, quantitiesByProductId);
+    }
+
+    /**
+     * @param quantitiesByVariantId quantity to take per product variant id
+     * @return per variant id, whether the reservation succeeded (same iteration order as the input)
+     */
+    @Transactional
+    public Map<Long, Boolean> reserveVariants(Map<Long, Integer> quantitiesByVariantId) {
+        return reserve(RESERVE_VARIANT_SQL, quantitiesByVariantId);
+    }
+
+    private Map<Long, Boolean> reserve(String sql, Map<Long, Integer> quantitiesById) {
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        if (quantitiesById.isEmpty()) {
+            return result;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(quantitiesById.size());
+        List<Long> ids = new ArrayList<>(quantitiesById.size());
+        new TreeMap<>(quantitiesById).forEach((id, quantity) -> {
+            ids.add(id);
+            batchArgs.add(new Object[] { quantity, id, quantity });
+        });
+
+        // One round trip for the whole cart. Update counts are per statement as long as
+        // the datasource does not enable rewriteBatchedStatements.
+        int[] updateCounts = jdbcTemplate.batchUpdate(sql, batchArgs);
+        Map<Long, Boolean> reserved = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            reserved.put(ids.get(i), updateCounts[i] > 0);
+        }
+        quantitiesById.keySet().forEach(id -> result.put(id, reserved.get(id)));
+        return result;
+    }
+}
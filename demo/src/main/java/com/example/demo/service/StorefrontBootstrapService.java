@@ -0,0 +1,131 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Everything the storefront needs on first paint (hero, announcement,
+ * countdown, settings, notification and visitor counter settings, categories)
+ * as one JSON document.
+ *
+ * The document is built once and kept as plain and gzipped bytes; it is only
+ * rebuilt after a {@link StorefrontConfigChangedEvent} or once
+ * {@code storefront.cache.ttl-seconds} have passed.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorefrontBootstrapService {
+
+    private final ObjectMapper objectMapper;
+    private final HeroService heroService;
+    private final AnnouncementService announcementService;
+    private final CountdownService countdownService;
+    private final NotificationSettingService notificationSettingService;
+    private final EnhancedVisitorCounterSettingsService enhancedVisitorCounterSettingsService;
+    private final SettingService settingService;
+    private final CategoryService categoryService;
+
+    @Value("${storefront.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private volatile Payload payload;
+
+    // Bumped on every change, so a build that raced with a write is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public Payload getPayload() {
+        Payload current = payload;
+        if (current == null || current.isExpired(System.nanoTime())) {
+            synchronized (this) {
+                current = payload;
+                if (current == null || current.isExpired(System.nanoTime())) {
+                    long startedAt = generation.get();
+                    current = build();
+                    if (generation.get() == startedAt) {
+                        payload = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onStorefrontConfigChanged(StorefrontConfigChangedEvent event) {
+        generation.incrementAndGet();
+        payload = null;
+    }
+
+    private Payload build() {
+        try {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream(8192);
+            try (JsonGenerator generator = objectMapper.createGenerator(plain)) {
+                generator.writeStartObject();
+                writeSnapshot(generator, "hero", heroService.getHeroSnapshot());
+                writeSnapshot(generator, "announcement", announcementService.getAnnouncementSnapshot());
+                writeSnapshot(generator, "countdown", countdownService.getCountdownSnapshot());
+                writeSnapshot(generator, "notificationSettings", notificationSettingService.getSettingsSnapshot());
+                writeSnapshot(generator, "visitorCounterSettings",
+                        enhancedVisitorCounterSettingsService.getSettingsSnapshot());
+                generator.writeObjectField("settings", settingService.getAllSettings());
+                generator.writeObjectField("categories", categoryService.getAllCategories());
+                generator.writeEndObject();
+            }
+            byte[] json = plain.toByteArray();
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            return new Payload(json, compressed.toByteArray(), "\"" + DigestUtils.md5DigestAsHex(json) + "\"",
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to build storefront bootstrap payload", e);
+        }
+    }
+
+    private static void writeSnapshot(JsonGenerator generator, String field, StorefrontConfigCache.Snapshot snapshot)
+            throws IOException {
+        generator.writeFieldName(field);
+        if (snapshot.getJson().length == 0) {
+            generator.writeNull();
+        } else {
+            // Already serialized by the config cache
+            generator.writeRawValue(new String(snapshot.getJson(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Getter
+    public static final class Payload {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final long expiresAt;
+
+        Payload(byte[] json, byte[] gzip, String etag, long expiresAt) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
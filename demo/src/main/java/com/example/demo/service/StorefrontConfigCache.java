@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-memory snapshots of the single-row storefront configuration (hero,
+ * announcement, countdown, notification and visitor counter settings) that
+ * every page load fetches.
+ *
+ * Each snapshot is the serialized JSON of the section plus its ETag, so public
+ * GETs are answered without a query or Jackson work, and with 304 when the
+ * browser already has the current version. The owning service invalidates its
+ * section on update; snapshots also expire after
+ * {@code storefront.cache.ttl-seconds} so changes made on other nodes show up.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorefrontConfigCache {
+
+    public enum Section {
+        HERO, ANNOUNCEMENT, COUNTDOWN, NOTIFICATION_SETTINGS, VISITOR_COUNTER_SETTINGS
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${storefront.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${storefront.cache.max-age-seconds:30}")
+    private long maxAgeSeconds;
+
+    private final ConcurrentHashMap<Section, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Loads in progress, so concurrent misses on one section wait for a single query
+    private final ConcurrentHashMap<Section, CompletableFuture<Snapshot>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached snapshot of a section, loading it with {@code loader}
+     * if missing or expired. Concurrent misses on one section share a single load.
+     */
+    public Snapshot get(Section section, Supplier<?> loader) {
+        Snapshot snapshot = snapshots.get(section);
+        if (snapshot != null && !snapshot.isExpired(System.nanoTime())) {
+            return snapshot;
+        }
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        CompletableFuture<Snapshot> inProgress = loading.putIfAbsent(section, future);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        // The loader may query or insert the row, so it runs outside the maps' locks
+        try {
+            Snapshot loaded = serialize(loader.get());
+            // Only cached if no invalidate() dropped this load meanwhile
+            loading.computeIfPresent(section, (key, current) -> {
+                if (current != future) {
+                    return current;
+                }
+                snapshots.put(section, loaded);
+                return null;
+            });
+            future.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            loading.remove(section, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops a section's snapshot. Inside a transaction it is dropped again after
+     * completion, so a read in between can't cache the pre-commit row.
+     */
+    public void invalidate(Section section) {
+        evict(section);
+        eventPublisher.publishEvent(new StorefrontConfigChangedEvent(section.name()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(section);
+                }
+            });
+        }
+    }
+
+    private void evict(Section section) {
+        // A load that started before the change must not cache what it read
+        loading.remove(section);
+        snapshots.remove(section);
+    }
+
+    /**
+     * Builds the GET response for a snapshot: 304 if the client's
+     * {@code If-None-Match} matches, otherwise the cached JSON.
+     */
+    public ResponseEntity<byte[]> toResponse(Snapshot snapshot, WebRequest request) {
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return ResponseEntity.status(304).cacheControl(cacheControl).eTag(snapshot.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl)
+                .eTag(snapshot.getEtag())
+                .body(snapshot.getJson());
+    }
+
+    private Snapshot serialize(Object value) {
+        try {
+            // A missing row (e.g. no countdown configured) is served as an empty body, as before
+            byte[] json = value != null ? objectMapper.writeValueAsBytes(value) : new byte[0];
+            return new Snapshot(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"",
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize storefront config", e);
+        }
+    }
+
+    @Getter
+    public static final class Snapshot {
+        private final byte[] json;
+        private final String etag;
+        private final long expiresAt;
+
+        Snapshot(byte[] json, String etag, long expiresAt) {
+            this.json = json;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when data shown on every storefront page (hero, announcement,
+ * countdown, settings, categories...) is written, so payloads built from it
+ * can be rebuilt.
+ */
+@Data
+@AllArgsConstructor
+public class StorefrontConfigChangedEvent {
+    private final String section;
+}
@@ -0,0 +1,49 @@
+package com.example.demo.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over several padded cells so concurrent requests don't
+ * contend on one cache line. Used by the write-behind counters that are
+ * flushed to the database periodically. Draining uses getAndSet per cell, so
+ * no increment is lost between reading and resetting.
+ */
+final class StripedCounter {
+    private static final int STRIPES = 16;
+    private static final int PADDING = 8; // one 64-byte cache line per cell
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void add(long delta) {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        cells.addAndGet(stripe * PADDING, delta);
+    }
+
+    /**
+     * Current total, without resetting.
+     */
+    long sum() {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            total += cells.get(i * PADDING);
+        }
+        return total;
+    }
+
+    long drain() {
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        for (int i = 0; i < STRIPES; i++) {
+            if (cells.get(i * PADDING) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
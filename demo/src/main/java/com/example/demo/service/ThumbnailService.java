@@ -0,0 +1,385 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import net.coobird.thumbnailator.Thumbnails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resizes uploaded images into {@code uploads/images/cache} on a small
+ * dedicated thread pool instead of the request threads.
+ *
+ * Concurrent requests for the same size share one in-flight resize. When the
+ * pool's queue is full, or a resize takes longer than
+ * {@code image.thumbnails.wait-timeout-ms}, the caller gets null and serves
+ * the original image instead (a timed-out resize still completes and is
+ * cached for the next request), so a cold product grid can't tie up every
+ * Tomcat worker. Queue and resize times are tracked in {@link #getStats()}.
+ *
+ * Requested sizes are snapped to the {@link ImageCacheManager} buckets, which
+ * also keeps the cache directory within its quota. Images are never upscaled, and images whose header declares more than
+ * {@code image.max-pixels} are refused before decoding.
+ */
+@Service
+@RequiredArgsConstructor
+public class ThumbnailService {
+    private final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final ImageCacheManager cacheManager;
+
+    @Value("${image.thumbnails.threads:2}")
+    private int threads;
+
+    @Value("${image.thumbnails.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${image.thumbnails.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    @Value("${image.max-pixels:40000000}")
+    private long maxPixels;
+
+    private static final String[] FORMATS = { "webp", "jpg" };
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final ConcurrentHashMap<String, CompletableFuture<Thumbnail>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalQueueMs = new LongAdder();
+    private final LongAdder totalResizeMs = new LongAdder();
+    private final LongAccumulator maxQueueMs = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxResizeMs = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    void start() {
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * The resized image, generated if needed, or null if the original should
+     * be served instead (pool saturated, resize too slow or failed).
+     *
+     * @param requestedWidth  target width, or 0 to scale by height
+     * @param requestedHeight target height, or 0 to scale by width
+     * @param webp            whether the client accepts WebP; otherwise only JPEG is served
+     */
+    public Thumbnail getThumbnail(File original, String originalFilename, int requestedWidth, int requestedHeight,
+            boolean webp) {
+        int width = cacheManager.snap(requestedWidth);
+        int height = cacheManager.snap(requestedHeight);
+        String baseName = cacheName(originalFilename, width, height);
+        Thumbnail cached = findCached(baseName, webp);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+
+        boolean[] created = new boolean[1];
+        String key = webp ? baseName : baseName + ".jpg";
+        CompletableFuture<Thumbnail> future = inFlight.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return submit(original, k, baseName, width, height, webp);
+        });
+        if (future == null) {
+            return null;
+        }
+        if (!created[0]) {
+            joined.increment();
+        }
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Already counted and logged by the worker
+            return null;
+        }
+    }
+
+    /**
+     * Writes the WebP and JPEG versions of an image at each of the given
+     * widths that are missing from the cache, decoding the original once, on
+     * the calling thread. Widths not smaller than the original are skipped:
+     * the original is served for them.
+     *
+     * @return the widths now available in the cache
+     * @throws IOException if the file is not a readable image
+     * @throws IllegalArgumentException if the image has too many pixels
+     */
+    public List<Integer> generateVariants(File original, String originalFilename, int[] widths) throws IOException {
+        Dimension size = readDimensions(original);
+        if (size == null) {
+            throw new IOException("Not a readable image: " + originalFilename);
+        }
+        checkDimensions(size);
+        Path cacheDir = cacheManager.getCacheDir();
+        Files.createDirectories(cacheDir);
+
+        BufferedImage decoded = null;
+        List<Integer> available = new ArrayList<>();
+        for (int width : widths) {
+            if (width >= size.width) {
+                continue;
+            }
+            String baseName = cacheName(originalFilename, width, 0);
+            for (String format : FORMATS) {
+                if (cacheManager.contains(baseName + "." + format)) {
+                    continue;
+                }
+                if (decoded == null) {
+                    decoded = ImageIO.read(original);
+                    if (decoded == null) {
+                        throw new IOException("Not a readable image: " + originalFilename);
+                    }
+                }
+                long startedAt = System.nanoTime();
+                try {
+                    write(Thumbnails.of(decoded), cacheDir, baseName, format, width, 0);
+                    generated.increment();
+                } catch (IOException | RuntimeException e) {
+                    if (!"webp".equals(format)) {
+                        throw e;
+                    }
+                    // The JPEG variant is still written and served instead
+                    logger.warn("WebP variant failed for {}: {}", baseName, e.getMessage());
+                }
+                record(totalResizeMs, maxResizeMs, System.nanoTime() - startedAt);
+            }
+            available.add(width);
+        }
+        return available;
+    }
+
+    /**
+     * Width and height declared in the image header, read without decoding
+     * the pixels, or null if no installed reader understands the data.
+     */
+    public static Dimension readDimensions(Object input) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            if (stream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Refuses images whose decoded pixels would not fit comfortably in
+     * memory (decompression bombs: a few KB of PNG can declare 50000x50000).
+     */
+    public void checkDimensions(Dimension size) {
+        if (size.width <= 0 || size.height <= 0 || (long) size.width * size.height > maxPixels) {
+            throw new IllegalArgumentException("Image dimensions " + size.width + "x" + size.height
+                    + " exceed the limit of " + maxPixels + " pixels");
+        }
+    }
+
+    static String cacheName(String originalFilename, int width, int height) {
+        return originalFilename + "_w" + width + "_h" + height;
+    }
+
+    public Stats getStats() {
+        long resizes = generated.sum() + failed.sum();
+        return new Stats(cacheHits.sum(), generated.sum(), joined.sum(), rejected.sum(), timedOut.sum(),
+                failed.sum(), inFlight.size(), executor.getQueueSize(),
+                resizes == 0 ? 0 : totalQueueMs.sum() / resizes, maxQueueMs.get(),
+                resizes == 0 ? 0 : totalResizeMs.sum() / resizes, maxResizeMs.get(), cacheManager.getStats());
+    }
+
+    /**
+     * Queues the resize; returns null (and leaves nothing in flight) when the queue is full.
+     */
+    private CompletableFuture<Thumbnail> submit(File original, String key, String baseName, int width, int height,
+            boolean webp) {
+        CompletableFuture<Thumbnail> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                record(totalQueueMs, maxQueueMs, startedAt - queuedAt);
+                Thumbnail thumbnail = null;
+                Exception error = null;
+                try {
+                    thumbnail = resize(original, baseName, width, height, webp);
+                    generated.increment();
+                } catch (Exception e) {
+                    failed.increment();
+                    logger.error("Failed to generate thumbnail {}", baseName, e);
+                    error = e;
+                }
+                record(totalResizeMs, maxResizeMs, System.nanoTime() - startedAt);
+                // Removed before completing, so a later request finds the cached file or retries
+                inFlight.remove(key, future);
+                if (error == null) {
+                    future.complete(thumbnail);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            logger.warn("Thumbnail queue is full, serving original for {}", baseName);
+            return null;
+        }
+        return future;
+    }
+
+    private Thumbnail resize(File original, String baseName, int width, int height, boolean webp)
+            throws IOException {
+        Dimension size = readDimensions(original);
+        if (size == null) {
+            throw new IOException("Not a readable image: " + original.getName());
+        }
+        checkDimensions(size);
+        // No upscaling: a larger request gets the original size, re-encoded
+        int targetWidth = Math.min(width, size.width);
+        int targetHeight = Math.min(height, size.height);
+
+        Path cacheDir = cacheManager.getCacheDir();
+        Files.createDirectories(cacheDir);
+        if (webp) {
+            try {
+                return new Thumbnail(write(Thumbnails.of(original), cacheDir, baseName, "webp",
+                        targetWidth, targetHeight), "image/webp");
+            } catch (IOException | RuntimeException webpError) {
+                // WebP writer unavailable for this image; JPEG always works
+                logger.warn("WebP thumbnail failed for {}, using JPEG: {}", baseName, webpError.getMessage());
+            }
+        }
+        return new Thumbnail(write(Thumbnails.of(original), cacheDir, baseName, "jpg", targetWidth, targetHeight),
+                "image/jpeg");
+    }
+
+    private File write(Thumbnails.Builder<?> builder, Path cacheDir, String baseName, String format, int width,
+            int height) throws IOException {
+        Path target = cacheDir.resolve(baseName + "." + format);
+        Path temp = cacheDir.resolve(baseName + "." + format + ".tmp");
+        try {
+            if (width > 0 && height > 0) {
+                builder.size(width, height);
+            } else if (width > 0) {
+                builder.width(width);
+            } else {
+                builder.height(height);
+            }
+            // Written through a stream: toFile() would append the format's extension to the temp name
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                builder.outputFormat(format).outputQuality(0.7).toOutputStream(out);
+            }
+            if (Files.size(temp) == 0) {
+                throw new IOException("No " + format + " output for " + baseName);
+            }
+            // Readers never see a half-written file
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            cacheManager.recordWrite(target);
+            return target.toFile();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Thumbnail findCached(String baseName, boolean webp) {
+        if (webp) {
+            File webpFile = cacheManager.find(baseName + ".webp");
+            if (webpFile != null) {
+                return new Thumbnail(webpFile, "image/webp");
+            }
+        }
+        File jpg = cacheManager.find(baseName + ".jpg");
+        return jpg == null ? null : new Thumbnail(jpg, "image/jpeg");
+    }
+
+    private static void record(LongAdder total, LongAccumulator max, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        total.add(millis);
+        max.accumulate(millis);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Thumbnail {
+        private final File file;
+        private final String contentType;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Stats {
+        private final long cacheHits;
+        private final long generated;
+        private final long joinedInFlight;
+        private final long rejected;
+        private final long timedOut;
+        private final long failed;
+        private final int inFlight;
+        private final int queued;
+        private final long avgQueueMs;
+        private final long maxQueueMs;
+        private final long avgResizeMs;
+        private final long maxResizeMs;
+        private final ImageCacheManager.Stats cache;
+    }
+}
@@ -10,10 +10,29 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Component
 public class ProductSpecification {
 
+    /**
+     * Brand as compared by the listing and the facet index: trimmed, lower case.
+     */
+    public static String brandKey(String brand) {
+        return brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Product type named by a filter, or null when the name is not a type (the filter is then ignored).
+     */
+    public static Product.ProductType parseType(String type) {
+        try {
+            return Product.ProductType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public Specification<Product> getProducts(String search, BigDecimal minPrice, BigDecimal maxPrice, String brand, Boolean bestseller, Boolean newArrival, Long categoryId, String type) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -37,8 +56,9 @@ public class ProductSpecification {
                 predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice));
             }
 
-            if (brand != null && !brand.isEmpty()) {
-                predicates.add(criteriaBuilder.equal(criteriaBuilder.lower(root.get("brand")), brand.toLowerCase()));
+            if (brand != null && !brand.isBlank()) {
+                predicates.add(criteriaBuilder.equal(
+                        criteriaBuilder.lower(criteriaBuilder.trim(root.get("brand"))), brandKey(brand)));
             }
 
             if (bestseller != null && bestseller) {
@@ -54,11 +74,10 @@ public class ProductSpecification {
             }
 
             if (type != null && !type.isEmpty()) {
-                try {
-                    Product.ProductType productType = Product.ProductType.valueOf(type.toUpperCase());
+                // Invalid type names are ignored
+                Product.ProductType productType = parseType(type);
+                if (productType != null) {
                     predicates.add(criteriaBuilder.equal(root.get("type"), productType));
-                } catch (IllegalArgumentException e) {
-                    // Handle invalid type gracefully
                 }
             }
 
@@ -0,0 +1,16 @@
+-- Transactional outbox for outgoing emails.
+-- Rows are written in the same transaction as the order/user change and sent
+-- by EmailOutboxDispatcher after commit, with retries and backoff.
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME NOT NULL,
+    last_error VARCHAR(1000),
+    created_at DATETIME NOT NULL,
+    sent_at DATETIME,
+    INDEX idx_email_outbox_status_next (status, next_attempt_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,4 @@
+-- One row per coupon and day, so buffered redemptions can be flushed with
+-- INSERT ... ON DUPLICATE KEY UPDATE.
+ALTER TABLE coupon_daily_usage
+ADD CONSTRAINT uk_coupon_daily_usage_coupon_date UNIQUE (coupon_id, date);
@@ -0,0 +1,4 @@
+-- HyperLogLog sketch of the day's visitors (4096 one-byte registers).
+-- unique_visitors holds its estimate; sketches of several days can be merged.
+ALTER TABLE landing_page_views
+ADD COLUMN visitor_sketch BLOB NULL;
@@ -0,0 +1,4 @@
+-- Keyset pagination of the admin order search: newest non-deleted orders first,
+-- resuming after the (created_at, id) of the previous page.
+CREATE INDEX idx_orders_deleted_created_id ON orders (deleted, created_at, id);
+CREATE INDEX idx_orders_phone_number ON orders (phone_number);
@@ -0,0 +1,15 @@
+-- Daily sales totals per dimension, maintained incrementally as orders are
+-- placed, change status or are deleted, and rebuilt from orders by a nightly job.
+-- dimension is TOTAL (dimension_key ''), PRODUCT / CATEGORY (id), CITY, COUPON (code) or STATUS.
+CREATE TABLE IF NOT EXISTS sales_daily_rollup (
+    day DATE NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    dimension_key VARCHAR(255) NOT NULL,
+    orders BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(19,2) NOT NULL DEFAULT 0,
+    discount DECIMAL(19,2) NOT NULL DEFAULT 0,
+    shipping DECIMAL(19,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, dimension, dimension_key),
+    INDEX idx_sales_daily_rollup_dimension_day (dimension, day)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,9 @@
+-- Coupon usage statistics are now read from coupon_daily_usage, which so far
+-- only held redemptions of unlimited coupons. Rebuild it from the orders table.
+DELETE FROM coupon_daily_usage;
+
+INSERT INTO coupon_daily_usage (coupon_id, date, usage_count)
+SELECT coupon_id, DATE(created_at), COUNT(*)
+FROM orders
+WHERE coupon_id IS NOT NULL AND created_at IS NOT NULL
+GROUP BY coupon_id, DATE(created_at);
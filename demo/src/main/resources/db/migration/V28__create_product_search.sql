@@ -0,0 +1,14 @@
+-- Full-text product search: one row per non-deleted product with its text
+-- normalized by the application (lowercase, no accents or Arabic diacritics).
+-- Maintained by ProductSearchIndex after every product change.
+CREATE TABLE IF NOT EXISTS product_search (
+    product_id BIGINT NOT NULL PRIMARY KEY,
+    name_text VARCHAR(512) NOT NULL,
+    tags_text TEXT NOT NULL,
+    body_text MEDIUMTEXT NOT NULL,
+    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE,
+    FULLTEXT INDEX ft_product_search_all (name_text, tags_text, body_text),
+    FULLTEXT INDEX ft_product_search_name (name_text),
+    FULLTEXT INDEX ft_product_search_tags (tags_text),
+    FULLTEXT INDEX ft_product_search_body (body_text)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,11 @@
+-- Content-addressed image storage: one row per distinct uploaded file, stored
+-- once as uploads/images/cas/<h[0..1]>/<h[2..3]>/<sha-256>.<ext> and served as
+-- /api/images/cas/<sha-256>.<ext>. ref_count is the number of uploads that
+-- currently point at it; the file is deleted when it drops to zero.
+-- Maintained by ContentAddressedStore.
+CREATE TABLE IF NOT EXISTS image_blob (
+    blob_name VARCHAR(80) NOT NULL PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,4 @@
+-- Cart and order lines reference the variant they were added with, so stock
+-- reservation no longer has to parse it back out of variant_name.
+ALTER TABLE cart_item ADD COLUMN product_variant_id BIGINT NULL;
+ALTER TABLE order_item ADD COLUMN product_variant_id BIGINT NULL;
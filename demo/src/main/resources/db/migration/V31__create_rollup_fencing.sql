@@ -0,0 +1,27 @@
+-- Fencing between buffered rollup deltas and the rebuilds that recompute the
+-- same rows from orders (see RollupFence). Every transaction that produces a
+-- delta reads its rollup's epoch with a shared lock and tags the delta with
+-- it; a rebuild bumps the epoch under an exclusive lock and records it for
+-- each day it rebuilt. Deltas older than their day's rebuild are already
+-- counted by it and are dropped when flushed, on whichever node holds them.
+CREATE TABLE IF NOT EXISTS rollup_epoch (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    epoch BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS rollup_rebuild (
+    name VARCHAR(64) NOT NULL,
+    day DATE NOT NULL,
+    epoch BIGINT NOT NULL,
+    PRIMARY KEY (name, day)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO rollup_epoch (name, epoch) VALUES ('sales', 0);
+
+-- Scheduled jobs that must run on one node only claim their row until
+-- locked_until (see ScheduledJobLock). Rows are created on first use.
+CREATE TABLE IF NOT EXISTS scheduled_job_lock (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    locked_until DATETIME(3) NOT NULL,
+    locked_by VARCHAR(255) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
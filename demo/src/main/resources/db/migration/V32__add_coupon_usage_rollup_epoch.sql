@@ -0,0 +1,3 @@
+-- coupon_daily_usage is fenced against its nightly reconciliation like the
+-- sales rollups (see V31 and RollupFence).
+INSERT IGNORE INTO rollup_epoch (name, epoch) VALUES ('coupon_usage', 0);
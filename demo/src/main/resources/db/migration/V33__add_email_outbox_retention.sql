@@ -0,0 +1,12 @@
+-- Messages carrying a secret (password reset links, confirmation codes) are
+-- flagged so their body can be dropped once delivered or given up on.
+ALTER TABLE email_outbox
+    ADD COLUMN sensitive BOOLEAN NOT NULL DEFAULT FALSE,
+    MODIFY body TEXT NULL,
+    ADD INDEX idx_email_outbox_status_sent (status, sent_at);
+
+UPDATE email_outbox SET sensitive = TRUE
+WHERE subject IN ('Password Reset Request', 'Confirm your email');
+
+UPDATE email_outbox SET body = NULL
+WHERE sensitive = TRUE AND status IN ('SENT', 'FAILED');
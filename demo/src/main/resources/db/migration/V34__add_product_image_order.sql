@@ -0,0 +1,18 @@
+-- product_images had no ordering column, so "the first image" of a product
+-- depended on how MySQL happened to return the rows. The table is rebuilt
+-- with an explicit position; existing rows are numbered in their current
+-- physical (insertion) order.
+CREATE TABLE product_images_ordered (
+    product_id BIGINT NOT NULL,
+    images VARCHAR(2048),
+    image_order INT NOT NULL,
+    PRIMARY KEY (product_id, image_order),
+    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO product_images_ordered (product_id, images, image_order)
+SELECT product_id, images, ROW_NUMBER() OVER (PARTITION BY product_id) - 1
+FROM product_images;
+
+DROP TABLE product_images;
+RENAME TABLE product_images_ordered TO product_images;
@@ -0,0 +1,35 @@
+package com.example.demo.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcceptEncodingTest {
+
+    @Test
+    void testGzipListedOrCoveredByWildcard() {
+        assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AcceptEncoding.acceptsGzip("GZIP;q=0.5"));
+        assertTrue(AcceptEncoding.acceptsGzip("x-gzip"));
+        assertTrue(AcceptEncoding.acceptsGzip("br, *;q=0.1"));
+    }
+
+    @Test
+    void testZeroQualityRefusesGzip() {
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip ; Q=0.000, identity"));
+        // An explicit entry wins over the wildcard
+        assertFalse(AcceptEncoding.acceptsGzip("*, gzip;q=0"));
+        assertFalse(AcceptEncoding.acceptsGzip("br, *;q=0"));
+    }
+
+    @Test
+    void testAbsentOrMalformedHeaderMeansIdentity() {
+        assertFalse(AcceptEncoding.acceptsGzip(null));
+        assertFalse(AcceptEncoding.acceptsGzip(""));
+        assertFalse(AcceptEncoding.acceptsGzip("identity"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzipped"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=high"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=2"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ImagePathResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageResponseWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private byte[] content;
+    private ImagePathResolver.ImageFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path path = tempDir.resolve("photo.jpg");
+        Files.write(path, content);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(1_700_000_000_000L));
+        file = ImagePathResolver.stat(path);
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ImageResponseWriter.write(request, response, file, "image/jpeg", "public, max-age=86400");
+        return response;
+    }
+
+    @Test
+    void testFullResponseHasValidators() throws Exception {
+        MockHttpServletResponse response = write(new MockHttpServletRequest("GET", "/api/images/products/photo.jpg"));
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+        assertEquals(1000, response.getContentLengthLong());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals(ImageResponseWriter.etag(file), response.getHeader("ETag"));
+        assertEquals(1_700_000_000_000L, response.getDateHeader("Last-Modified"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("public, max-age=86400", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void testMatchingEtagGetsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("If-None-Match", ImageResponseWriter.etag(file));
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(ImageResponseWriter.etag(file), response.getHeader("ETag"));
+    }
+
+    @Test
+    void testUnchangedSinceGetsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("If-Modified-Since", 1_700_000_000_000L);
+
+        assertEquals(304, write(request).getStatus());
+    }
+
+    @Test
+    void testStaleEtagGetsFullContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("If-None-Match", "\"3e8-0\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1000, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testSingleRangeGetsPartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("Range", "bytes=100-199");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    void testSuffixRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("Range", "bytes=-10");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 990-999/1000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 990, 1000), response.getContentAsByteArray());
+    }
+
+    @Test
+    void testUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("Range", "bytes=5000-");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testRangeIgnoredWhenIfRangeIsStale() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/photo.jpg");
+        request.addHeader("Range", "bytes=100-199");
+        request.addHeader("If-Range", "\"3e8-0\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1000, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testSendfileWhenConnectorSupportsIt() throws Exception {
+        byte[] large = new byte[64 * 1024];
+        Path path = tempDir.resolve("large.jpg");
+        Files.write(path, large);
+        file = ImagePathResolver.stat(path);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/products/large.jpg");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=1024-");
+
+        MockHttpServletResponse response = write(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(path.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1024L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) large.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(large.length - 1024, response.getContentLengthLong());
+    }
+}
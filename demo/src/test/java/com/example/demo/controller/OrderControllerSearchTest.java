@@ -0,0 +1,46 @@
+package com.example.demo.controller;
+
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.example.demo.service.OrderCsvExportService;
+import com.example.demo.service.OrderFeedbackService;
+import com.example.demo.service.OrderSearchService;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerSearchTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        OrderController controller = new OrderController(mock(OrderService.class), mock(UserService.class),
+                mock(OrderFeedbackService.class), new OrderSearchService(jdbcTemplate),
+                mock(OrderCsvExportService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testTamperedCursorIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/orders/search").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+        // Decodes to year 10000, which MySQL would reject
+        mockMvc.perform(get("/api/orders/search").param("cursor", "KzEwMDAwLTAxLTAxVDAwOjAwXzU"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
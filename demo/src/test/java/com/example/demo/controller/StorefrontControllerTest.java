@@ -0,0 +1,60 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.StorefrontBootstrapService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StorefrontControllerTest {
+
+    private StorefrontController controller;
+
+    @BeforeEach
+    void setUp() {
+        StorefrontBootstrapService.Payload payload = mock(StorefrontBootstrapService.Payload.class);
+        when(payload.getEtag()).thenReturn("\"abc\"");
+        when(payload.getJson()).thenReturn("{}".getBytes());
+        when(payload.getGzip()).thenReturn(new byte[] { 31, -117 });
+        StorefrontBootstrapService service = mock(StorefrontBootstrapService.class);
+        when(service.getPayload()).thenReturn(payload);
+        controller = new StorefrontController(service);
+        ReflectionTestUtils.setField(controller, "maxAgeSeconds", 30L);
+    }
+
+    @Test
+    void testCodingsHaveDistinctEtags() {
+        ResponseEntity<byte[]> identity = controller.getBootstrap(null, null);
+        ResponseEntity<byte[]> gzip = controller.getBootstrap("gzip, deflate", null);
+
+        assertEquals("\"abc\"", identity.getHeaders().getETag());
+        assertEquals("\"abc-gz\"", gzip.getHeaders().getETag());
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, gzip.getHeaders().getFirst(HttpHeaders.VARY));
+    }
+
+    @Test
+    void testRefusedGzipGetsIdentity() {
+        ResponseEntity<byte[]> response = controller.getBootstrap("gzip;q=0, identity", null);
+
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals("{}".getBytes(), response.getBody());
+    }
+
+    @Test
+    void testEitherEtagRevalidates() {
+        assertEquals(304, controller.getBootstrap("gzip", "\"abc-gz\"").getStatusCode().value());
+        assertEquals(304, controller.getBootstrap("gzip", "\"abc\"").getStatusCode().value());
+        assertEquals(304, controller.getBootstrap(null, "\"old\", W/\"abc-gz\"").getStatusCode().value());
+        assertEquals("\"abc\"", controller.getBootstrap(null, "\"abc-gz\"").getHeaders().getETag());
+
+        ResponseEntity<byte[]> changed = controller.getBootstrap("gzip", "\"old-gz\"");
+        assertEquals(200, changed.getStatusCode().value());
+        assertNotNull(changed.getBody());
+    }
+}
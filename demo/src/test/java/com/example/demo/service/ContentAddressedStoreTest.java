@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class ContentAddressedStoreTest {
+
+    // SHA-256 of "hello"
+    private static final String HELLO = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private ContentAddressedStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        store = new ContentAddressedStore(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(store, "uploadDir", tempDir.toString());
+    }
+
+    @Test
+    void testStoreNamesFileByHashInShardedDirectory() throws Exception {
+        String name = store.store(new ByteArrayInputStream("hello".getBytes()), "JPEG");
+
+        assertEquals(HELLO + ".jpg", name);
+        Path path = tempDir.resolve("images/cas/2c/f2/" + name).toAbsolutePath();
+        assertEquals(path, store.pathOf(name));
+        assertArrayEquals("hello".getBytes(), Files.readAllBytes(path));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO image_blob"), eq(name), eq(5L));
+    }
+
+    @Test
+    void testIdenticalContentIsStoredOnce() throws Exception {
+        String first = store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+        String second = store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+
+        assertEquals(first, second);
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO image_blob"), eq(first), eq(5L));
+        try (Stream<Path> files = Files.walk(tempDir.resolve("images/cas"))) {
+            // No temp files left behind either
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void testReleaseDeletesFileWithLastReference() throws Exception {
+        String name = store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+        Path path = store.pathOf(name);
+
+        // Still referenced by another upload: only decremented
+        when(jdbcTemplate.queryForList(endsWith("FOR UPDATE"), eq(Integer.class), eq(name)))
+                .thenReturn(List.of(2), List.of(1));
+        assertFalse(store.release(name));
+        assertTrue(Files.exists(path));
+        verify(jdbcTemplate).update(startsWith("UPDATE image_blob"), eq(name));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), anyString());
+
+        assertTrue(store.release(name));
+        assertFalse(Files.exists(path));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM image_blob"), eq(name));
+        assertEquals(List.of(), listFiles());
+    }
+
+    @Test
+    void testFailedReleasePutsFileBack() throws Exception {
+        String name = store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+        when(jdbcTemplate.queryForList(endsWith("FOR UPDATE"), eq(Integer.class), eq(name))).thenReturn(List.of(1));
+        // Commit fails after the file was moved aside
+        doThrow(new CannotCreateTransactionException("commit failed")).when(transactionManager).commit(any());
+
+        assertThrows(CannotCreateTransactionException.class, () -> store.release(name));
+        assertEquals(List.of(store.pathOf(name)), listFiles());
+    }
+
+    @Test
+    void testReleaseOfUnknownBlobDoesNothing() throws Exception {
+        String name = store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(name))).thenReturn(List.of());
+
+        assertFalse(store.release(name));
+        assertTrue(Files.exists(store.pathOf(name)));
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), anyString());
+    }
+
+    @Test
+    void testPathOfRejectsInvalidNames() {
+        assertNull(store.pathOf(null));
+        assertNull(store.pathOf("../../etc/passwd"));
+        assertNull(store.pathOf(HELLO.substring(2) + "/../x.jpg"));
+        assertNull(store.pathOf(HELLO.toUpperCase() + ".jpg"));
+        assertNull(store.pathOf(HELLO));
+        assertFalse(store.release("../products/a.jpg"));
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    void testRunsInItsOwnTransaction() throws Exception {
+        // Even inside a caller's transaction: the row lock is not held until the caller commits
+        store.store(new ByteArrayInputStream("hello".getBytes()), "png");
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void testNormalizeExtension() {
+        assertEquals("jpg", ContentAddressedStore.normalizeExtension("JPEG"));
+        assertEquals("webp", ContentAddressedStore.normalizeExtension("webp"));
+        assertEquals("bin", ContentAddressedStore.normalizeExtension(""));
+        assertEquals("bin", ContentAddressedStore.normalizeExtension(null));
+        assertEquals("bin", ContentAddressedStore.normalizeExtension("j/pg"));
+    }
+
+    private List<Path> listFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(tempDir.resolve("images/cas"))) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CouponDTO;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.mapper.CouponMapper;
+import com.example.demo.model.Category;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Product;
+import com.example.demo.repositories.CouponRepository;
+import com.example.demo.repositories.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CouponEngineTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponMapper couponMapper;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CouponEngine couponEngine;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        couponEngine = new CouponEngine(couponRepository, couponMapper, orderRepository, transactionManager);
+        ReflectionTestUtils.setField(couponEngine, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(couponEngine, "negativeTtlSeconds", 60L);
+        ReflectionTestUtils.setField(couponEngine, "maxSize", 100);
+        when(couponMapper.toDTO(any(Coupon.class))).thenReturn(new CouponDTO());
+    }
+
+    @Test
+    void testWarmCacheDoesNotTouchDatabase() {
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon()));
+
+        couponEngine.validate("SAVE10");
+        couponEngine.validate("save10");
+        couponEngine.validate(" SAVE10 ");
+
+        verify(couponRepository, times(1)).findByCode(anyString());
+    }
+
+    @Test
+    void testColdLookupQueriesNormalizedCode() {
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon()));
+
+        // Not cached as missing under "SAVE10" just because the first lookup was untidy
+        couponEngine.validate(" save10");
+        couponEngine.validate("SAVE10");
+
+        verify(couponRepository, times(1)).findByCode("SAVE10");
+        verify(couponRepository, never()).findByCode(" save10");
+    }
+
+    @Test
+    void testInvalidateReloadsCoupon() {
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon()));
+
+        couponEngine.validate("SAVE10");
+        couponEngine.invalidate("SAVE10");
+        couponEngine.validate("SAVE10");
+
+        verify(couponRepository, times(2)).findByCode("SAVE10");
+    }
+
+    @Test
+    void testUnknownCodeIsCachedAsMissing() {
+        when(couponRepository.findByCode("NOPE")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> couponEngine.validate("NOPE"));
+        assertThrows(ResourceNotFoundException.class, () -> couponEngine.validate("NOPE"));
+
+        verify(couponRepository, times(1)).findByCode("NOPE");
+    }
+
+    @Test
+    void testPercentageAppliesOnlyToMatchingCategory() {
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon()));
+
+        CouponRule.Evaluation evaluation = couponEngine.evaluate("SAVE10", List.of(
+                new CouponRule.Line(1L, 7L, new BigDecimal("200.00")),
+                new CouponRule.Line(2L, 8L, new BigDecimal("100.00"))),
+                new BigDecimal("300.00"), 42L);
+
+        assertEquals(0, new BigDecimal("20.00").compareTo(evaluation.getDiscountAmount()));
+        assertFalse(evaluation.isFreeShipping());
+    }
+
+    @Test
+    void testRestrictedCouponRejectsCartWithoutMatchingItems() {
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon()));
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> couponEngine.evaluate("SAVE10", List.of(new CouponRule.Line(2L, 8L, new BigDecimal("100.00"))),
+                        new BigDecimal("100.00"), 42L));
+
+        assertEquals("This coupon is not valid for the items in your cart.", ex.getMessage());
+    }
+
+    @Test
+    void testFirstTimeOnlyCouponChecksOrderHistory() {
+        Coupon coupon = coupon();
+        coupon.setFirstTimeOnly(true);
+        when(couponRepository.findByCode("SAVE10")).thenReturn(Optional.of(coupon));
+        when(orderRepository.existsByUser_Id(42L)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> couponEngine.evaluate("SAVE10",
+                List.of(new CouponRule.Line(1L, 7L, new BigDecimal("100.00"))), new BigDecimal("100.00"), 42L));
+    }
+
+    private static Coupon coupon() {
+        Category category = new Category();
+        category.setId(7L);
+        Coupon coupon = new Coupon();
+        coupon.setId(3L);
+        coupon.setCode("SAVE10");
+        coupon.setDiscountType(Coupon.DiscountType.PERCENTAGE);
+        coupon.setDiscountValue(new BigDecimal("10"));
+        coupon.setExpiryDate(LocalDateTime.now().plusDays(1));
+        coupon.setUsageLimit(0);
+        coupon.setTimesUsed(0);
+        coupon.setApplicableProducts(Set.<Product>of());
+        coupon.setApplicableCategories(Set.of(category));
+        return coupon;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Coupon;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CouponRedemptionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CouponEngine couponEngine;
+
+    @Mock
+    private RollupFence rollupFence;
+
+    @Mock
+    private ScheduledJobLock scheduledJobLock;
+
+    private CouponRedemptionService couponRedemptionService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(i -> {
+            ((Consumer<Object>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(i -> {
+            ((Runnable) i.getArgument(3)).run();
+            return null;
+        }).when(rollupFence).rebuild(anyString(), any(), any(), any());
+        couponRedemptionService = new CouponRedemptionService(jdbcTemplate, transactionTemplate, couponEngine,
+                rollupFence, scheduledJobLock);
+    }
+
+    @Test
+    void testLimitedCouponUsesGuardedIncrement() {
+        when(jdbcTemplate.update(anyString(), eq(5L))).thenReturn(1);
+
+        couponRedemptionService.redeem(coupon(5L, 10));
+
+        verify(jdbcTemplate).update(contains("< usage_limit"), eq(5L));
+        verify(couponEngine).invalidate("CODE5");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLimitedCouponRecordsDailyUsageOnly() {
+        when(jdbcTemplate.update(anyString(), eq(5L))).thenReturn(1);
+        couponRedemptionService.redeem(coupon(5L, 10));
+        couponRedemptionService.redeem(coupon(5L, 10));
+
+        couponRedemptionService.flush();
+
+        // times_used was already incremented by the guarded update
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE coupons"), anyList());
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO coupon_daily_usage"), args.capture());
+        assertEquals(1, args.getValue().size());
+        assertEquals(5L, args.getValue().get(0)[0]);
+        assertEquals(2L, args.getValue().get(0)[2]);
+    }
+
+    @Test
+    void testReconcileRunsInsideFence() {
+        LocalDate day = LocalDate.of(2024, 3, 1);
+
+        couponRedemptionService.reconcileDailyUsage(day, day);
+
+        verify(rollupFence).rebuild(eq("coupon_usage"), eq(day), eq(day), any());
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(startsWith("DELETE FROM coupon_daily_usage"),
+                eq(Date.valueOf(day)), eq(Date.valueOf(day)));
+        inOrder.verify(jdbcTemplate).update(contains("FROM orders"),
+                eq(Timestamp.valueOf(day.atStartOfDay())), eq(Timestamp.valueOf(day.plusDays(1).atStartOfDay())));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushDropsDailyCountsCountedByReconcile() {
+        // Redeemed before today was reconciled (epoch 1), flushed after it
+        when(rollupFence.currentEpoch("coupon_usage")).thenReturn(0L);
+        couponRedemptionService.redeem(coupon(9L, null));
+        LocalDate today = LocalDate.now();
+        when(rollupFence.rebuildEpochs("coupon_usage", today, today)).thenReturn(Map.of(today, 1L));
+
+        couponRedemptionService.flush();
+
+        // The reconciliation counted the order; times_used of the unlimited coupon is still written
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE coupons"), args.capture());
+        assertEquals(1L, args.getValue().get(0)[0]);
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("INSERT INTO coupon_daily_usage"), anyList());
+
+        // Redeemed after it
+        when(rollupFence.currentEpoch("coupon_usage")).thenReturn(1L);
+        couponRedemptionService.redeem(coupon(9L, null));
+        couponRedemptionService.flush();
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO coupon_daily_usage"), anyList());
+    }
+
+    @Test
+    void testNightlyReconcileRunsOnOneNode() {
+        when(scheduledJobLock.tryLock("coupon-usage-reconcile")).thenReturn(false);
+
+        couponRedemptionService.reconcileRecentDays();
+
+        verifyNoInteractions(rollupFence);
+    }
+
+    @Test
+    void testExhaustedLimitedCouponIsRejected() {
+        when(jdbcTemplate.update(anyString(), eq(5L))).thenReturn(0);
+
+        assertThrows(IllegalStateException.class, () -> couponRedemptionService.redeem(coupon(5L, 10)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUnlimitedRedemptionsAreBufferedAndFlushedInOneBatch() throws Exception {
+        CouponRule influencer = coupon(9L, null);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> couponRedemptionService.redeem(influencer));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verifyNoInteractions(couponEngine);
+
+        couponRedemptionService.flush();
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE coupons"), args.capture());
+        assertEquals(1000L, args.getValue().get(0)[0]);
+        assertEquals(9L, args.getValue().get(0)[1]);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO coupon_daily_usage"), anyList());
+
+        // Nothing left to flush
+        reset(jdbcTemplate);
+        couponRedemptionService.flush();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testFailedFlushKeepsCountsForNextRun() {
+        CouponRule influencer = coupon(9L, 0);
+        couponRedemptionService.redeem(influencer);
+        couponRedemptionService.redeem(influencer);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new org.springframework.dao.DataAccessResourceFailureException("db down"));
+
+        couponRedemptionService.flush();
+
+        List<Object> flushedCounts = new ArrayList<>();
+        reset(jdbcTemplate);
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE coupons"), anyList())).thenAnswer(i -> {
+            List<Object[]> rows = i.getArgument(1);
+            flushedCounts.add(rows.get(0)[0]);
+            return new int[] { 1 };
+        });
+        couponRedemptionService.flush();
+
+        assertEquals(List.of(2L), flushedCounts);
+    }
+
+    private static CouponRule coupon(Long id, Integer usageLimit) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setCode("CODE" + id);
+        coupon.setUsageLimit(usageLimit);
+        coupon.setTimesUsed(0);
+        return CouponRule.compile(coupon);
+    }
+}
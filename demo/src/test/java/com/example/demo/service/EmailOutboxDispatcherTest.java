@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.model.EmailOutboxMessage;
+import com.example.demo.repositories.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    private FakeJavaMailSender mailSender;
+    private EmailOutboxDispatcher dispatcher;
+    private EmailOutboxMessage message;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mailSender = new FakeJavaMailSender();
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, mailSender);
+        ReflectionTestUtils.setField(dispatcher, "fromEmail", "shop@example.com");
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutSeconds", 300L);
+        ReflectionTestUtils.setField(dispatcher, "retentionDays", 30);
+
+        message = EmailOutboxMessage.builder()
+                .id(7L)
+                .recipient("buyer@example.com")
+                .subject("Order confirmation")
+                .body("Your order has been confirmed. Order ID 42")
+                .attempts(1)
+                .build();
+        when(emailOutboxRepository.claim(eq(7L), any(), any())).thenReturn(1);
+        when(emailOutboxRepository.findById(7L)).thenReturn(Optional.of(message));
+    }
+
+    @Test
+    void testDispatchSendsAndMarksSent() {
+        dispatcher.dispatch(7L);
+
+        assertEquals(1, mailSender.getSentMessages().size());
+        assertEquals("buyer@example.com", mailSender.getSentMessages().get(0).getTo()[0]);
+        assertEquals(EmailOutboxMessage.Status.SENT, message.getStatus());
+        assertNotNull(message.getSentAt());
+        verify(emailOutboxRepository).save(message);
+    }
+
+    @Test
+    void testFailedSendIsRescheduledWithBackoff() {
+        mailSender.failNextSends(1);
+        LocalDateTime before = LocalDateTime.now();
+
+        dispatcher.dispatch(7L);
+
+        assertTrue(mailSender.getSentMessages().isEmpty());
+        assertEquals(EmailOutboxMessage.Status.PENDING, message.getStatus());
+        assertFalse(message.getNextAttemptAt().isBefore(before.plusSeconds(30)));
+        assertEquals("Simulated SMTP failure", message.getLastError());
+    }
+
+    @Test
+    void testUnexpectedSenderErrorIsRescheduledToo() {
+        JavaMailSender failingSender = mock(JavaMailSender.class);
+        doThrow(new IllegalStateException("Sender not configured")).when(failingSender)
+                .send(any(SimpleMailMessage.class));
+        EmailOutboxDispatcher failingDispatcher = new EmailOutboxDispatcher(emailOutboxRepository, failingSender);
+        ReflectionTestUtils.setField(failingDispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(failingDispatcher, "initialBackoffSeconds", 30L);
+        ReflectionTestUtils.setField(failingDispatcher, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(failingDispatcher, "sendTimeoutSeconds", 300L);
+
+        failingDispatcher.dispatch(7L);
+
+        assertEquals(EmailOutboxMessage.Status.PENDING, message.getStatus());
+        assertNotNull(message.getNextAttemptAt());
+        assertEquals("Sender not configured", message.getLastError());
+        verify(emailOutboxRepository).save(message);
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        message.setAttempts(3);
+        mailSender.failNextSends(1);
+
+        dispatcher.dispatch(7L);
+
+        assertEquals(EmailOutboxMessage.Status.FAILED, message.getStatus());
+    }
+
+    @Test
+    void testMessageClaimedElsewhereIsSkipped() {
+        when(emailOutboxRepository.claim(eq(7L), any(), any())).thenReturn(0);
+
+        dispatcher.dispatch(7L);
+
+        assertTrue(mailSender.getSentMessages().isEmpty());
+        verify(emailOutboxRepository, never()).save(any());
+    }
+
+    @Test
+    void testSensitiveBodyIsDroppedOnceSent() {
+        message.setSensitive(true);
+        message.setBody("To reset your password, please click the link below:\nhttps://shop/reset?token=abc");
+
+        dispatcher.dispatch(7L);
+
+        assertTrue(mailSender.getSentMessages().get(0).getText().contains("token=abc"));
+        assertEquals(EmailOutboxMessage.Status.SENT, message.getStatus());
+        assertNull(message.getBody());
+    }
+
+    @Test
+    void testSensitiveBodyIsKeptForRetryAndDroppedOnGiveUp() {
+        message.setSensitive(true);
+        mailSender.failNextSends(2);
+
+        dispatcher.dispatch(7L);
+        assertEquals(EmailOutboxMessage.Status.PENDING, message.getStatus());
+        assertNotNull(message.getBody());
+
+        message.setAttempts(3);
+        dispatcher.dispatch(7L);
+        assertEquals(EmailOutboxMessage.Status.FAILED, message.getStatus());
+        assertNull(message.getBody());
+    }
+
+    @Test
+    void testRegularBodyIsKeptAfterSend() {
+        dispatcher.dispatch(7L);
+
+        assertEquals("Your order has been confirmed. Order ID 42", message.getBody());
+    }
+
+    @Test
+    void testPurgeDeletesSentMessagesPastRetention() {
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+
+        dispatcher.purgeSentMessages();
+
+        verify(emailOutboxRepository).deleteSentBefore(argThat(cutoff ->
+                !cutoff.isBefore(before) && cutoff.isBefore(before.plusMinutes(1))));
+    }
+
+    @Test
+    void testBackoffIsExponentialAndCapped() {
+        assertEquals(Duration.ofSeconds(30), dispatcher.backoff(1));
+        assertEquals(Duration.ofSeconds(120), dispatcher.backoff(3));
+        assertEquals(Duration.ofSeconds(3600), dispatcher.backoff(20));
+    }
+}
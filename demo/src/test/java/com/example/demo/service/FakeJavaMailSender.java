@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * In-memory JavaMailSender for tests: records every message instead of
+ * talking to SMTP and can be told to fail the next N sends.
+ */
+public class FakeJavaMailSender implements JavaMailSender {
+
+    private final List<SimpleMailMessage> sentMessages = new ArrayList<>();
+    private final List<MimeMessage> sentMimeMessages = new ArrayList<>();
+    private int failuresRemaining;
+
+    public void failNextSends(int count) {
+        this.failuresRemaining = count;
+    }
+
+    public List<SimpleMailMessage> getSentMessages() {
+        return sentMessages;
+    }
+
+    public List<MimeMessage> getSentMimeMessages() {
+        return sentMimeMessages;
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) {
+        failIfRequested();
+        sentMessages.addAll(Arrays.asList(simpleMessages));
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage(Session.getInstance(new Properties()));
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) {
+        try {
+            return new MimeMessage(Session.getInstance(new Properties()), contentStream);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not parse MIME content", e);
+        }
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) {
+        failIfRequested();
+        sentMimeMessages.addAll(Arrays.asList(mimeMessages));
+    }
+
+    private void failIfRequested() {
+        if (failuresRemaining > 0) {
+            failuresRemaining--;
+            throw new MailSendException("Simulated SMTP failure");
+        }
+    }
+}
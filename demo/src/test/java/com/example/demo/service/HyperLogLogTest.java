@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void testEstimateIsWithinErrorBounds() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("visitor-" + i);
+            // Repeat visits must not count again
+            sketch.add("visitor-" + i);
+        }
+
+        assertEquals(100_000, sketch.estimate(), 100_000 * 0.05);
+    }
+
+    @Test
+    void testSmallCountsAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 20; i++) {
+            sketch.add("visitor-" + i);
+        }
+
+        assertEquals(20, sketch.estimate(), 1);
+    }
+
+    @Test
+    void testMergedDaysCountOverlappingVisitorsOnce() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 6000; i++) {
+            monday.add("visitor-" + i);
+        }
+        for (int i = 4000; i < 10000; i++) {
+            tuesday.add("visitor-" + i);
+        }
+
+        HyperLogLog week = HyperLogLog.fromBytes(monday.toBytes());
+        week.merge(tuesday);
+
+        assertEquals(10_000, week.estimate(), 10_000 * 0.05);
+        assertEquals(monday.estimate(), HyperLogLog.fromBytes(monday.toBytes()).estimate());
+    }
+
+    @Test
+    void testInvalidBytesGiveEmptySketch() {
+        assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+        assertEquals(0, HyperLogLog.fromBytes(new byte[3]).estimate());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheManagerTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private Path cacheDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cacheDir = tempDir.resolve("images/cache");
+        Files.createDirectories(cacheDir);
+    }
+
+    private ImageCacheManager createManager(long maxSizeMb) {
+        ImageCacheManager manager = new ImageCacheManager();
+        ReflectionTestUtils.setField(manager, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(manager, "maxSizeMb", maxSizeMb);
+        ReflectionTestUtils.setField(manager, "buckets", new int[] { 640, 160, 320 });
+        manager.loadIndex();
+        return manager;
+    }
+
+    private Path writeVariant(String name, int bytes, long modifiedMillis) throws Exception {
+        Path file = cacheDir.resolve(name);
+        Files.write(file, new byte[bytes]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+        return file;
+    }
+
+    @Test
+    void testSnapRoundsUpToBucket() {
+        ImageCacheManager manager = createManager(10);
+
+        assertEquals(0, manager.snap(0));
+        assertEquals(160, manager.snap(1));
+        assertEquals(160, manager.snap(160));
+        assertEquals(320, manager.snap(161));
+        assertEquals(640, manager.snap(5000));
+    }
+
+    @Test
+    void testLoadIndexesVariantsAndRemovesTempFiles() throws Exception {
+        writeVariant("a.jpg_w160_h0.webp", 100, 1000);
+        writeVariant("a.jpg_w320_h0.jpg", 200, 1000);
+        writeVariant("b.png_w160_h160.webp", 50, 1000);
+        writeVariant("a.jpg_w640_h0.webp.tmp", 10, 1000);
+        writeVariant("stray.txt", 10, 1000);
+
+        ImageCacheManager manager = createManager(10);
+
+        assertEquals(3, manager.getStats().getVariants());
+        assertEquals(350, manager.getStats().getBytes());
+        assertTrue(manager.contains("a.jpg_w320_h0.jpg"));
+        assertEquals(cacheDir.resolve("b.png_w160_h160.webp").toAbsolutePath().toFile(),
+                manager.find("b.png_w160_h160.webp"));
+        assertNull(manager.find("a.jpg_w640_h0.webp"));
+        assertFalse(Files.exists(cacheDir.resolve("a.jpg_w640_h0.webp.tmp")));
+    }
+
+    @Test
+    void testDeleteVariantsUsesIndex() throws Exception {
+        writeVariant("a.jpg_w160_h0.webp", 100, 1000);
+        writeVariant("a.jpg_w160_h0.jpg", 100, 1000);
+        writeVariant("a.jpg.extra_w160_h0.webp", 100, 1000);
+        ImageCacheManager manager = createManager(10);
+
+        assertEquals(2, manager.deleteVariants("a.jpg"));
+
+        assertFalse(Files.exists(cacheDir.resolve("a.jpg_w160_h0.webp")));
+        assertFalse(Files.exists(cacheDir.resolve("a.jpg_w160_h0.jpg")));
+        // Same prefix, different original
+        assertTrue(Files.exists(cacheDir.resolve("a.jpg.extra_w160_h0.webp")));
+        assertEquals(100, manager.getStats().getBytes());
+        assertEquals(0, manager.deleteVariants("a.jpg"));
+    }
+
+    @Test
+    void testWriteOverQuotaEvictsLeastRecentlyUsed() throws Exception {
+        writeVariant("old.jpg_w160_h0.webp", 400 * 1024, 1000);
+        writeVariant("used.jpg_w160_h0.webp", 400 * 1024, 2000);
+        ImageCacheManager manager = createManager(1);
+        // Reading the older variant makes it the most recently used
+        File used = manager.find("old.jpg_w160_h0.webp");
+        assertNotNull(used);
+
+        Path fresh = writeVariant("new.jpg_w160_h0.webp", 400 * 1024, System.currentTimeMillis());
+        manager.recordWrite(fresh);
+
+        assertTrue(manager.getStats().getBytes() <= MB * 9 / 10);
+        assertEquals(1, manager.getStats().getEvictions());
+        assertFalse(Files.exists(cacheDir.resolve("used.jpg_w160_h0.webp")));
+        assertFalse(manager.contains("used.jpg_w160_h0.webp"));
+        assertTrue(manager.contains("old.jpg_w160_h0.webp"));
+        assertTrue(manager.contains("new.jpg_w160_h0.webp"));
+    }
+}
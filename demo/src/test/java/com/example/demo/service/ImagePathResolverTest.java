@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ImagePathResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ImagePathResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(mock(JdbcTemplate.class),
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(store, "uploadDir", tempDir.toString());
+        resolver = new ImagePathResolver(store);
+        ReflectionTestUtils.setField(resolver, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(resolver, "cacheSize", 2);
+        Files.createDirectories(tempDir.resolve("images/products"));
+        Files.createDirectories(tempDir.resolve("images/general"));
+    }
+
+    @Test
+    void testResolveRemembersFile() throws Exception {
+        Path path = Files.write(tempDir.resolve("images/products/a.jpg"), new byte[12]);
+
+        ImagePathResolver.ImageFile file = resolver.resolve("products", "a.jpg");
+
+        assertEquals(path, file.getPath());
+        assertEquals(12, file.getSize());
+        // Served from memory: no filesystem access until evicted
+        Files.delete(path);
+        assertSame(file, resolver.resolve("products", "a.jpg"));
+        resolver.evict("products", "a.jpg");
+        assertNull(resolver.resolve("products", "a.jpg"));
+    }
+
+    @Test
+    void testResolvesContentAddressedBlobs() throws Exception {
+        String name = "ab".repeat(32) + ".jpg";
+        Path path = tempDir.resolve("images/cas/ab/ab/" + name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[5]);
+
+        assertEquals(path, resolver.resolve("cas", name).getPath().toAbsolutePath());
+        assertNull(resolver.resolve("cas", "../products/a.jpg"));
+        assertNull(resolver.resolve("cas", "ab.jpg"));
+    }
+
+    @Test
+    void testDirectoriesAndMissingFilesAreNotFound() {
+        assertNull(resolver.resolve("products", "missing.jpg"));
+        assertNull(resolver.resolve("images", "products"));
+    }
+
+    @Test
+    void testLegacyLookupOrder() throws Exception {
+        Files.write(tempDir.resolve("old.jpg"), new byte[1]);
+        Files.write(tempDir.resolve("images/both.jpg"), new byte[2]);
+        Files.write(tempDir.resolve("images/general/both.jpg"), new byte[3]);
+
+        assertEquals(tempDir.resolve("old.jpg"), resolver.resolveLegacy("old.jpg").getPath());
+        assertEquals(3, resolver.resolveLegacy("both.jpg").getSize());
+        assertNull(resolver.resolveLegacy("none.jpg"));
+    }
+
+    @Test
+    void testCacheIsClearedWhenFull() throws Exception {
+        for (String name : new String[] { "a.jpg", "b.jpg", "c.jpg" }) {
+            Files.write(tempDir.resolve("images/products").resolve(name), new byte[1]);
+            resolver.resolve("products", name);
+        }
+        Files.delete(tempDir.resolve("images/products/a.jpg"));
+        Files.delete(tempDir.resolve("images/products/c.jpg"));
+
+        // a.jpg was dropped when c.jpg didn't fit; c.jpg is still remembered
+        assertNull(resolver.resolve("products", "a.jpg"));
+        assertNotNull(resolver.resolve("products", "c.jpg"));
+    }
+}
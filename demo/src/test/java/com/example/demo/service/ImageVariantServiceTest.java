@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ThumbnailService thumbnailService;
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        ImageCacheManager cacheManager = new ImageCacheManager();
+        ReflectionTestUtils.setField(cacheManager, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(cacheManager, "maxSizeMb", 100L);
+        ReflectionTestUtils.setField(cacheManager, "buckets", ResponsiveImages.WIDTHS.clone());
+        cacheManager.loadIndex();
+        thumbnailService = new ThumbnailService(cacheManager);
+        ReflectionTestUtils.setField(thumbnailService, "threads", 1);
+        ReflectionTestUtils.setField(thumbnailService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(thumbnailService, "waitTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(thumbnailService, "maxPixels", 1_000_000L);
+        thumbnailService.start();
+
+        imageVariantService = new ImageVariantService(thumbnailService);
+        ReflectionTestUtils.setField(imageVariantService, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(imageVariantService, "threads", 1);
+        ReflectionTestUtils.setField(imageVariantService, "queueCapacity", 10);
+        imageVariantService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.stop();
+        thumbnailService.stop();
+    }
+
+    private File writeImage(String type, String filename, int width, int height) throws Exception {
+        Path dir = tempDir.resolve("images").resolve(type);
+        Files.createDirectories(dir);
+        File file = dir.resolve(filename).toFile();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", file);
+        return file;
+    }
+
+    @Test
+    void testGenerateRecordsVariantsSmallerThanOriginal() throws Exception {
+        File original = writeImage("products", "a.jpg", 700, 500);
+
+        ImageVariantService.Variants variants = imageVariantService.generate(original);
+
+        assertEquals(700, variants.getOriginalWidth());
+        assertEquals(List.of(160, 320, 640), variants.getWidths());
+        assertSame(variants, imageVariantService.getVariants("a.jpg"));
+        assertTrue(Files.exists(tempDir.resolve("images/cache/a.jpg_w640_h0.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("images/cache/a.jpg_w1024_h0.jpg")));
+        assertTrue(imageVariantService.isOriginalWideEnough("a.jpg", 1024));
+        assertFalse(imageVariantService.isOriginalWideEnough("a.jpg", 640));
+        assertFalse(imageVariantService.isOriginalWideEnough("unknown.jpg", 1024));
+    }
+
+    @Test
+    void testBackfillProcessesOriginalsButNotCache() throws Exception {
+        writeImage("products", "a.jpg", 400, 300);
+        writeImage("categories", "b.jpg", 200, 200);
+        Files.writeString(tempDir.resolve("images/products/notes.txt"), "not an image");
+
+        assertEquals(2, imageVariantService.backfill());
+        assertNotNull(imageVariantService.getVariants("a.jpg"));
+        assertNotNull(imageVariantService.getVariants("b.jpg"));
+        assertTrue(Files.exists(tempDir.resolve("images/cache/b.jpg_w160_h0.jpg")));
+
+        // Cached variants are not treated as originals on the next run
+        assertEquals(2, imageVariantService.backfill());
+        assertNull(imageVariantService.getVariants("b.jpg_w160_h0.jpg"));
+    }
+
+    @Test
+    void testBackfillAsyncRefusesWhileRunning() throws Exception {
+        ((AtomicBoolean) ReflectionTestUtils.getField(imageVariantService, "backfillRunning")).set(true);
+
+        assertFalse(imageVariantService.backfillAsync());
+        assertEquals(-1, imageVariantService.backfill());
+    }
+
+    @Test
+    void testBackfillAsyncRunsOnBackfillThread() throws Exception {
+        writeImage("products", "a.jpg", 400, 300);
+
+        assertTrue(imageVariantService.backfillAsync());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (imageVariantService.getVariants("a.jpg") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNotNull(imageVariantService.getVariants("a.jpg"));
+    }
+
+    @Test
+    void testValidateUploadRejectsTooManyPixels() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(2000, 2000, BufferedImage.TYPE_BYTE_BINARY), "png", png);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> imageVariantService.validateUpload(new ByteArrayInputStream(png.toByteArray())));
+        // Non-image data is left alone
+        imageVariantService.validateUpload(new ByteArrayInputStream("plain text".getBytes()));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LandingPageResponseDTO;
+import com.example.demo.mapper.LandingPageMapper;
+import com.example.demo.model.LandingPage;
+import com.example.demo.model.LandingPageSection;
+import com.example.demo.model.Product;
+import com.example.demo.repositories.LandingPageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LandingPageResponseCacheTest {
+
+    @Mock
+    private LandingPageRepository landingPageRepository;
+
+    @Mock
+    private LandingPageMapper landingPageMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LandingPageResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        responseCache = new LandingPageResponseCache(landingPageRepository, landingPageMapper, new ObjectMapper(),
+                transactionManager);
+        ReflectionTestUtils.setField(responseCache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(responseCache, "negativeTtlSeconds", 60L);
+        ReflectionTestUtils.setField(responseCache, "maxSize", 100);
+        ReflectionTestUtils.setField(responseCache, "maxMisses", 2);
+        when(landingPageMapper.toResponseDTO(any(LandingPage.class))).thenAnswer(i -> {
+            LandingPage landingPage = i.getArgument(0);
+            return LandingPageResponseDTO.builder()
+                    .id(landingPage.getId())
+                    .title(landingPage.getTitle())
+                    .slug(landingPage.getSlug())
+                    .build();
+        });
+    }
+
+    @Test
+    void testWarmCacheDoesNotTouchDatabase() {
+        when(landingPageRepository.findPublishedBySlug("summer")).thenReturn(Optional.of(landingPage("Summer")));
+
+        LandingPageResponseCache.CachedPage first = responseCache.get("summer");
+        LandingPageResponseCache.CachedPage second = responseCache.get("summer");
+
+        assertSame(first, second);
+        assertEquals(9L, first.getLandingPageId());
+        assertTrue(new String(first.getJson()).contains("\"title\":\"Summer\""));
+        verify(landingPageRepository, times(1)).findPublishedBySlug("summer");
+    }
+
+    @Test
+    void testInvalidateByIdDropsPageAfterSlugChange() {
+        when(landingPageRepository.findPublishedBySlug("summer")).thenReturn(Optional.of(landingPage("Summer")));
+        LandingPageResponseCache.CachedPage first = responseCache.get("summer");
+
+        responseCache.invalidate(9L, "summer-sale");
+        LandingPageResponseCache.CachedPage second = responseCache.get("summer");
+
+        assertNotSame(first, second);
+        verify(landingPageRepository, times(2)).findPublishedBySlug("summer");
+    }
+
+    @Test
+    void testUnknownSlugIsCachedUntilPublished() {
+        when(landingPageRepository.findPublishedBySlug("winter")).thenReturn(Optional.empty());
+
+        assertNull(responseCache.get("winter"));
+        assertNull(responseCache.get("winter"));
+        verify(landingPageRepository, times(1)).findPublishedBySlug("winter");
+
+        when(landingPageRepository.findPublishedBySlug("winter")).thenReturn(Optional.of(landingPage("Winter")));
+        responseCache.invalidate(9L, "winter");
+
+        assertNotNull(responseCache.get("winter"));
+    }
+
+    @Test
+    void testProductChangeDropsPagesShowingProduct() {
+        when(landingPageRepository.findPublishedBySlug("summer")).thenReturn(Optional.of(landingPage("Summer")));
+        responseCache.get("summer");
+
+        responseCache.onProductChanged(new ProductChangedEvent(8L));
+        responseCache.get("summer");
+        verify(landingPageRepository, times(1)).findPublishedBySlug("summer");
+
+        responseCache.onProductChanged(new ProductChangedEvent(5L));
+        responseCache.get("summer");
+        verify(landingPageRepository, times(2)).findPublishedBySlug("summer");
+    }
+
+    @Test
+    void testProductChangeDropsPagesWithProductInSection() {
+        LandingPage landingPage = landingPage("Summer");
+        landingPage.setProduct(null);
+        LandingPageSection featured = new LandingPageSection();
+        featured.setSectionData(Map.of("productId", "12"));
+        landingPage.addSection(featured);
+        LandingPageSection grid = new LandingPageSection();
+        grid.setSectionData(Map.of("productIds", List.of(13, "14")));
+        landingPage.addSection(grid);
+        when(landingPageRepository.findPublishedBySlug("summer")).thenReturn(Optional.of(landingPage));
+
+        assertEquals(Set.of(12L, 13L, 14L), responseCache.get("summer").getProductIds());
+
+        responseCache.onProductChanged(new ProductChangedEvent(14L));
+        responseCache.get("summer");
+        verify(landingPageRepository, times(2)).findPublishedBySlug("summer");
+    }
+
+    @Test
+    void testUnknownSlugsDoNotEvictPages() {
+        when(landingPageRepository.findPublishedBySlug("summer")).thenReturn(Optional.of(landingPage("Summer")));
+        when(landingPageRepository.findPublishedBySlug(startsWith("random-"))).thenReturn(Optional.empty());
+        responseCache.get("summer");
+
+        for (int i = 0; i < 10; i++) {
+            assertNull(responseCache.get("random-" + i));
+        }
+
+        assertNotNull(responseCache.get("summer"));
+        verify(landingPageRepository, times(1)).findPublishedBySlug("summer");
+    }
+
+    @Test
+    void testInvalidateDuringLoadIsNotCached() {
+        when(landingPageRepository.findPublishedBySlug("summer")).thenAnswer(i -> {
+            // The page is edited while it is being read
+            responseCache.invalidate(9L, "summer");
+            return Optional.of(landingPage("Summer"));
+        });
+
+        responseCache.get("summer");
+        responseCache.get("summer");
+
+        verify(landingPageRepository, times(2)).findPublishedBySlug("summer");
+    }
+
+    private static LandingPage landingPage(String title) {
+        Product product = new Product();
+        product.setId(5L);
+        LandingPage landingPage = new LandingPage();
+        landingPage.setId(9L);
+        landingPage.setTitle(title);
+        landingPage.setSlug(title.toLowerCase());
+        landingPage.setStatus(LandingPage.LandingPageStatus.PUBLISHED);
+        landingPage.setProduct(product);
+        return landingPage;
+    }
+}
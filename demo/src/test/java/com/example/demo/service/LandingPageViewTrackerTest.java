@@ -0,0 +1,122 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LandingPageViewTrackerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private LandingPageViewTracker viewTracker;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(i -> {
+            ((Consumer<Object>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        viewTracker = new LandingPageViewTracker(jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBurstOfViewsIsFlushedAsOneUpsert() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            pool.execute(() -> viewTracker.recordView(4L, null));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(1000L, viewTracker.getPendingViews(4L));
+
+        viewTracker.flush();
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON DUPLICATE KEY UPDATE view_count = view_count + ?"),
+                args.capture());
+        assertEquals(1, args.getValue().size());
+        Object[] row = args.getValue().get(0);
+        assertEquals(1000L, row[1]);
+        assertEquals(4L, row[2]);
+        assertEquals(1000L, row[3]);
+        assertEquals(0L, viewTracker.getPendingViews(4L));
+    }
+
+    @Test
+    void testFailedFlushKeepsViewsForNextRun() {
+        viewTracker.recordView(4L, "a");
+        viewTracker.recordView(4L, "b");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        viewTracker.flush();
+
+        assertEquals(2L, viewTracker.getPendingViews(4L));
+    }
+
+    @Test
+    void testPendingViewsOfSeveralPages() {
+        viewTracker.recordView(4L, null);
+        viewTracker.recordView(4L, null);
+        viewTracker.recordView(5L, null);
+        viewTracker.recordView(6L, null);
+
+        Map<Long, Long> pending = viewTracker.getPendingViews(List.of(4L, 5L, 7L));
+
+        assertEquals(Map.of(4L, 2L, 5L, 1L), pending);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVisitorSketchIsMergedWithStoredSketch() {
+        HyperLogLog stored = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            stored.add("visitor-" + i);
+        }
+        doReturn(List.of(stored.toBytes())).when(jdbcTemplate)
+                .query(startsWith("SELECT visitor_sketch"), any(RowMapper.class), eq(4L), any());
+        // 50 already stored, 100 seen by this node (half of them overlapping), each twice
+        for (int i = 25; i < 125; i++) {
+            viewTracker.recordView(4L, "visitor-" + i);
+            viewTracker.recordView(4L, "visitor-" + i);
+        }
+
+        viewTracker.flush();
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE landing_page_views SET visitor_sketch"), args.capture());
+        long uniqueVisitors = (Long) args.getValue().get(0)[1];
+        assertEquals(125, uniqueVisitors, 5);
+
+        // Nothing changed since: the sketch is not written again
+        reset(jdbcTemplate);
+        viewTracker.recordView(4L, "visitor-30");
+        viewTracker.flush();
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE landing_page_views"), anyList());
+    }
+}
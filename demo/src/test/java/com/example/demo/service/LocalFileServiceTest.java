@@ -3,15 +3,25 @@ package com.example.demo.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for LocalFileService.
@@ -20,6 +30,10 @@ import static org.junit.jupiter.api.Assertions.*;
 class LocalFileServiceTest {
 
     private LocalFileService localFileService;
+    private ImageVariantService imageVariantService;
+    private ImageCacheManager imageCacheManager;
+    private JdbcTemplate jdbcTemplate;
+    private ContentAddressedStore contentAddressedStore;
 
     @TempDir
     Path tempDir;
@@ -27,6 +41,15 @@ class LocalFileServiceTest {
     @BeforeEach
     void setUp() {
         localFileService = new LocalFileService();
+        imageVariantService = mock(ImageVariantService.class);
+        ReflectionTestUtils.setField(localFileService, "imageVariantService", imageVariantService);
+        imageCacheManager = mock(ImageCacheManager.class);
+        ReflectionTestUtils.setField(localFileService, "imageCacheManager", imageCacheManager);
+        ReflectionTestUtils.setField(localFileService, "imagePathResolver", mock(ImagePathResolver.class));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        contentAddressedStore = new ContentAddressedStore(jdbcTemplate, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(contentAddressedStore, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(localFileService, "contentAddressedStore", contentAddressedStore);
         // Set upload directory to temp directory for testing
         ReflectionTestUtils.setField(localFileService, "uploadDir", tempDir.toString());
         ReflectionTestUtils.setField(localFileService, "baseUrl", "http://localhost:8080/api/images");
@@ -47,12 +70,12 @@ class LocalFileServiceTest {
 
         // Assert
         assertNotNull(imageUrl);
-        assertTrue(imageUrl.contains("/api/images/products/"));
-        assertTrue(imageUrl.contains("test-image.jpg"));
+        assertTrue(imageUrl.contains("/api/images/cas/"));
+        assertTrue(imageUrl.endsWith(".jpg"));
         
         // Verify file was created
         String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-        Path filePath = tempDir.resolve("images").resolve("products").resolve(filename);
+        Path filePath = contentAddressedStore.pathOf(filename);
         assertTrue(Files.exists(filePath), "Image file should be created");
     }
 
@@ -71,11 +94,11 @@ class LocalFileServiceTest {
 
         // Assert
         assertNotNull(imageUrl);
-        assertTrue(imageUrl.contains("/api/images/categories/"));
+        assertTrue(imageUrl.contains("/api/images/cas/"));
         
         // Verify file was created
         String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-        Path filePath = tempDir.resolve("images").resolve("categories").resolve(filename);
+        Path filePath = contentAddressedStore.pathOf(filename);
         assertTrue(Files.exists(filePath), "Category image file should be created");
     }
 
@@ -90,12 +113,12 @@ class LocalFileServiceTest {
 
         // Assert
         assertNotNull(imageUrl);
-        assertTrue(imageUrl.contains("/api/images/packs/"));
-        assertTrue(imageUrl.contains("composite-image.png"));
+        assertTrue(imageUrl.contains("/api/images/cas/"));
+        assertTrue(imageUrl.endsWith(".png"));
         
         // Verify file was created
         String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-        Path filePath = tempDir.resolve("images").resolve("packs").resolve(filename);
+        Path filePath = contentAddressedStore.pathOf(filename);
         assertTrue(Files.exists(filePath), "Composite image file should be created");
     }
 
@@ -124,22 +147,17 @@ class LocalFileServiceTest {
     }
 
     @Test
-    void testSaveImage_CreatesDirectoryIfNotExists() throws IOException {
-        // Arrange
-        MockMultipartFile file = new MockMultipartFile(
-                "image",
-                "test.jpg",
-                "image/jpeg",
-                "test".getBytes()
-        );
+    void testSaveImage_SameContentIsStoredOnce() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "test.jpg", "image/jpeg", "test".getBytes());
+        MockMultipartFile copy = new MockMultipartFile("image", "copy.JPEG", "image/jpeg", "test".getBytes());
 
-        // Act
-        localFileService.saveImage(file, "hero");
+        String first = localFileService.saveImage(file, "hero");
+        String second = localFileService.saveImage(copy, "products");
 
-        // Assert - directory should be created
-        Path heroDir = tempDir.resolve("images").resolve("hero");
-        assertTrue(Files.exists(heroDir), "Hero directory should be created");
-        assertTrue(Files.isDirectory(heroDir), "Hero path should be a directory");
+        assertEquals(first, second);
+        // One reference per upload
+        String blobName = first.substring(first.lastIndexOf("/") + 1);
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO image_blob"), eq(blobName), eq(4L));
     }
 
     @Test
@@ -155,8 +173,10 @@ class LocalFileServiceTest {
         
         // Extract filename
         String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-        Path filePath = tempDir.resolve("images").resolve("products").resolve(filename);
+        Path filePath = contentAddressedStore.pathOf(filename);
         assertTrue(Files.exists(filePath), "File should exist before deletion");
+        // Last reference released
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(filename))).thenReturn(List.of(1));
 
         // Act
         boolean deleted = localFileService.deleteImage(imageUrl);
@@ -164,6 +184,30 @@ class LocalFileServiceTest {
         // Assert
         assertTrue(deleted, "Image should be deleted");
         assertFalse(Files.exists(filePath), "File should not exist after deletion");
+        verify(imageCacheManager).deleteVariants(filename);
+    }
+
+    @Test
+    void testDeleteImage_StillReferencedIsKept() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "shared.jpg", "image/jpeg", "test".getBytes());
+        String imageUrl = localFileService.saveImage(file, "products");
+        Path filePath = contentAddressedStore.pathOf(imageUrl.substring(imageUrl.lastIndexOf("/") + 1));
+        // Another upload still references the same bytes
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), anyString())).thenReturn(List.of(2));
+
+        assertFalse(localFileService.deleteImage(imageUrl));
+        assertTrue(Files.exists(filePath));
+        verify(imageCacheManager, never()).deleteVariants(anyString());
+    }
+
+    @Test
+    void testDeleteImage_LegacyTypeDirectory() throws IOException {
+        Path legacy = Files.createDirectories(tempDir.resolve("images").resolve("products")).resolve("old.jpg");
+        Files.write(legacy, "old".getBytes());
+
+        assertTrue(localFileService.deleteImage("http://localhost:8080/api/images/products/old.jpg"));
+        assertFalse(Files.exists(legacy));
+        verify(imageCacheManager).deleteVariants("old.jpg");
     }
 
     @Test
@@ -193,5 +237,43 @@ class LocalFileServiceTest {
         // Should use "general" as default type
         assertTrue(imageUrl.contains("/api/images/general/") || imageUrl.contains("/api/images/"));
     }
-}
 
+    @Test
+    void testSaveImage_QueuesVariantGeneration() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("image", "photo.jpg", "image/jpeg", "content".getBytes());
+
+        String imageUrl = localFileService.saveImage(file, "products");
+
+        String filename = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
+        verify(imageVariantService).validateUpload(any());
+        verify(imageVariantService).generateAsync(contentAddressedStore.pathOf(filename));
+    }
+
+    @Test
+    void testSaveImage_RejectedImageIsNotStored() throws IOException {
+        doThrow(new IllegalArgumentException("too large")).when(imageVariantService).validateUpload(any());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> localFileService.saveImage("bomb".getBytes(), "bomb.png", "products"));
+        assertFalse(Files.exists(tempDir.resolve("images").resolve("cas")));
+        verify(imageVariantService, never()).generateAsync(any());
+    }
+
+    @Test
+    void testDeleteImageAfterCommitWaitsForCommit() throws IOException {
+        String url = localFileService.saveImage("hello".getBytes(), "a.png", "products");
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(name))).thenReturn(List.of(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            localFileService.deleteImageAfterCommit(url);
+            assertTrue(Files.exists(contentAddressedStore.pathOf(name)));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(Files.exists(contentAddressedStore.pathOf(name)));
+    }
+}
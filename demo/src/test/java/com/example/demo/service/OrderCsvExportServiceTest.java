@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderCsvExportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private OrderCsvExportService exportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        exportService = new OrderCsvExportService(jdbcTemplate);
+        ReflectionTestUtils.setField(exportService, "chunkSize", 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOrdersAreStreamedInChunks() throws Exception {
+        // Each chunk query maps the rows the "database" returns for it
+        List<List<Long>> chunks = List.of(List.of(12L, 11L), List.of(10L));
+        int[] calls = { 0 };
+        doAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> rows = new ArrayList<>();
+            for (Long id : chunks.get(calls[0]++)) {
+                rows.add(mapper.mapRow(orderRow(id), rows.size()));
+            }
+            return rows;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, user_id"), any(RowMapper.class), any(Object[].class));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] arguments = invocation.getArguments();
+            for (int i = 2; i < arguments.length; i++) {
+                handler.processRow(itemRow((Long) arguments[i]));
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM order_item"), any(RowCallbackHandler.class), any(Object[].class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeCsv(Order.OrderStatus.DELIVERED, LocalDate.of(2024, 1, 1), null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(OrderCsvExportService.HEADER, lines[0]);
+        assertEquals("12,3,\"Sara \"\"S\"\"\",\"Rabat\",\"\",\"0600\",DELIVERED,2024-05-10T12:30,N/A,0,30.00,1,2,"
+                + "\"Serum (Qty: 2, Price: $50.00)\",130.00", lines[1]);
+        assertTrue(lines[3].startsWith("10,"));
+
+        // The second chunk seeks past the last id of the first
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getAllValues().get(1).contains("AND id < ? ORDER BY id DESC LIMIT ?"));
+        assertArrayEquals(new Object[] { "DELIVERED", Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0)), 11L, 2 },
+                args.getAllValues().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDirectOrderWithoutUserOrProduct() throws Exception {
+        ResultSet order = mock(ResultSet.class);
+        when(order.getLong("id")).thenReturn(1L);
+        when(order.getString("client_full_name")).thenReturn("Direct Buyer");
+        when(order.getString("city")).thenReturn("Casablanca");
+        when(order.getString("address")).thenReturn("Test St");
+        when(order.getString("phone_number")).thenReturn("123");
+        when(order.getString("status")).thenReturn("PREPARING");
+        when(order.getBigDecimal("shipping_cost")).thenReturn(BigDecimal.TEN);
+        // No user and no coupon
+        when(order.wasNull()).thenReturn(true);
+        doAnswer(invocation -> List.of(((RowMapper<Object>) invocation.getArgument(1)).mapRow(order, 0)))
+                .when(jdbcTemplate).query(startsWith("SELECT id, user_id"), any(RowMapper.class), any(Object[].class));
+        // Landing page items have no product, only the name stored on the item
+        ResultSet item = mock(ResultSet.class);
+        when(item.getLong("order_id")).thenReturn(1L);
+        when(item.getString("product_name")).thenReturn("Landing Page Deal");
+        when(item.getInt("quantity")).thenReturn(1);
+        when(item.getBigDecimal("price")).thenReturn(new BigDecimal("99.00"));
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(item);
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM order_item"), any(RowCallbackHandler.class), any(Object[].class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeCsv(null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("1,N/A,\"Direct Buyer\",\"Casablanca\",\"Test St\",\"123\",PREPARING,null,N/A,0,10,1,1,"
+                + "\"Landing Page Deal (Qty: 1, Price: $99.00)\",109.00", lines[1]);
+        verify(jdbcTemplate).query(contains("LEFT JOIN product"), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    private static ResultSet orderRow(Long id) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("user_id")).thenReturn(3L);
+        when(rs.getString("client_full_name")).thenReturn("Sara \"S\"");
+        when(rs.getString("city")).thenReturn("Rabat");
+        when(rs.getString("phone_number")).thenReturn("0600");
+        when(rs.getString("status")).thenReturn("DELIVERED");
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 5, 10, 12, 30)));
+        when(rs.getLong("coupon_id")).thenReturn(0L);
+        when(rs.wasNull()).thenReturn(false, true);
+        when(rs.getBigDecimal("shipping_cost")).thenReturn(new BigDecimal("30.00"));
+        return rs;
+    }
+
+    private static ResultSet itemRow(Long orderId) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("order_id")).thenReturn(orderId);
+        when(rs.getString("product_name")).thenReturn("Serum");
+        when(rs.getInt("quantity")).thenReturn(2);
+        when(rs.getBigDecimal("price")).thenReturn(new BigDecimal("50.00"));
+        return rs;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderSearchResultDTO;
+import com.example.demo.dto.OrderSummaryDTO;
+import com.example.demo.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderSearchServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private OrderSearchService orderSearchService;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 5, 10, 12, 30, 15);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderSearchService = new OrderSearchService(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFullPageReturnsCursorOfLastRow() {
+        List<OrderSummaryDTO> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(order(30L - i, now.minusMinutes(i)));
+        }
+        doReturn(rows).when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(Object[].class));
+
+        OrderSearchResultDTO page = orderSearchService.search(Order.OrderStatus.PREPARING, "Casablanca", "0612",
+                LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 10), null, 2);
+
+        assertEquals(2, page.getOrders().size());
+        assertNotNull(page.getNextCursor());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getValue().contains("status = ? AND city = ? AND phone_number LIKE ?"));
+        assertTrue(sql.getValue().endsWith("ORDER BY created_at DESC, id DESC LIMIT ?"));
+        assertArrayEquals(new Object[] { "PREPARING", "Casablanca", "0612%",
+                Timestamp.valueOf(LocalDateTime.of(2024, 5, 1, 0, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2024, 5, 11, 0, 0)), 3 }, args.getValue());
+        // Items are loaded for the visible orders only
+        verify(jdbcTemplate).query(contains("order_id IN (?,?)"), any(RowCallbackHandler.class), eq(30L), eq(29L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCursorSeeksPastPreviousPage() {
+        doReturn(new ArrayList<>(List.of(order(29L, now.minusMinutes(1)))))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(Object[].class));
+        String cursor = new OrderSearchService.Cursor(now, 30L).encode();
+
+        OrderSearchResultDTO page = orderSearchService.search(null, null, null, null, null, cursor, null);
+
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getValue().contains("AND (created_at < ? OR (created_at = ? AND id < ?))"));
+        assertArrayEquals(new Object[] { Timestamp.valueOf(now), Timestamp.valueOf(now), 30L,
+                OrderSearchService.DEFAULT_PAGE_SIZE + 1 }, args.getValue());
+    }
+
+    @Test
+    void testTotalMatchesOrderMapper() {
+        OrderSummaryDTO order = order(1L, now);
+        order.setShippingCost(new BigDecimal("20"));
+        order.setDiscountAmount(new BigDecimal("5"));
+        doReturn(new ArrayList<>(List.of(order)))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), any(Object[].class));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("order_id")).thenReturn(1L);
+            when(rs.getInt("quantity")).thenReturn(2);
+            when(rs.getBigDecimal("price")).thenReturn(new BigDecimal("50"));
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(contains("order_item"), any(RowCallbackHandler.class), any(Object[].class));
+
+        OrderSummaryDTO result = orderSearchService.search(null, null, null, null, null, null, 10).getOrders().get(0);
+
+        assertEquals(1, result.getItemCount());
+        assertEquals(0, new BigDecimal("115").compareTo(result.getTotal()));
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderSearchService.search(null, null, null, null, null, "not-a-cursor", 10));
+        // Well-formed but not a position we could have issued: rejected before reaching MySQL
+        for (String value : new String[] { "+10000-01-01T00:00_5", "0000-01-01T00:00_5", "2024-05-10T12:30_-1" }) {
+            String cursor = Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class,
+                    () -> orderSearchService.search(null, null, null, null, null, cursor, 10));
+        }
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static OrderSummaryDTO order(Long id, LocalDateTime createdAt) {
+        OrderSummaryDTO order = new OrderSummaryDTO();
+        order.setId(id);
+        order.setStatus(Order.OrderStatus.PREPARING);
+        order.setCreatedAt(createdAt);
+        return order;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CartItemDTO;
+import com.example.demo.dto.GuestOrderRequestDTO;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.mapper.CartMapper;
+import com.example.demo.mapper.OrderMapper;
+import com.example.demo.model.Category;
+import com.example.demo.model.Order;
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductVariant;
+import com.example.demo.model.User;
+import com.example.demo.repositories.CouponRepository;
+import com.example.demo.repositories.OrderRepository;
+import com.example.demo.repositories.ProductRepository;
+import com.example.demo.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceStockReservationTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private CartMapper cartMapper;
+
+    @Mock
+    private SettingService settingService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private CouponRedemptionService couponRedemptionService;
+
+    @Mock
+    private CouponEngine couponEngine;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderService = new OrderService(
+                orderRepository,
+                cartService,
+                productRepository,
+                userRepository,
+                emailService,
+                orderMapper,
+                cartMapper,
+                couponRepository,
+                settingService,
+                stockReservationService,
+                couponRedemptionService,
+                couponEngine,
+                salesRollupService);
+
+        when(productRepository.findAllByIdWithCategoryAndImages(anyCollection())).thenReturn(List.of(serum()));
+        when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArguments()[0]);
+        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArguments()[0]);
+    }
+
+    @Test
+    void testLinesOfSameProductAreReservedOnceWithSummedQuantity() {
+        when(stockReservationService.reserveProducts(anyMap())).thenReturn(Map.of(1L, true));
+
+        orderService.createGuestOrder(request(line(2), line(3)));
+
+        verify(productRepository, times(1)).findAllByIdWithCategoryAndImages(anyCollection());
+        verify(productRepository, never()).findById(anyLong());
+        verify(stockReservationService).reserveProducts(Map.of(1L, 5));
+    }
+
+    @Test
+    void testRejectedReservationRaisesInsufficientStock() {
+        when(stockReservationService.reserveProducts(anyMap())).thenReturn(Map.of(1L, false));
+
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+                () -> orderService.createGuestOrder(request(line(2))));
+
+        assertTrue(ex.getMessage().contains("Vitamin C Serum"));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testVariantLinesAreReservedByVariantId() {
+        ProductVariant red = new ProductVariant();
+        red.setId(7L);
+        red.setVariantMap(Map.of("Color", "Red"));
+        when(productRepository.findAllByIdWithCategoryAndImages(anyCollection())).thenAnswer(i -> {
+            Product product = serum();
+            product.setVariants(List.of(red));
+            return List.of(product);
+        });
+        when(stockReservationService.reserveProducts(anyMap())).thenReturn(Map.of(1L, true));
+        when(stockReservationService.reserveVariants(anyMap())).thenReturn(Map.of(7L, true));
+        CartItemDTO variantLine = line(2);
+        variantLine.setProductVariantId(7L);
+        // The display name is not parsed any more
+        variantLine.setVariantName("{\"Color\":\"Red\"}");
+        CartItemDTO unknownVariant = line(1);
+        unknownVariant.setProductVariantId(99L);
+
+        orderService.createGuestOrder(request(variantLine, unknownVariant));
+
+        verify(stockReservationService).reserveProducts(Map.of(1L, 3));
+        verify(stockReservationService).reserveVariants(Map.of(7L, 2));
+    }
+
+    private static CartItemDTO line(int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(1L);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static Product serum() {
+        Category category = new Category();
+        category.setId(3L);
+        Product serum = new Product();
+        serum.setId(1L);
+        serum.setName("Vitamin C Serum");
+        serum.setPrice(new BigDecimal("120.00"));
+        serum.setQuantity(10);
+        serum.setCategory(category);
+        return serum;
+    }
+
+    private static GuestOrderRequestDTO request(CartItemDTO... items) {
+        GuestOrderRequestDTO request = new GuestOrderRequestDTO();
+        request.setClientFullName("Guest User");
+        request.setCity("Casablanca");
+        request.setAddress("123 Street");
+        request.setPhoneNumber("0600000000");
+        request.setCartItems(Arrays.asList(items));
+        return request;
+    }
+}
@@ -58,6 +58,18 @@ class OrderServiceVariantTest {
     @Mock
     private SettingService settingService;
 
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private CouponRedemptionService couponRedemptionService;
+
+    @Mock
+    private CouponEngine couponEngine;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
     private OrderService orderService;
 
     @BeforeEach
@@ -72,7 +84,11 @@ class OrderServiceVariantTest {
                 orderMapper,
                 cartMapper,
                 couponRepository,
-                settingService);
+                settingService,
+                stockReservationService,
+                couponRedemptionService,
+                couponEngine,
+                salesRollupService);
     }
 
     @Test
@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductFacetsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductFacetIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    private ProductFacetIndex facetIndex;
+
+    // id, name, price, brand, bestseller, newArrival, type, categoryId, categoryName
+    private final List<Object[]> products = List.of(
+            new Object[] { 1L, "Crème Hydratante", "120.00", "Nivea", true, false, "WOMEN", 10L, "Soins" },
+            new Object[] { 2L, "Gel Douche", "45.50", "nivea ", false, true, "BOTH", 10L, "Soins" },
+            new Object[] { 3L, "Parfum Oud", "890.00", "Dior", true, true, "MEN", 20L, "Parfums" },
+            new Object[] { 4L, "Eau de Toilette", "410.00", "Dior", false, false, "WOMEN", 20L, "Parfums" },
+            new Object[] { 5L, "Rasoir", "75.00", null, false, false, "MEN", 10L, "Soins" });
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        facetIndex = new ProductFacetIndex(jdbcTemplate, productSearchIndex);
+        doAnswer(i -> {
+            RowCallbackHandler handler = i.getArgument(1);
+            for (Object[] row : products) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn((Long) row[0]);
+                when(rs.getString(2)).thenReturn((String) row[1]);
+                when(rs.getBigDecimal(3)).thenReturn(new BigDecimal((String) row[2]));
+                when(rs.getString(4)).thenReturn((String) row[3]);
+                when(rs.getBoolean(5)).thenReturn((Boolean) row[4]);
+                when(rs.getBoolean(6)).thenReturn((Boolean) row[5]);
+                when(rs.getString(7)).thenReturn((String) row[6]);
+                when(rs.getObject(8, Long.class)).thenReturn((Long) row[7]);
+                when(rs.getString(9)).thenReturn((String) row[8]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testCountsWithoutFilters() {
+        ProductFacetsDTO facets = facetIndex.facets(null, null, null, null, null, null, null, null, null);
+
+        assertEquals(5, facets.getTotal());
+        assertEquals(Map.of("Nivea", 2L, "Dior", 2L), countsByLabel(facets.getBrands()));
+        assertEquals(Map.of("Soins", 3L, "Parfums", 2L), countsByLabel(facets.getCategories()));
+        assertEquals("10", facets.getCategories().get(0).getValue());
+        assertEquals(2, facets.getBestsellers());
+        assertEquals(2, facets.getNewArrivals());
+        assertEquals(new BigDecimal("45.50"), facets.getMinPrice());
+        assertEquals(new BigDecimal("890.00"), facets.getMaxPrice());
+    }
+
+    @Test
+    void testEachFacetIgnoresItsOwnFilter() {
+        ProductFacetsDTO facets = facetIndex.facets(null, 10L, null, new BigDecimal("100"), "NIVEA", null, null,
+                null, null);
+
+        // Nivea products in Soins up to 100
+        assertEquals(1, facets.getTotal());
+        // Brands: Soins up to 100, any brand
+        assertEquals(Map.of("Nivea", 1L), countsByLabel(facets.getBrands()));
+        // Categories: Nivea up to 100, any category
+        assertEquals(Map.of("Soins", 1L), countsByLabel(facets.getCategories()));
+        // Price: Nivea in Soins, any price
+        assertEquals(new BigDecimal("45.50"), facets.getMinPrice());
+        assertEquals(new BigDecimal("120.00"), facets.getMaxPrice());
+    }
+
+    @Test
+    void testFlagsAndTypeFilters() {
+        ProductFacetsDTO facets = facetIndex.facets(null, null, null, null, null, true, null, "men", null);
+
+        assertEquals(1, facets.getTotal());
+        assertEquals(Map.of("MEN", 1L, "WOMEN", 1L), countsByLabel(facets.getTypes()));
+        // As in the listing: unknown brands and types without products match nothing, invalid types are ignored
+        assertEquals(0, facetIndex.facets(null, null, null, null, "Chanel", null, null, null, null).getTotal());
+        assertEquals(0, facetIndex.facets(null, null, null, null, null, null, null, "electronic", null).getTotal());
+        assertEquals(5, facetIndex.facets(null, null, null, null, null, null, null, "KIDS", null).getTotal());
+        assertEquals(2, facetIndex.facets(null, null, null, null, " NIVEA ", null, null, null, null).getTotal());
+    }
+
+    @Test
+    void testPriceHistogramUsesRoundBuckets() {
+        ProductFacetsDTO facets = facetIndex.facets(null, null, null, null, null, null, null, null, 5);
+
+        List<ProductFacetsDTO.PriceBucket> histogram = facets.getPriceHistogram();
+        // (890 - 45.5) / 5 = 168.9 -> width 200, from 0
+        assertEquals(5, histogram.size());
+        assertEquals(0, histogram.get(0).getFrom().compareTo(BigDecimal.ZERO));
+        assertEquals(0, histogram.get(0).getTo().compareTo(new BigDecimal("200")));
+        assertEquals(List.of(3L, 0L, 1L, 0L, 1L),
+                histogram.stream().map(ProductFacetsDTO.PriceBucket::getCount).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSearchUsesFullTextIndexOrNameSubstring() {
+        when(productSearchIndex.isSearchable("parfum")).thenReturn(true);
+        when(productSearchIndex.search("parfum")).thenReturn(List.of(3L, 99L));
+
+        assertEquals(1, facetIndex.facets("parfum", null, null, null, null, null, null, null, null).getTotal());
+        assertEquals(1, facetIndex.facets("ge", null, null, null, null, null, null, null, null).getTotal());
+    }
+
+    @Test
+    void testProductChangesRebuildOnNextRefresh() {
+        facetIndex.facets(null, null, null, null, null, null, null, null, null);
+        facetIndex.refreshIfStale();
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+
+        facetIndex.onProductChanged(new ProductChangedEvent(1L));
+        facetIndex.refreshIfStale();
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private static Map<String, Long> countsByLabel(List<ProductFacetsDTO.FacetCount> counts) {
+        return counts.stream().collect(Collectors.toMap(ProductFacetsDTO.FacetCount::getLabel,
+                ProductFacetsDTO.FacetCount::getCount));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductListDTO;
+import com.example.demo.model.Product;
+import com.example.demo.repositories.CommentRepository;
+import com.example.demo.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductListCardsTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
+    @InjectMocks
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testBestsellersAreBoundedCardsFilledInBatches() {
+        ProductListDTO plain = card(1L, 0, false);
+        ProductListDTO withVariants = card(2L, 0, true);
+        when(productRepository.findBestsellerCards(any())).thenReturn(List.of(plain, withVariants));
+        when(productRepository.findFirstImagesByProductIds(anyCollection())).thenReturn(List.of(
+                new Object[] { 1L, "/api/images/products/a.jpg" },
+                new Object[] { 2L, "/api/images/products/c.jpg" }));
+        when(productRepository.sumVariantStockByProductIds(List.of(2L)))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, 7L }));
+        when(commentRepository.summarizeScoresByProductIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[] { 1L, 4.5, 2L }));
+
+        List<ProductListDTO> cards = productService.getBestsellers(500);
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        verify(productRepository).findBestsellerCards(page.capture());
+        assertEquals(ProductService.MAX_FEATURED, page.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "id"), page.getValue().getSort());
+
+        assertEquals(List.of("/api/images/products/a.jpg"), cards.get(0).getImages());
+        assertFalse(cards.get(0).isInStock());
+        assertEquals(4.5, cards.get(0).getAverageRating());
+        assertEquals(2L, cards.get(0).getReviewCount());
+        // Stock of products with variants comes from the variants
+        assertTrue(cards.get(1).isInStock());
+        assertNull(cards.get(1).getAverageRating());
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void testNoDetailQueriesForEmptyList() {
+        when(productRepository.findNewArrivalCards(any())).thenReturn(List.of());
+
+        assertTrue(productService.getNewArrivals(20).isEmpty());
+
+        verify(productRepository, never()).findFirstImagesByProductIds(anyCollection());
+        verifyNoInteractions(commentRepository);
+    }
+
+    private static ProductListDTO card(Long id, int quantity, boolean hasVariants) {
+        return new ProductListDTO(id, "Product " + id, new BigDecimal("99.00"), quantity, "Brand", 1L, "Soins",
+                Product.ProductType.BOTH, true, false, hasVariants);
+    }
+}
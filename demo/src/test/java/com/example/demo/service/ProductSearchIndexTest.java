@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productSearchIndex = new ProductSearchIndex(jdbcTemplate);
+        ReflectionTestUtils.setField(productSearchIndex, "maxResults", 100);
+    }
+
+    @Test
+    void testNormalizationFoldsAccentsCaseAndArabicVariants() {
+        assertEquals("creme hydratante", SearchText.normalize("Crème  HYDRATANTE!"));
+        assertEquals("soeur", SearchText.normalize("Sœur"));
+        assertEquals(SearchText.normalize("احمر"), SearchText.normalize("أحمر"));
+        assertEquals(SearchText.normalize("مكتبه"), SearchText.normalize("مكتبة"));
+        assertEquals(SearchText.normalize("عطر"), SearchText.normalize("عِطْر"));
+        assertEquals("parfum 50 ml", SearchText.normalize("<p>Parfum&nbsp;<b>50</b> ml</p>"));
+    }
+
+    @Test
+    void testBooleanQueryRequiresEveryTermAsPrefix() {
+        assertEquals("+creme* +hydra*", ProductSearchIndex.toBooleanQuery("Crème hydra"));
+        // Operators are stripped, short terms dropped
+        assertEquals("+gel*", ProductSearchIndex.toBooleanQuery("gel -5 \"ml\" +x"));
+        assertNull(ProductSearchIndex.toBooleanQuery("tv"));
+        assertFalse(productSearchIndex.isSearchable("  "));
+    }
+
+    @Test
+    void testSearchRunsRankedFullTextQuery() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(7L, 3L));
+
+        List<Long> ids = productSearchIndex.search("Savon");
+
+        assertEquals(List.of(7L, 3L), ids);
+        verify(jdbcTemplate).queryForList(contains("MATCH(name_text, tags_text, body_text)"), eq(Long.class),
+                eq("+savon*"), eq("+savon*"), eq("+savon*"), eq("+savon*"), eq(100));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReindexWritesNormalizedDocument() {
+        doReturn(List.<Object[]>of(new Object[] { "Crème Légère", "L'Oréal", "<p>Très douce</p>", "Soins" }))
+                .when(jdbcTemplate).query(startsWith("SELECT p.name"), any(RowMapper.class), eq(5L));
+        when(jdbcTemplate.queryForList(startsWith("SELECT t.name"), eq(String.class), eq(5L), eq(5L)))
+                .thenReturn(List.of("Taille", "Grand"));
+
+        productSearchIndex.reindex(5L);
+
+        verify(jdbcTemplate).update(startsWith("INSERT INTO product_search"), eq(5L), eq("creme legere"),
+                eq("l oreal soins taille grand"), eq("tres douce"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReindexOfDeletedProductRemovesRow() {
+        doReturn(List.of()).when(jdbcTemplate).query(startsWith("SELECT p.name"), any(RowMapper.class), eq(5L));
+
+        productSearchIndex.reindex(5L);
+
+        verify(jdbcTemplate).update("DELETE FROM product_search WHERE product_id = ?", 5L);
+        verify(jdbcTemplate, never()).update(startsWith("INSERT"), any(Object[].class));
+    }
+}
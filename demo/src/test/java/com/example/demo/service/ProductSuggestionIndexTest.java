@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductSuggestionIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ProductSuggestionIndex suggestionIndex;
+
+    private List<Object[]> products;
+    private List<Object[]> popularity;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        suggestionIndex = new ProductSuggestionIndex(jdbcTemplate);
+        ReflectionTestUtils.setField(suggestionIndex, "popularityDays", 90);
+        products = List.of(
+                new Object[] { 1L, "Crème Hydratante" },
+                new Object[] { 2L, "Crayon Khôl" },
+                new Object[] { 3L, "Huile de Cade" },
+                new Object[] { 4L, "Crème Solaire" },
+                new Object[] { 5L, "Crème Solaire" },
+                new Object[] { 6L, "كريم مرطب" });
+        popularity = List.of(new Object[] { "4", 30L }, new Object[] { "2", 50L }, new Object[] { "3", 5L });
+        doAnswer(i -> replay(i.getArgument(1), popularity)).when(jdbcTemplate)
+                .query(startsWith("SELECT dimension_key"), any(RowCallbackHandler.class), any(Object[].class));
+        doAnswer(i -> replay(i.getArgument(1), products)).when(jdbcTemplate)
+                .query(startsWith("SELECT id, name"), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testSuggestsMostOrderedNamesMatchingAnyWordPrefix() {
+        assertEquals(List.of("Crayon Khôl", "Crème Solaire", "Crème Hydratante"), suggestionIndex.suggest("cr", 10));
+        assertEquals(List.of("Crème Solaire", "Crème Hydratante"), suggestionIndex.suggest("CREME", 10));
+        assertEquals(List.of("Crème Hydratante"), suggestionIndex.suggest("hydr", 10));
+        assertEquals(List.of("Huile de Cade"), suggestionIndex.suggest("cade", 10));
+        assertEquals(List.of("كريم مرطب"), suggestionIndex.suggest("مرط", 10));
+        assertEquals(List.of(), suggestionIndex.suggest("zz", 10));
+        assertEquals(List.of(), suggestionIndex.suggest(" ", 10));
+    }
+
+    @Test
+    void testLimitKeepsTopRanked() {
+        assertEquals(List.of("Crayon Khôl"), suggestionIndex.suggest("cr", 1));
+        assertEquals(List.of("Crayon Khôl", "Crème Solaire"), suggestionIndex.suggest("c", 2));
+    }
+
+    @Test
+    void testProductChangesRebuildOnNextRefreshOnly() {
+        suggestionIndex.suggest("cr", 10);
+        suggestionIndex.refreshIfStale();
+        verify(jdbcTemplate, times(1)).query(startsWith("SELECT id, name"), any(RowCallbackHandler.class));
+
+        products = List.<Object[]>of(new Object[] { 7L, "Crème Mains" });
+        suggestionIndex.onProductChanged(new ProductChangedEvent(7L));
+        suggestionIndex.onProductChanged(new ProductChangedEvent(7L));
+        suggestionIndex.refreshIfStale();
+        suggestionIndex.refreshIfStale();
+
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT id, name"), any(RowCallbackHandler.class));
+        assertEquals(List.of("Crème Mains"), suggestionIndex.suggest("crem", 10));
+    }
+
+    private static Object replay(RowCallbackHandler handler, List<Object[]> rows) throws Exception {
+        for (Object[] row : rows) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn(String.valueOf(row[0]));
+            when(rs.getLong(1)).thenReturn(row[0] instanceof Long ? (Long) row[0] : 0L);
+            when(rs.getString(2)).thenReturn(String.valueOf(row[1]));
+            when(rs.getLong(2)).thenReturn(row[1] instanceof Long ? (Long) row[1] : 0L);
+            handler.processRow(rs);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RollupFenceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PlatformTransactionManager transactionManager;
+    private RollupFence rollupFence;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        rollupFence = new RollupFence(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuildBumpsEpochBeforeReading() {
+        when(jdbcTemplate.queryForObject(endsWith("FOR UPDATE"), eq(Long.class), eq("sales"))).thenReturn(4L);
+        Runnable rebuild = mock(Runnable.class);
+
+        rollupFence.rebuild("sales", LocalDate.of(2024, 5, 10), LocalDate.of(2024, 5, 11), rebuild);
+
+        InOrder inOrder = inOrder(jdbcTemplate, rebuild);
+        inOrder.verify(jdbcTemplate).queryForObject(endsWith("FOR UPDATE"), eq(Long.class), eq("sales"));
+        inOrder.verify(jdbcTemplate).update(startsWith("UPDATE rollup_epoch"), eq(5L), eq("sales"));
+        ArgumentCaptor<List<Object[]>> days = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO rollup_rebuild"), days.capture());
+        inOrder.verify(rebuild).run();
+        assertArrayEquals(new Object[] { "sales", Date.valueOf("2024-05-11"), 5L }, days.getValue().get(1));
+        assertEquals(2, days.getValue().size());
+
+        // Its own READ COMMITTED transaction: consistent reads of orders, no shared locks on them
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getIsolationLevel() == TransactionDefinition.ISOLATION_READ_COMMITTED
+                        && definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    @Test
+    void testEpochIsShareLockedInsideTransaction() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("sales"))).thenReturn(List.of(3L));
+
+        assertEquals(3L, rollupFence.currentEpoch("sales"));
+        verify(jdbcTemplate).queryForList(argThat(sql -> !sql.contains("FOR SHARE")), eq(Long.class), eq("sales"));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(3L, rollupFence.currentEpoch("sales"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verify(jdbcTemplate).queryForList(endsWith("FOR SHARE"), eq(Long.class), eq("sales"));
+    }
+}
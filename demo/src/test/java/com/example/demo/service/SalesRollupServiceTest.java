@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Category;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SalesRollupServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RollupFence rollupFence;
+
+    @Mock
+    private ScheduledJobLock scheduledJobLock;
+
+    private SalesRollupService salesRollupService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(i -> {
+            ((Consumer<Object>) i.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(i -> {
+            ((Runnable) i.getArgument(3)).run();
+            return null;
+        }).when(rollupFence).rebuild(anyString(), any(), any(), any());
+        salesRollupService = new SalesRollupService(jdbcTemplate, transactionTemplate, rollupFence, scheduledJobLock);
+    }
+
+    @Test
+    void testPlacedOrderIsAddedToEveryDimension() {
+        salesRollupService.recordPlaced(order());
+
+        Map<String, Object[]> rows = flushedRows();
+
+        // 2 x 100 + 50 + shipping 30 - discount 20
+        assertRow(rows.get("TOTAL:"), 1, 3, "260");
+        assertRow(rows.get("CITY:Rabat"), 1, 3, "260");
+        assertRow(rows.get("COUPON:SAVE20"), 1, 3, "260");
+        assertRow(rows.get("STATUS:PREPARING"), 1, 3, "260");
+        // Two lines of product 5 count as one order
+        assertRow(rows.get("PRODUCT:5"), 1, 3, "250");
+        assertRow(rows.get("CATEGORY:7"), 1, 3, "250");
+        assertEquals(6, rows.size());
+    }
+
+    @Test
+    void testCancelingOrderMovesStatusAndRemovesSales() {
+        Order order = order();
+        order.setStatus(Order.OrderStatus.CANCELED);
+
+        salesRollupService.recordStatusChange(order, Order.OrderStatus.PREPARING);
+
+        Map<String, Object[]> rows = flushedRows();
+        assertRow(rows.get("TOTAL:"), -1, -3, "-260");
+        assertRow(rows.get("PRODUCT:5"), -1, -3, "-250");
+        assertRow(rows.get("STATUS:PREPARING"), -1, -3, "-260");
+        assertRow(rows.get("STATUS:CANCELED"), 1, 3, "260");
+    }
+
+    @Test
+    void testDeltasOfSeveralOrdersAreSummedBeforeFlush() {
+        salesRollupService.recordPlaced(order());
+        salesRollupService.recordPlaced(order());
+        salesRollupService.recordDeleted(order());
+
+        assertRow(flushedRows().get("TOTAL:"), 1, 3, "260");
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltasForNextRun() {
+        salesRollupService.recordPlaced(order());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        salesRollupService.flush();
+        reset(jdbcTemplate);
+
+        assertRow(flushedRows().get("TOTAL:"), 1, 3, "260");
+    }
+
+    @Test
+    void testRebuildRunsInsideFence() {
+        salesRollupService.rebuild(LocalDate.of(2024, 5, 10), LocalDate.of(2024, 5, 11));
+
+        verify(rollupFence).rebuild(eq("sales"), eq(LocalDate.of(2024, 5, 10)), eq(LocalDate.of(2024, 5, 11)), any());
+        verify(jdbcTemplate).update(startsWith("DELETE FROM sales_daily_rollup"),
+                eq(Date.valueOf("2024-05-10")), eq(Date.valueOf("2024-05-11")));
+    }
+
+    @Test
+    void testFlushDropsDeltasCountedByRebuild() {
+        // Committed before the rebuild of May 10th (epoch 1), flushed after it
+        when(rollupFence.currentEpoch("sales")).thenReturn(0L);
+        salesRollupService.recordPlaced(order());
+        Order later = order();
+        later.setCreatedAt(LocalDateTime.of(2024, 5, 12, 9, 0));
+        salesRollupService.recordPlaced(later);
+        // Committed after it
+        when(rollupFence.currentEpoch("sales")).thenReturn(1L);
+        salesRollupService.recordDeleted(order());
+        when(rollupFence.rebuildEpochs("sales", LocalDate.of(2024, 5, 10), LocalDate.of(2024, 5, 12)))
+                .thenReturn(Map.of(LocalDate.of(2024, 5, 10), 1L));
+
+        Map<String, Object[]> rows = flushedRows();
+
+        assertEquals(12, rows.size());
+        List<Object[]> totals = rows.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("TOTAL:"))
+                .map(Map.Entry::getValue)
+                .toList();
+        assertEquals(2, totals.size());
+        for (Object[] total : totals) {
+            // The delete after the rebuild still counts; the placement before it doesn't
+            assertEquals(Date.valueOf("2024-05-10").equals(total[0]) ? -1L : 1L, total[3]);
+        }
+    }
+
+    @Test
+    void testNightlyRebuildRunsOnOneNode() {
+        when(scheduledJobLock.tryLock("sales-rollup-rebuild")).thenReturn(false);
+
+        salesRollupService.rebuildRecentDays();
+
+        verifyNoInteractions(rollupFence);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object[]> flushedRows() {
+        salesRollupService.flush();
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO sales_daily_rollup"), args.capture());
+        Map<String, Object[]> rows = new HashMap<>();
+        for (Object[] row : args.getValue()) {
+            rows.put(row[1] + ":" + row[2] + (Date.valueOf("2024-05-10").equals(row[0]) ? "" : "@" + row[0]), row);
+        }
+        return rows;
+    }
+
+    private static void assertRow(Object[] row, long orders, long units, String revenue) {
+        assertNotNull(row);
+        assertEquals(orders, row[3]);
+        assertEquals(units, row[4]);
+        assertEquals(0, new BigDecimal(revenue).compareTo((BigDecimal) row[5]));
+    }
+
+    private static Order order() {
+        Category category = new Category();
+        category.setId(7L);
+        Product product = new Product();
+        product.setId(5L);
+        product.setCategory(category);
+        Coupon coupon = new Coupon();
+        coupon.setCode("SAVE20");
+
+        Order order = new Order();
+        order.setCity(" Rabat ");
+        order.setStatus(Order.OrderStatus.PREPARING);
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 10, 12, 0));
+        order.setShippingCost(new BigDecimal("30"));
+        order.setDiscountAmount(new BigDecimal("20"));
+        order.setCoupon(coupon);
+        order.setItems(List.of(
+                item(product, 2, "100"),
+                item(product, 1, "50")));
+        return order;
+    }
+
+    private static OrderItem item(Product product, int quantity, String price) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setPrice(new BigDecimal(price));
+        return item;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.service;
+
+import com.example.demo.constant.SettingKeys;
+import com.example.demo.model.Setting;
+import com.example.demo.repositories.SettingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SettingServiceTest {
+
+    @Mock
+    private SettingRepository settingRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SettingService settingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        settingService = new SettingService(settingRepository, eventPublisher);
+        ReflectionTestUtils.setField(settingService, "ttlSeconds", 60L);
+        when(settingRepository.findAll()).thenReturn(List.of(
+                new Setting(SettingKeys.HIGH_VALUE_THRESHOLD, "750"),
+                new Setting(SettingKeys.LOYALTY_ORDER_COUNT, "not a number")));
+    }
+
+    @Test
+    void testRepeatedReadsLoadTableOnce() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new BigDecimal("750"),
+                    settingService.getBigDecimalSetting(SettingKeys.HIGH_VALUE_THRESHOLD, "500"));
+            assertEquals(3, settingService.getIntSetting(SettingKeys.LOYALTY_ORDER_COUNT, 3));
+            assertEquals(new BigDecimal("15"),
+                    settingService.getBigDecimalSetting(SettingKeys.LOYALTY_DISCOUNT_PERCENT, "15"));
+        }
+
+        verify(settingRepository, times(1)).findAll();
+        verify(settingRepository, never()).findBySettingKey(anyString());
+    }
+
+    @Test
+    void testUpdateRefreshesSnapshot() {
+        settingService.getBigDecimalSetting(SettingKeys.HIGH_VALUE_THRESHOLD, "500");
+        when(settingRepository.findBySettingKey(SettingKeys.HIGH_VALUE_THRESHOLD)).thenReturn(Optional.empty());
+        when(settingRepository.findAll()).thenReturn(List.of(new Setting(SettingKeys.HIGH_VALUE_THRESHOLD, "900")));
+
+        settingService.updateSetting(SettingKeys.HIGH_VALUE_THRESHOLD, "900");
+
+        assertEquals(new BigDecimal("900"),
+                settingService.getBigDecimalSetting(SettingKeys.HIGH_VALUE_THRESHOLD, "500"));
+        verify(settingRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRowsAreUpdatedInIdOrder() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        // Product 3 is out of stock
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1, 0, 1 });
+        StockReservationService service = new StockReservationService(jdbcTemplate);
+        Map<Long, Integer> cart = new LinkedHashMap<>();
+        cart.put(5L, 1);
+        cart.put(1L, 2);
+        cart.put(3L, 4);
+
+        Map<Long, Boolean> result = service.reserveProducts(cart);
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(List.of(1L, 3L, 5L), batch.getValue().stream().map(args -> args[1]).toList());
+        assertEquals(List.of(5L, 1L, 3L), List.copyOf(result.keySet()));
+        assertEquals(Map.of(1L, true, 3L, false, 5L, true), result);
+    }
+}
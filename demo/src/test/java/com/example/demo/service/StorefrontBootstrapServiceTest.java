@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CategoryDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StorefrontBootstrapServiceTest {
+
+    @Mock
+    private HeroService heroService;
+
+    @Mock
+    private AnnouncementService announcementService;
+
+    @Mock
+    private CountdownService countdownService;
+
+    @Mock
+    private NotificationSettingService notificationSettingService;
+
+    @Mock
+    private EnhancedVisitorCounterSettingsService enhancedVisitorCounterSettingsService;
+
+    @Mock
+    private SettingService settingService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StorefrontBootstrapService storefrontBootstrapService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        storefrontBootstrapService = new StorefrontBootstrapService(objectMapper, heroService, announcementService,
+                countdownService, notificationSettingService, enhancedVisitorCounterSettingsService, settingService,
+                categoryService);
+        ReflectionTestUtils.setField(storefrontBootstrapService, "ttlSeconds", 60L);
+
+        when(heroService.getHeroSnapshot()).thenReturn(snapshot("{\"title\":\"Glow\"}"));
+        when(announcementService.getAnnouncementSnapshot()).thenReturn(snapshot("{\"enabled\":true}"));
+        when(countdownService.getCountdownSnapshot()).thenReturn(snapshot(""));
+        when(notificationSettingService.getSettingsSnapshot()).thenReturn(snapshot("{\"enabled\":false}"));
+        when(enhancedVisitorCounterSettingsService.getSettingsSnapshot()).thenReturn(snapshot("{\"id\":1}"));
+        when(settingService.getAllSettings()).thenReturn(Map.of("facebookPixelId", "123"));
+        when(categoryService.getAllCategories()).thenReturn(List.of(new CategoryDTO(4L, "Skincare", null, null, null)));
+    }
+
+    @Test
+    void testPayloadCombinesSectionsAndIsBuiltOnce() throws Exception {
+        StorefrontBootstrapService.Payload payload = storefrontBootstrapService.getPayload();
+        assertSame(payload, storefrontBootstrapService.getPayload());
+        verify(categoryService, times(1)).getAllCategories();
+
+        JsonNode json = objectMapper.readTree(payload.getJson());
+        assertEquals("Glow", json.path("hero").path("title").asText());
+        assertTrue(json.path("countdown").isNull());
+        assertEquals("123", json.path("settings").path("facebookPixelId").asText());
+        assertEquals("Skincare", json.path("categories").get(0).path("name").asText());
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload.getGzip()))) {
+            assertArrayEquals(payload.getJson(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void testChangeEventTriggersRebuild() {
+        StorefrontBootstrapService.Payload first = storefrontBootstrapService.getPayload();
+
+        storefrontBootstrapService.onStorefrontConfigChanged(new StorefrontConfigChangedEvent("CATEGORIES"));
+        StorefrontBootstrapService.Payload second = storefrontBootstrapService.getPayload();
+
+        assertNotSame(first, second);
+        verify(categoryService, times(2)).getAllCategories();
+    }
+
+    private static StorefrontConfigCache.Snapshot snapshot(String json) {
+        return new StorefrontConfigCache.Snapshot(json.getBytes(StandardCharsets.UTF_8), "\"etag\"", Long.MAX_VALUE);
+    }
+}
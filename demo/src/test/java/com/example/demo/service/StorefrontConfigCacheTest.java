@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.AnnouncementDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StorefrontConfigCacheTest {
+
+    private StorefrontConfigCache storefrontConfigCache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        storefrontConfigCache = new StorefrontConfigCache(new ObjectMapper(), mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(storefrontConfigCache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(storefrontConfigCache, "maxAgeSeconds", 30L);
+    }
+
+    @Test
+    void testSectionIsLoadedOnceUntilInvalidated() {
+        Supplier<AnnouncementDTO> loader = () -> announcement("Summer sale " + loads.incrementAndGet());
+
+        StorefrontConfigCache.Snapshot first = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT, loader);
+        StorefrontConfigCache.Snapshot second = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT, loader);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+
+        storefrontConfigCache.invalidate(StorefrontConfigCache.Section.ANNOUNCEMENT);
+        StorefrontConfigCache.Snapshot third = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT, loader);
+
+        assertEquals(2, loads.get());
+        assertNotEquals(first.getEtag(), third.getEtag());
+    }
+
+    @Test
+    void testMatchingEtagReturnsNotModified() {
+        StorefrontConfigCache.Snapshot snapshot = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT,
+                () -> announcement("Free shipping"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/announcement");
+        request.addHeader("If-None-Match", snapshot.getEtag());
+
+        ResponseEntity<byte[]> response = storefrontConfigCache.toResponse(snapshot,
+                new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void testFreshRequestGetsJsonWithCacheHeaders() {
+        StorefrontConfigCache.Snapshot snapshot = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT,
+                () -> announcement("Free shipping"));
+
+        ResponseEntity<byte[]> response = storefrontConfigCache.toResponse(snapshot, new ServletWebRequest(
+                new MockHttpServletRequest("GET", "/api/announcement"), new MockHttpServletResponse()));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(snapshot.getEtag(), response.getHeaders().getETag());
+        assertEquals("max-age=30, public", response.getHeaders().getCacheControl());
+        assertTrue(new String(response.getBody()).contains("Free shipping"));
+    }
+
+    @Test
+    void testInvalidateDuringLoadIsNotCached() {
+        StorefrontConfigCache.Snapshot stale = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT, () -> {
+            // The row changes while it is being read
+            storefrontConfigCache.invalidate(StorefrontConfigCache.Section.ANNOUNCEMENT);
+            return announcement("Old");
+        });
+        StorefrontConfigCache.Snapshot fresh = storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT,
+                () -> announcement("New"));
+
+        assertTrue(new String(stale.getJson()).contains("Old"));
+        assertTrue(new String(fresh.getJson()).contains("New"));
+    }
+
+    @Test
+    void testLoaderMayReadOtherSections() {
+        // Loaders run outside the map lock, so they can use the cache themselves
+        StorefrontConfigCache.Snapshot snapshot = storefrontConfigCache.get(StorefrontConfigCache.Section.HERO,
+                () -> new String(storefrontConfigCache.get(StorefrontConfigCache.Section.ANNOUNCEMENT,
+                        () -> announcement("Nested")).getJson()));
+
+        assertTrue(new String(snapshot.getJson()).contains("Nested"));
+    }
+
+    private static AnnouncementDTO announcement(String text) {
+        AnnouncementDTO dto = new AnnouncementDTO();
+        dto.setText(text);
+        return dto;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ThumbnailService thumbnailService;
+    private File original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        thumbnailService = createService(2, 50, 10_000L);
+        Path productsDir = tempDir.resolve("images/products");
+        Files.createDirectories(productsDir);
+        original = productsDir.resolve("photo.jpg").toFile();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpg", original);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.stop();
+    }
+
+    private ThumbnailService createService(int threads, int queueCapacity, long waitTimeoutMs) {
+        ImageCacheManager cacheManager = new ImageCacheManager();
+        ReflectionTestUtils.setField(cacheManager, "uploadDir", tempDir.toString());
+        ReflectionTestUtils.setField(cacheManager, "maxSizeMb", 100L);
+        ReflectionTestUtils.setField(cacheManager, "buckets", new int[] { 50, 100, 160, 320, 640, 1024 });
+        cacheManager.loadIndex();
+        ThumbnailService service = new ThumbnailService(cacheManager);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "waitTimeoutMs", waitTimeoutMs);
+        ReflectionTestUtils.setField(service, "maxPixels", 1_000_000L);
+        service.start();
+        return service;
+    }
+
+    @Test
+    void testGeneratesThumbnailIntoCache() throws Exception {
+        ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(original, "photo.jpg", 100, 0, true);
+
+        assertNotNull(thumbnail);
+        assertTrue(thumbnail.getFile().getName().startsWith("photo.jpg_w100_h0."));
+        assertEquals(tempDir.resolve("images/cache").toAbsolutePath(), thumbnail.getFile().toPath().getParent());
+        BufferedImage resized = ImageIO.read(thumbnail.getFile());
+        if (resized != null) {
+            assertEquals(100, resized.getWidth());
+        }
+        try (var files = Files.list(tempDir.resolve("images/cache"))) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")));
+        }
+        assertEquals(1, thumbnailService.getStats().getGenerated());
+    }
+
+    @Test
+    void testSecondRequestIsServedFromCache() {
+        ThumbnailService.Thumbnail first = thumbnailService.getThumbnail(original, "photo.jpg", 100, 100, true);
+        ThumbnailService.Thumbnail second = thumbnailService.getThumbnail(original, "photo.jpg", 100, 100, true);
+
+        assertEquals(first.getFile(), second.getFile());
+        assertEquals(first.getContentType(), second.getContentType());
+        assertEquals(1, thumbnailService.getStats().getGenerated());
+        assertEquals(1, thumbnailService.getStats().getCacheHits());
+    }
+
+    @Test
+    void testConcurrentRequestsShareOneResize() throws Exception {
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ThumbnailService.Thumbnail>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return thumbnailService.getThumbnail(original, "photo.jpg", 50, 0, true);
+                }));
+            }
+            start.countDown();
+            for (Future<ThumbnailService.Thumbnail> result : results) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        ThumbnailService.Stats stats = thumbnailService.getStats();
+        assertEquals(1, stats.getGenerated());
+        assertEquals(callers - 1, stats.getJoinedInFlight() + stats.getCacheHits());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testFullQueueFallsBackToOriginal() throws Exception {
+        thumbnailService.stop();
+        thumbnailService = createService(1, 0, 10_000L);
+        // Occupy the only worker so the next resize is rejected
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolTaskExecutor executor =
+                (ThreadPoolTaskExecutor) ReflectionTestUtils.getField(thumbnailService, "executor");
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        try {
+            assertNull(thumbnailService.getThumbnail(original, "photo.jpg", 100, 0, true));
+            assertEquals(1, thumbnailService.getStats().getRejected());
+            assertEquals(0, thumbnailService.getStats().getInFlight());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testUnreadableOriginalFallsBackToOriginal() throws Exception {
+        File broken = tempDir.resolve("images/products/broken.jpg").toFile();
+        Files.writeString(broken.toPath(), "not an image");
+
+        assertNull(thumbnailService.getThumbnail(broken, "broken.jpg", 100, 0, true));
+        assertEquals(1, thumbnailService.getStats().getFailed());
+        assertEquals(0, thumbnailService.getStats().getInFlight());
+    }
+
+    @Test
+    void testRequestedSizeIsSnappedToBucket() {
+        ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(original, "photo.jpg", 90, 0, true);
+        ThumbnailService.Thumbnail same = thumbnailService.getThumbnail(original, "photo.jpg", 97, 0, true);
+
+        assertTrue(thumbnail.getFile().getName().startsWith("photo.jpg_w100_h0."));
+        assertEquals(thumbnail.getFile(), same.getFile());
+        assertEquals(1, thumbnailService.getStats().getGenerated());
+        assertEquals(1, thumbnailService.getStats().getCache().getVariants());
+    }
+
+    @Test
+    void testJpegOnlyClientsGetJpeg() {
+        ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(original, "photo.jpg", 100, 0, false);
+
+        assertEquals("image/jpeg", thumbnail.getContentType());
+        assertTrue(thumbnail.getFile().getName().endsWith(".jpg"));
+    }
+
+    @Test
+    void testDoesNotUpscale() throws Exception {
+        ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(original, "photo.jpg", 1000, 0, false);
+
+        assertEquals(400, ImageIO.read(thumbnail.getFile()).getWidth());
+    }
+
+    @Test
+    void testOversizedImageIsRefusedBeforeDecoding() throws Exception {
+        File huge = tempDir.resolve("images/products/huge.png").toFile();
+        ImageIO.write(new BufferedImage(1200, 1000, BufferedImage.TYPE_BYTE_BINARY), "png", huge);
+
+        Dimension size = ThumbnailService.readDimensions(huge);
+        assertEquals(new Dimension(1200, 1000), size);
+        assertThrows(IllegalArgumentException.class, () -> thumbnailService.checkDimensions(size));
+        assertNull(thumbnailService.getThumbnail(huge, "huge.png", 100, 0, true));
+        assertEquals(1, thumbnailService.getStats().getFailed());
+    }
+
+    @Test
+    void testGenerateVariantsWritesBothFormatsBelowOriginalWidth() throws Exception {
+        List<Integer> widths = thumbnailService.generateVariants(original, "photo.jpg", new int[] { 160, 320, 640 });
+
+        assertEquals(List.of(160, 320), widths);
+        Path cacheDir = tempDir.resolve("images/cache");
+        assertTrue(Files.size(cacheDir.resolve("photo.jpg_w160_h0.jpg")) > 0);
+        assertTrue(Files.size(cacheDir.resolve("photo.jpg_w320_h0.jpg")) > 0);
+        assertFalse(Files.exists(cacheDir.resolve("photo.jpg_w640_h0.jpg")));
+        assertEquals(320, ImageIO.read(cacheDir.resolve("photo.jpg_w320_h0.jpg").toFile()).getWidth());
+
+        // Served from the cache afterwards, without a resize
+        long generated = thumbnailService.getStats().getGenerated();
+        assertNotNull(thumbnailService.getThumbnail(original, "photo.jpg", 320, 0, false));
+        assertEquals(generated, thumbnailService.getStats().getGenerated());
+    }
+}
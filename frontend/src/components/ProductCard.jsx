@@ -22,13 +22,14 @@ const ProductCard = ({ product, fetchCartCount, isAuthenticated }) => {
 
     // Default fallback
     const fullImageUrl = imageUrl
-        ? getOptimizedImageUrl(imageUrl, 400) // Default for 1x
+        ? getOptimizedImageUrl(imageUrl, 320) // Default for 1x
         : 'https://placehold.co/300x300/E91E63/FFFFFF?text=Produit';
 
-    // Responsive Set: 400px (standard), 800px (retina/desktop zoom)
-    const srcSet = imageUrl
-        ? `${getOptimizedImageUrl(imageUrl, 400)} 400w, ${getOptimizedImageUrl(imageUrl, 800)} 800w`
-        : null;
+    // Responsive Set: the server's pre-generated widths when provided, else 320px / 640px (retina)
+    const srcSet = (product.imageSrcsets && product.imageSrcsets[0])
+        || (imageUrl
+            ? `${getOptimizedImageUrl(imageUrl, 320)} 320w, ${getOptimizedImageUrl(imageUrl, 640)} 640w`
+            : null);
 
     // Sizes attribute: 
     // - Mobile (2 cols): ~50vw (minus padding)
@@ -50,11 +51,13 @@ const ProductCard = ({ product, fetchCartCount, isAuthenticated }) => {
     const isNew = product.createdAt &&
         (new Date() - new Date(product.createdAt)) / (1000 * 60 * 60 * 24) <= 30;
 
-    // Calculate average rating from comments
-    const averageRating = product.comments && product.comments.length > 0
-        ? product.comments.reduce((acc, comment) => acc + comment.score, 0) / product.comments.length
-        : 0;
-    const reviewCount = product.comments?.length || 0;
+    // Listings send a rating summary; full products still carry their comments
+    const averageRating = product.averageRating != null
+        ? product.averageRating
+        : product.comments && product.comments.length > 0
+            ? product.comments.reduce((acc, comment) => acc + comment.score, 0) / product.comments.length
+            : 0;
+    const reviewCount = product.reviewCount ?? (product.comments?.length || 0);
 
     const handleAddToCart = async (e) => {
         e.preventDefault();
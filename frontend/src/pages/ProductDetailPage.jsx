@@ -149,7 +149,8 @@ const ProductDetailPage = ({ fetchCartCount, isAuthenticated }) => {
         } else {
             // Guest Cart
             const guestCart = JSON.parse(localStorage.getItem('cart')) || { items: [] };
-            const existing = guestCart.items.findIndex(i => i.productId === product.id);
+            const existing = guestCart.items.findIndex(i => i.productId === product.id
+                && (i.productVariantId ?? null) === (activeVariant?.id ?? null));
 
             if (existing > -1) {
                 guestCart.items[existing].quantity += quantity;
@@ -167,7 +168,8 @@ const ProductDetailPage = ({ fetchCartCount, isAuthenticated }) => {
                     console.log('Adding to Guest Cart - Image:', img);
                     return img;
                 })(),
-                variantName: activeVariant ? activeVariant.name : null
+                variantName: activeVariant ? activeVariant.name : null,
+                productVariantId: activeVariant ? activeVariant.id : null
             });
 
             localStorage.setItem('cart', JSON.stringify(guestCart));
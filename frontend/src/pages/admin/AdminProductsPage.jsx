@@ -116,9 +116,10 @@ const AdminProductsPage = () => {
     // Filter and sort products
     const filteredAndSortedProducts = useMemo(() => {
         let filtered = products.filter(product => {
+            // The listing returns product cards (no description), so search the fields they carry
             const matchesSearch = product.name?.toLowerCase().includes(searchTerm.toLowerCase()) ||
                 product.brand?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-                product.description?.toLowerCase().includes(searchTerm.toLowerCase());
+                product.categoryName?.toLowerCase().includes(searchTerm.toLowerCase());
 
             const matchesCategory = !selectedCategory || product.categoryId?.toString() === selectedCategory;
 